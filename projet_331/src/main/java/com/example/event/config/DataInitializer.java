@@ -2,6 +2,7 @@ package com.example.event.config;
 
 import com.example.event.model.*;
 import com.example.event.repository.*;
+import com.example.event.utils.TicketCodeSigner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -36,6 +37,9 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private TicketCodeSigner ticketCodeSigner;
+
     private static final Random random = new Random();
 
     @Override
@@ -156,12 +160,7 @@ public class DataInitializer implements CommandLineRunner {
                 if (ticketsForEvent.isEmpty()) continue;
 
                 Subscription sub = new Subscription();
-                String codeticket;
-                do {
-                    codeticket = sub.generateTicketCode();
-                } while (subscriptionRepository.existsByCodeticket(codeticket));
-                
-                sub.setCodeticket(codeticket);
+                sub.setCodeticket(ticketCodeSigner.issue(eventToSubscribe.getId()));
                 sub.setCreatedAt(LocalDateTime.now().minusDays(random.nextInt(60)));
                 sub.setPlaces(1 + random.nextInt(2));
                 sub.setEvent(eventToSubscribe);
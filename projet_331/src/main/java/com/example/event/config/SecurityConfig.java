@@ -61,15 +61,23 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/auth/reset-password").permitAll()
                         .requestMatchers(HttpMethod.GET, "/event", "/event/**").authenticated()
                         .requestMatchers(HttpMethod.POST, "/event").hasAuthority("ROLE_ORGANIZER")
+                        .requestMatchers(HttpMethod.POST, "/event/*/cancel").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers(HttpMethod.PUT, "/event/**").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers(HttpMethod.DELETE, "/event/**").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers("/member/**").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers("/ticket/**").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers("/image/**").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers(HttpMethod.POST, "/subscription").hasAuthority("ROLE_VISITOR")
+                        .requestMatchers(HttpMethod.POST, "/subscription/cart").hasAuthority("ROLE_VISITOR")
+                        .requestMatchers("/subscription/queue/**").hasAuthority("ROLE_VISITOR")
                         .requestMatchers(HttpMethod.GET, "/subscription/visitor/me").hasAuthority("ROLE_VISITOR")
                         .requestMatchers(HttpMethod.GET, "/subscription/event/**").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers(HttpMethod.POST, "/subscription/validate/**").hasAuthority("ROLE_ORGANIZER")
+                        .requestMatchers("/subscription/gate/**").hasAuthority("ROLE_ORGANIZER")
+                        .requestMatchers("/subscription/manifest/**").hasAuthority("ROLE_ORGANIZER")
+                        .requestMatchers("/subscription/complimentary", "/subscription/complimentary/**").hasAuthority("ROLE_ORGANIZER")
+                        .requestMatchers("/waitlist", "/waitlist/**").hasAuthority("ROLE_VISITOR")
+                        .requestMatchers("/promo", "/promo/**").hasAuthority("ROLE_ORGANIZER")
                         .requestMatchers(HttpMethod.GET, "/api/events/{eventId}/comments").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/events/{eventId}/comments").authenticated()
                         .requestMatchers(HttpMethod.PUT, "/api/comments/{commentId}").authenticated()
@@ -1,13 +1,18 @@
 package com.example.event.controller;
 
+import com.example.event.dto.Event.EventCancelRequest;
+import com.example.event.dto.Job.BackgroundJobResponse;
 import com.example.event.model.Event;
+import com.example.event.model.InventoryMode;
 import com.example.event.model.Statut_Event;
 import com.example.event.service.AdminEventService;
+import com.example.event.service.EventCancellationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,6 +22,7 @@ import org.springframework.web.bind.annotation.*;
 public class AdminEventController {
 
     private final AdminEventService adminEventService;
+    private final EventCancellationService eventCancellationService;
 
     @GetMapping
     public ResponseEntity<Page<Event>> getAllEvents(
@@ -36,9 +42,29 @@ public class AdminEventController {
         return ResponseEntity.ok(updatedEvent);
     }
 
+    @PostMapping("/{eventId}/cancel")
+    public ResponseEntity<BackgroundJobResponse> cancelEvent(@PathVariable Long eventId,
+                                                             @RequestBody(required = false) EventCancelRequest request) {
+        return new ResponseEntity<>(eventCancellationService.cancel(eventId, request == null ? null : request.getReason()),
+                HttpStatus.ACCEPTED);
+    }
+
     @PutMapping("/{eventId}/featured")
     public ResponseEntity<Event> updateEventFeaturedStatus(@PathVariable Long eventId, @RequestBody boolean isFeatured) {
         Event updatedEvent = adminEventService.updateEventFeaturedStatus(eventId, isFeatured);
         return ResponseEntity.ok(updatedEvent);
     }
+
+    @PutMapping("/{eventId}/inventory-mode")
+    public ResponseEntity<Event> updateEventInventoryMode(@PathVariable Long eventId, @RequestBody InventoryMode inventoryMode,
+                                                         @RequestParam(required = false) Integer buckets) {
+        Event updatedEvent = adminEventService.updateEventInventoryMode(eventId, inventoryMode, buckets);
+        return ResponseEntity.ok(updatedEvent);
+    }
+
+    @PutMapping("/{eventId}/admission-rate")
+    public ResponseEntity<Event> updateEventAdmissionRate(@PathVariable Long eventId, @RequestBody(required = false) Integer admissionRate) {
+        Event updatedEvent = adminEventService.updateEventAdmissionRate(eventId, admissionRate);
+        return ResponseEntity.ok(updatedEvent);
+    }
 }
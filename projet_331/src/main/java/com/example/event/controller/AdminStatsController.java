@@ -1,6 +1,8 @@
 package com.example.event.controller;
 
 import com.example.event.dto.Stats.AdminDashboardStatsDto;
+import com.example.event.dto.Stats.HoldMetricsDto;
+import com.example.event.dto.Stats.OutboxMetricsDto;
 import com.example.event.service.AdminStatsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -20,4 +22,14 @@ public class AdminStatsController {
         AdminDashboardStatsDto stats = adminStatsService.getAdminDashboardStats();
         return ResponseEntity.ok(stats);
     }
+
+    @GetMapping("/holds")
+    public ResponseEntity<HoldMetricsDto> getHoldMetrics() {
+        return ResponseEntity.ok(adminStatsService.getHoldMetrics());
+    }
+
+    @GetMapping("/outbox")
+    public ResponseEntity<OutboxMetricsDto> getOutboxMetrics() {
+        return ResponseEntity.ok(adminStatsService.getOutboxMetrics());
+    }
 }
@@ -1,8 +1,11 @@
 package com.example.event.controller;
 
+import com.example.event.dto.Event.EventCancelRequest;
 import com.example.event.dto.Event.EventRequest;
+import com.example.event.service.EventCancellationService;
 import com.example.event.service.EventService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,6 +16,9 @@ public class EventController {
     @Autowired
     private EventService eventService;
 
+    @Autowired
+    private EventCancellationService eventCancellationService;
+
     @PostMapping
     public ResponseEntity<?> createEvent(@RequestBody EventRequest eventRequest){
         return eventService.createEvent(eventRequest);
@@ -33,6 +39,12 @@ public class EventController {
         return eventService.deleteEvent(id);
     }
 
+    // Annulation sans suppression : les inscrits sont traités en arrière-plan, avancement sur /job/{id}
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelEvent(@PathVariable Long id, @RequestBody(required = false) EventCancelRequest request){
+        return new ResponseEntity<>(eventCancellationService.cancel(id, request == null ? null : request.getReason()), HttpStatus.ACCEPTED);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateEvent(@RequestBody EventRequest eventRequest,@PathVariable Long id){
         return eventService.updateEvent(eventRequest,id);
@@ -0,0 +1,30 @@
+package com.example.event.controller;
+
+import com.example.event.dto.Subscription.GateStatusResponse;
+import com.example.event.service.GateService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/subscription/gate")
+@RequiredArgsConstructor
+public class GateController {
+
+    private final GateService gateService;
+
+    @PostMapping("/{eventId}")
+    public ResponseEntity<GateStatusResponse> openGate(@PathVariable Long eventId) {
+        return ResponseEntity.ok(gateService.open(eventId));
+    }
+
+    @GetMapping("/{eventId}")
+    public ResponseEntity<GateStatusResponse> gateStatus(@PathVariable Long eventId) {
+        return ResponseEntity.ok(gateService.status(eventId));
+    }
+
+    @DeleteMapping("/{eventId}")
+    public ResponseEntity<GateStatusResponse> closeGate(@PathVariable Long eventId) {
+        return ResponseEntity.ok(gateService.close(eventId));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.event.controller;
+
+import com.example.event.dto.Job.BackgroundJobResponse;
+import com.example.event.service.BackgroundJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/job")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final BackgroundJobService backgroundJobService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BackgroundJobResponse> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(backgroundJobService.getJob(id));
+    }
+
+    @GetMapping("/event/{eventId}")
+    public ResponseEntity<List<BackgroundJobResponse>> getEventJobs(@PathVariable Long eventId) {
+        return ResponseEntity.ok(backgroundJobService.getEventJobs(eventId));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.event.controller;
+
+import com.example.event.dto.Subscription.CheckInMergeResponse;
+import com.example.event.dto.Subscription.ManifestDeltaResponse;
+import com.example.event.service.ManifestService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/subscription/manifest")
+@RequiredArgsConstructor
+public class ManifestController {
+
+    private final ManifestService manifestService;
+
+    @GetMapping(value = "/{eventId}", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> exportManifest(@PathVariable Long eventId) {
+        return ResponseEntity.ok(manifestService.exportManifest(eventId));
+    }
+
+    @GetMapping("/{eventId}/changes")
+    public ResponseEntity<ManifestDeltaResponse> changesSince(@PathVariable Long eventId, @RequestParam long since) {
+        return ResponseEntity.ok(manifestService.changesSince(eventId, since));
+    }
+
+    @PostMapping("/{eventId}/check-ins")
+    public ResponseEntity<CheckInMergeResponse> mergeCheckIns(@PathVariable Long eventId, @RequestBody List<String> ticketCodes) {
+        return ResponseEntity.ok(manifestService.mergeCheckIns(eventId, ticketCodes));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.event.controller;
+
+import com.example.event.dto.Promo.PromoCodeRequest;
+import com.example.event.dto.Promo.PromoCodeResponse;
+import com.example.event.service.PromoCodeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/promo")
+@RequiredArgsConstructor
+public class PromoCodeController {
+
+    private final PromoCodeService promoCodeService;
+
+    @PostMapping
+    public ResponseEntity<PromoCodeResponse> create(@RequestBody PromoCodeRequest request) {
+        return new ResponseEntity<>(promoCodeService.create(request), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/event/{eventId}")
+    public ResponseEntity<List<PromoCodeResponse>> getByEvent(@PathVariable Long eventId) {
+        return ResponseEntity.ok(promoCodeService.getByEvent(eventId));
+    }
+
+    // Désactive le code : les réservations déjà faites gardent leur prix
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deactivate(@PathVariable Long id) {
+        promoCodeService.deactivate(id);
+        return ResponseEntity.ok("Promo code disabled.");
+    }
+}
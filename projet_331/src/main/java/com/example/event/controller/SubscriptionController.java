@@ -1,11 +1,30 @@
 package com.example.event.controller;
 
+import com.example.event.dto.Subscription.BatchValidationResult;
+import com.example.event.dto.Subscription.CartRequest;
+import com.example.event.dto.Subscription.CartResponse;
+import com.example.event.dto.Subscription.ComplimentaryRequest;
+import com.example.event.dto.Subscription.ComplimentaryResponse;
 import com.example.event.dto.Subscription.SubscriptionRequest;
 import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.service.AdmissionQueueService;
+import com.example.event.service.AttendanceService;
+import com.example.event.service.CartService;
+import com.example.event.service.ComplimentaryTicketService;
+import com.example.event.service.GateService;
+import com.example.event.service.IdempotencyService;
 import com.example.event.service.SubscriptionService;
+import com.example.event.utils.TransientRetry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/subscription")
@@ -14,9 +33,47 @@ public class SubscriptionController {
     @Autowired
     private SubscriptionService subscriptionService;
 
+    @Autowired
+    private TransientRetry transientRetry;
+
+    @Autowired
+    private AdmissionQueueService admissionQueueService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private GateService gateService;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private ComplimentaryTicketService complimentaryTicketService;
+
+    @Autowired
+    private CartService cartService;
+
     @PostMapping
-    public ResponseEntity<?> createSubscription( @RequestBody SubscriptionRequest  subscription) {
-        return subscriptionService.createSubscription(subscription);
+    public ResponseEntity<?> createSubscription( @RequestBody SubscriptionRequest  subscription,
+                                                 @RequestHeader(value = AdmissionQueueService.QUEUE_TOKEN_HEADER, required = false) String queueToken,
+                                                 @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        admissionQueueService.checkAdmitted(subscription.getId_event(), queueToken);
+        return idempotencyService.execute(idempotencyKey, "create-subscription",
+                () -> transientRetry.execute(() -> subscriptionService.createSubscription(subscription)));
+    }
+
+    // Panier : plusieurs catégories d'un même événement en une seule commande
+    @PostMapping("/cart")
+    public ResponseEntity<?> checkout(@RequestBody CartRequest cart,
+                                      @RequestHeader(value = AdmissionQueueService.QUEUE_TOKEN_HEADER, required = false) String queueToken,
+                                      @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        admissionQueueService.checkAdmitted(cart.getId_event(), queueToken);
+        return idempotencyService.execute(idempotencyKey, "cart-checkout", () -> transientRetry.execute(() -> {
+            CartResponse response = cartService.checkout(cart);
+            // 201 tant que des lignes payantes attendent leur paiement, comme POST /subscription
+            return new ResponseEntity<>(response, response.getMontant() > 0 ? HttpStatus.CREATED : HttpStatus.OK);
+        }));
     }
 
     @GetMapping("/{id}")
@@ -31,7 +88,7 @@ public class SubscriptionController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteSubscription(@PathVariable Long id) {
-        return subscriptionService.deleteSubscription(id);
+        return transientRetry.execute(() -> subscriptionService.deleteSubscription(id));
     }
 
     @GetMapping("/visitor/me")
@@ -44,15 +101,52 @@ public class SubscriptionController {
         return subscriptionService.getSubscriptionsByEvent(id);
     }
 
+    @GetMapping(value = "/event/{id}/attendance", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAttendance(@PathVariable Long id) {
+        return attendanceService.subscribe(id);
+    }
+
+    @PostMapping("/validate/batch")
+    public ResponseEntity<List<BatchValidationResult>> validateTickets(@RequestBody List<String> ticketCodes) {
+        return ResponseEntity.ok(subscriptionService.validateTickets(ticketCodes));
+    }
+
     @PostMapping("/validate/{ticketCode}")
     public ResponseEntity<SubscriptionResponse> validateTicket(@PathVariable String ticketCode) {
-        SubscriptionResponse response = subscriptionService.validateTicket(ticketCode);
+        // Answered from memory when the event's gate is open
+        SubscriptionResponse response = gateService.validate(ticketCode);
+        if (response == null) {
+            response = subscriptionService.validateTicket(ticketCode);
+        }
         return ResponseEntity.ok(response);
     }
 
+    // Billets offerts : un email par destinataire
+    @PostMapping("/complimentary")
+    public ResponseEntity<?> issueComplimentary(@RequestBody ComplimentaryRequest request,
+                                                @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "complimentary",
+                () -> ResponseEntity.ok(complimentaryTicketService.issue(request, true)));
+    }
+
+    // Billets offerts : ZIP des QR codes, envoyé au fil du rendu
+    @PostMapping("/complimentary/zip")
+    public ResponseEntity<?> issueComplimentaryZip(@RequestBody ComplimentaryRequest request,
+                                                   @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "complimentary-zip", () -> {
+            ComplimentaryResponse issued = complimentaryTicketService.issue(request, false);
+            StreamingResponseBody body = output -> complimentaryTicketService.writeZip(issued.getCodes(), output);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"tickets-" + issued.getEvent_id() + ".zip\"")
+                    .body(body);
+        });
+    }
+
     @PostMapping("/{id}/confirm-payment")
-    public ResponseEntity<SubscriptionResponse> confirmPayment(@PathVariable Long id) {
-        SubscriptionResponse response = subscriptionService.confirmPayment(id);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<SubscriptionResponse> confirmPayment(@PathVariable Long id,
+                                                               @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "confirm-payment:" + id,
+                () -> ResponseEntity.ok(subscriptionService.confirmPayment(id)));
     }
 }
@@ -0,0 +1,26 @@
+package com.example.event.controller;
+
+import com.example.event.dto.Subscription.QueueTicketResponse;
+import com.example.event.service.AdmissionQueueService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/subscription/queue")
+@RequiredArgsConstructor
+public class WaitingRoomController {
+
+    private final AdmissionQueueService admissionQueueService;
+
+    @PostMapping("/{eventId}")
+    public ResponseEntity<QueueTicketResponse> joinQueue(@PathVariable Long eventId) {
+        return ResponseEntity.ok(admissionQueueService.join(eventId));
+    }
+
+    @GetMapping("/{eventId}")
+    public ResponseEntity<QueueTicketResponse> queueStatus(@PathVariable Long eventId,
+                                                           @RequestHeader(AdmissionQueueService.QUEUE_TOKEN_HEADER) String queueToken) {
+        return ResponseEntity.ok(admissionQueueService.status(eventId, queueToken));
+    }
+}
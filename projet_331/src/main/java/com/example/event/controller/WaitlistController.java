@@ -0,0 +1,35 @@
+package com.example.event.controller;
+
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Waitlist.WaitlistResponse;
+import com.example.event.service.WaitlistService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/waitlist")
+@RequiredArgsConstructor
+public class WaitlistController {
+
+    private final WaitlistService waitlistService;
+
+    // Même corps que POST /subscription, quand celui-ci répond "Not enough places available"
+    @PostMapping
+    public ResponseEntity<WaitlistResponse> join(@RequestBody SubscriptionRequest request) {
+        return ResponseEntity.ok(waitlistService.join(request));
+    }
+
+    @GetMapping("/visitor/me")
+    public ResponseEntity<List<WaitlistResponse>> getMyRequests() {
+        return ResponseEntity.ok(waitlistService.getMyRequests());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> leave(@PathVariable Long id) {
+        waitlistService.leave(id);
+        return ResponseEntity.ok("Waitlist request cancelled.");
+    }
+}
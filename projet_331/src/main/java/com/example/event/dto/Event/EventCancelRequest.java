@@ -0,0 +1,13 @@
+package com.example.event.dto.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class EventCancelRequest {
+    // Facultatif : repris dans l'email envoyé aux inscrits
+    private String reason;
+}
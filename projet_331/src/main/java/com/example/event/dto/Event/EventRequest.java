@@ -17,6 +17,8 @@ public class EventRequest {
     private LocalDate debut;
     private LocalDate fin;
     private String profil_url;
+    // Plafond de places par visiteur, facultatif
+    private Integer maxPlacesPerVisitor;
 	public String getTitle() {
 		return title;
 	}
@@ -27,6 +27,7 @@ public class EventResponse {
     @Enumerated(EnumType.STRING)
     private Statut_Event statutEvent;
     private String profil_url;
+    private Integer maxPlacesPerVisitor;
     private List<TicketCategoryResponse> ticketCategoryList;
     private List<ImageResponse> images;
 
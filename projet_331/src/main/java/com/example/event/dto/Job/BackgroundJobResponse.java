@@ -0,0 +1,27 @@
+package com.example.event.dto.Job;
+
+import com.example.event.model.JobKind;
+import com.example.event.model.Statut_Job;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackgroundJobResponse {
+    private Long id;
+    private JobKind kind;
+    private Statut_Job statut;
+    private Long event_id;
+    private long total;
+    private long processed;
+    // Avancement en pourcentage (100 quand il n'y a rien à traiter)
+    private int progress;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
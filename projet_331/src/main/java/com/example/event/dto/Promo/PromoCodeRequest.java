@@ -0,0 +1,23 @@
+package com.example.event.dto.Promo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromoCodeRequest {
+    private String code;
+    private Long id_event;
+    // Facultatif : le code ne vaut que pour cette catégorie
+    private Long id_ticket;
+    private Integer percentOff;
+    private Integer amountOff;
+    private Integer maxRedemptions;
+    private Integer perVisitorLimit;
+    private LocalDateTime validFrom;
+    private LocalDateTime validUntil;
+}
@@ -0,0 +1,25 @@
+package com.example.event.dto.Promo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromoCodeResponse {
+    private Long id;
+    private String code;
+    private Long event_id;
+    private Long ticket_id;
+    private Integer percentOff;
+    private Integer amountOff;
+    private Integer maxRedemptions;
+    private int redeemed;
+    private Integer perVisitorLimit;
+    private LocalDateTime validFrom;
+    private LocalDateTime validUntil;
+    private boolean active;
+}
@@ -0,0 +1,27 @@
+package com.example.event.dto.Stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceDto {
+    private Long event_id;
+    // Billets scannés / personnes entrées (somme des places)
+    private long tickets;
+    private long places;
+    private List<CategoryAttendance> categories;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryAttendance {
+        private String nom_ticket;
+        private long tickets;
+        private long places;
+    }
+}
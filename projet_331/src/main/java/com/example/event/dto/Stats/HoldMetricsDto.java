@@ -0,0 +1,18 @@
+package com.example.event.dto.Stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldMetricsDto {
+    private long activeHolds;
+    private long expiredHoldsLastSweep;
+    private long seatsReleasedLastSweep;
+    private long seatsReleasedTotal;
+    private LocalDateTime lastSweepAt;
+}
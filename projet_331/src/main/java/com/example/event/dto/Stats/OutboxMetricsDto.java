@@ -0,0 +1,19 @@
+package com.example.event.dto.Stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMetricsDto {
+    // Emails en attente d'envoi (profondeur de la file)
+    private long pending;
+    // Dead letters : abandonnés après toutes les tentatives
+    private long failed;
+    // Tâches dans la file du pool de workers de ce nœud
+    private int workerQueue;
+    private long sentSinceStart;
+    private long failedAttemptsSinceStart;
+}
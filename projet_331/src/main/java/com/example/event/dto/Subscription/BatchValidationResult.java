@@ -0,0 +1,17 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchValidationResult {
+    private String codeticket;
+    private TicketScanResult result;
+    // Renseignés seulement pour un billet reconnu
+    private Long subscription_id;
+    private Integer places;
+    private String nom_ticket;
+}
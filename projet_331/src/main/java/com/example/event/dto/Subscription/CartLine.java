@@ -0,0 +1,13 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLine {
+    private Long id_ticket;
+    private int places;
+}
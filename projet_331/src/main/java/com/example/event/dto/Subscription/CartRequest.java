@@ -0,0 +1,22 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartRequest {
+    private Long id_event;
+    // Une ligne par catégorie ; les lignes d'une même catégorie sont regroupées
+    private List<CartLine> lines;
+    // Code promo facultatif, appliqué aux lignes de sa catégorie (ou à toutes)
+    private String promo_code;
+
+    public CartRequest(Long id_event, List<CartLine> lines) {
+        this(id_event, lines, null);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartResponse {
+    private Long event_id;
+    // Montant total, réglé ligne par ligne via confirm-payment
+    private int montant;
+    private List<SubscriptionResponse> subscriptions;
+}
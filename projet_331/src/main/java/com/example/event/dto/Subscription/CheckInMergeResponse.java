@@ -0,0 +1,17 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckInMergeResponse {
+    private Long event_id;
+    // Billets passés à UTILISE par cet envoi
+    private int merged;
+    // Déjà scannés ailleurs : rien à faire
+    private int alreadyUsed;
+    private int unknown;
+}
@@ -0,0 +1,20 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ComplimentaryRequest {
+    private Long id_ticket;
+    // Nombre de billets ; par défaut un par destinataire
+    private Integer count;
+    // Places par billet (1 par défaut)
+    private Integer places;
+    // Emails des bénéficiaires (facultatif pour le ZIP)
+    private List<String> recipients;
+}
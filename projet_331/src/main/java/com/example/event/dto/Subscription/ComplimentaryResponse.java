@@ -0,0 +1,20 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ComplimentaryResponse {
+    private Long event_id;
+    private Long ticket_id;
+    private int issued;
+    private int places;
+    // Emails mis dans la file d'envoi
+    private int emailed;
+    private List<String> codes;
+}
@@ -0,0 +1,17 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GateStatusResponse {
+    private Long event_id;
+    private boolean open;
+    private int tickets;
+    private long checkedIn;
+    // Entrées validées en mémoire, pas encore écrites en base
+    private long pendingFlush;
+}
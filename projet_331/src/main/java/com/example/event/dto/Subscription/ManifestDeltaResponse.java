@@ -0,0 +1,21 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ManifestDeltaResponse {
+    private Long event_id;
+    // Curseur à renvoyer dans "since" au prochain appel
+    private long cursor;
+    // Clés des codes (hash 64 bits en hexadécimal, comme dans le manifeste)
+    private List<String> added;
+    private List<String> removed;
+    private List<String> checkedIn;
+    private boolean more;
+}
@@ -0,0 +1,17 @@
+package com.example.event.dto.Subscription;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueTicketResponse {
+    private Long event_id;
+    // A renvoyer dans l'en-tête X-Queue-Token lors de la réservation
+    private String token;
+    private long position;
+    private boolean admitted;
+    private long retryAfterMs;
+}
@@ -10,4 +10,10 @@ public class SubscriptionRequest {
     private int places;
     private Long id_event;
     private Long id_ticket;
+    // Code promo facultatif
+    private String promo_code;
+
+    public SubscriptionRequest(int places, Long id_event, Long id_ticket) {
+        this(places, id_event, id_ticket, null);
+    }
 }
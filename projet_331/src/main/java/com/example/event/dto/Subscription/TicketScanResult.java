@@ -0,0 +1,9 @@
+package com.example.event.dto.Subscription;
+
+public enum TicketScanResult {
+    OK,
+    ALREADY_USED,
+    // Code inconnu, falsifié, ou billet non payé / annulé
+    INVALID,
+    WRONG_ORGANIZER
+}
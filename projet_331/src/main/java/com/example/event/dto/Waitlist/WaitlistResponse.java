@@ -0,0 +1,24 @@
+package com.example.event.dto.Waitlist;
+
+import com.example.event.model.Statut_Waitlist;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistResponse {
+    private Long id;
+    private Long event_id;
+    private Long ticket_id;
+    private int places;
+    private Statut_Waitlist statut;
+    // Entrées en attente devant celle-ci (null une fois sortie de la file)
+    private Long position;
+    private Long subscription_id;
+    private LocalDateTime createdAt;
+    private LocalDateTime promotedAt;
+}
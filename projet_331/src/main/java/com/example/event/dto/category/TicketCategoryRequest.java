@@ -11,5 +11,6 @@ public class TicketCategoryRequest{
 
     private String intitule;
     private int prix;
+    private Integer capacity;
     private Long id_event;
 }
@@ -13,4 +13,9 @@ public class TicketCategoryResponse{
     private String intitule;
     private int prix;
     private String event_name;
+    private Integer capacity;
+    private int sold;
+    // null quand la catégorie n'a pas de quota propre
+    private Integer available;
+    private boolean soldOut;
 }
@@ -0,0 +1,66 @@
+package com.example.event.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Long-running task processed in chunks outside the request. Progress and the keyset cursor are
+ * committed with each chunk, so a job interrupted by a restart resumes where it stopped.
+ */
+@Data
+@Entity
+@Table(name = "background_job", indexes = {
+        @Index(name = "idx_background_job_statut", columnList = "statut, heartbeat_at"),
+        @Index(name = "idx_background_job_event", columnList = "event_id")
+})
+public class BackgroundJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobKind kind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Statut_Job statut = Statut_Job.EN_ATTENTE;
+
+    private Long eventId;
+
+    // Utilisateur qui a déclenché la tâche (seul lui et les admins en voient l'avancement)
+    private Long requestedBy;
+
+    @Column(length = 500)
+    private String subject;
+
+    // Paramètres de la tâche (corps du message pour une diffusion)
+    @Column(length = 4000)
+    private String payload;
+
+    private long total;
+
+    private long processed;
+
+    // Dernière clé traitée (pagination par clé)
+    private Long lastKey;
+
+    // Jeton du nœud qui exécute la tâche : un nœud dépossédé ne peut plus enregistrer d'avancement
+    @Column(length = 36)
+    private String runnerId;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    // Mis à jour à chaque lot : une tâche EN_COURS sans signe de vie est reprise par un autre nœud
+    private LocalDateTime heartbeatAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,16 @@
+package com.example.event.model;
+
+public enum EmailKind {
+    // Billet avec QR code après réservation gratuite ou paiement
+    TICKET,
+    // Rappel la veille de l'événement, avec le QR code du billet
+    REMINDER,
+    // Lien de réinitialisation dans body, mis en page par le modèle au moment de l'envoi
+    PASSWORD_RESET,
+    // Confirmation unique d'un panier : ids des inscriptions dans body, un QR code par billet réglé
+    ORDER,
+    // Places libérées pour un visiteur de la liste d'attente, à régler avant la fin de la réservation
+    WAITLIST,
+    // Sujet et corps déjà rédigés (diffusion d'un changement, annulation d'un événement...)
+    SIMPLE
+}
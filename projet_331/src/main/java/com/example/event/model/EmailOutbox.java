@@ -0,0 +1,54 @@
+package com.example.event.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Email waiting to be delivered. Rows are written in the transaction that triggers the email
+ * and delivered after commit by {@link com.example.event.service.EmailOutboxService}.
+ */
+@Data
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_due", columnList = "statut, next_attempt_at")
+})
+public class EmailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EmailKind kind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Statut_Email statut = Statut_Email.EN_ATTENTE;
+
+    private Long subscriptionId;
+
+    private String recipient;
+
+    // Pour SIMPLE uniquement : les autres types sont rendus au moment de l'envoi
+    @Column(length = 500)
+    private String subject;
+
+    @Column(length = 10000)
+    private String body;
+
+    private int attempts;
+
+    // Prochaine tentative, ou fin du bail d'un worker en cours d'envoi
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+}
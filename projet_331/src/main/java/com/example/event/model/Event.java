@@ -4,12 +4,17 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Data
 @Entity
+// Only changed columns are written, so saving an event never overwrites places updated by guarded queries
+@DynamicUpdate
+// Recherche par plage de dates (rappels de la veille)
+@Table(indexes = @Index(name = "idx_event_debut", columnList = "debut"))
 public class Event {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +29,13 @@ public class Event {
     @Enumerated(EnumType.STRING)
     private Statut_Event statut;
     private boolean featured = false;
+    // Stratégie de réservation des places (null = DATABASE)
+    @Enumerated(EnumType.STRING)
+    private InventoryMode inventoryMode;
+    // Admissions par seconde de la salle d'attente (null = pas de file d'attente)
+    private Integer admissionRate;
+    // Places maximum par visiteur (null = app.booking.max-places-per-visitor)
+    private Integer maxPlacesPerVisitor;
 
     @ManyToOne
     @JoinColumn(name="organizer_profile_id")
@@ -0,0 +1,38 @@
+package com.example.event.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Slice of an event's remaining places. Hot events spread their stock over several rows
+ * so that concurrent buyers lock different rows.
+ */
+@Data
+@Entity
+@Table(name = "event_seat_bucket", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"event_id", "bucket_index"})
+})
+public class EventSeatBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "event_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Event event;
+
+    @Column(name = "bucket_index", nullable = false)
+    private int bucketIndex;
+
+    private int places;
+
+    // Fermée à l'annulation de l'événement : plus aucune place n'en sort
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean closed;
+}
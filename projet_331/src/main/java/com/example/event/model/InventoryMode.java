@@ -0,0 +1,7 @@
+package com.example.event.model;
+
+public enum InventoryMode {
+    DATABASE,
+    MEMORY_LEDGER,
+    SEAT_BUCKETS
+}
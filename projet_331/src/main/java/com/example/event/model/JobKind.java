@@ -0,0 +1,10 @@
+package com.example.event.model;
+
+public enum JobKind {
+    // Prévenir tous les inscrits d'un changement de date ou de lieu
+    EVENT_BROADCAST,
+    // Rappels de la veille aux inscrits d'un événement
+    EVENT_REMINDER,
+    // Annulation d'un événement : inscriptions annulées par lots et inscrits prévenus
+    EVENT_CANCELLATION
+}
@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 @Entity
 @NoArgsConstructor
 public class PasswordResetToken {
-    private static final int EXPIRATION_TIME_MINUTES = 60 * 24; // 24 hours
+    public static final int EXPIRATION_TIME_MINUTES = 60 * 24; // 24 hours
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
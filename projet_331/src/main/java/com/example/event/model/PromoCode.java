@@ -0,0 +1,52 @@
+package com.example.event.model;
+
+import com.fasterxml.jackson.annotation.JsonBackReference;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Discount code on the tickets of an event (or of one of its categories).
+ */
+@Data
+@Entity
+@DynamicUpdate
+@Table(name = "promo_code", indexes = @Index(columnList = "event_id"))
+public class PromoCode {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    // Toujours en majuscules
+    @Column(unique = true, nullable = false, length = 64)
+    private String code;
+    // Remise en pourcentage ou en montant par place (l'un des deux)
+    private Integer percentOff;
+    private Integer amountOff;
+    // Utilisations maximum (null = illimité)
+    private Integer maxRedemptions;
+    // Utilisations, tenu à jour par des requêtes gardées uniquement (jamais par l'entité)
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private int redeemed;
+    // Utilisations maximum par visiteur (null = illimité)
+    private Integer perVisitorLimit;
+    private LocalDateTime validFrom;
+    private LocalDateTime validUntil;
+    private boolean active = true;
+    private LocalDateTime createdAt;
+
+    @ManyToOne
+    @JoinColumn(name = "event_id")
+    @JsonBackReference
+    private Event event;
+
+    // null = toutes les catégories de l'événement
+    @ManyToOne
+    @JoinColumn(name = "ticket_id")
+    @JsonBackReference
+    private TicketCategory ticket;
+}
@@ -0,0 +1,8 @@
+package com.example.event.model;
+
+public enum Statut_Email {
+    EN_ATTENTE,
+    ENVOYE,
+    // Abandonné après le nombre maximal de tentatives (dead letter)
+    ECHOUE
+}
@@ -3,5 +3,7 @@ package com.example.event.model;
 public enum Statut_Event {
     EN_COURS,
     TERMINE,
-    PROCHAINEMENT
+    PROCHAINEMENT,
+    // Annulé : les inscriptions sont annulées ou à rembourser par EventCancellationService
+    ANNULE
 }
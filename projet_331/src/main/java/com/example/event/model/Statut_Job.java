@@ -0,0 +1,8 @@
+package com.example.event.model;
+
+public enum Statut_Job {
+    EN_ATTENTE,
+    EN_COURS,
+    TERMINE,
+    ECHOUE
+}
@@ -4,5 +4,9 @@ public enum Statut_Subscription {
     ECHOUE,
     REUSSI,
     EN_ATTENTE,
-    UTILISE
+    UTILISE,
+    // Événement annulé : billet payé en attente de remboursement
+    A_REMBOURSER,
+    // Événement annulé : billet gratuit ou réservation non payée
+    ANNULE
 }
@@ -0,0 +1,10 @@
+package com.example.event.model;
+
+public enum Statut_Waitlist {
+    // Dans la file, par ordre d'arrivée
+    EN_ATTENTE,
+    // Une inscription a été créée sur des places libérées
+    PROMU,
+    // Retiré par le visiteur
+    ANNULE
+}
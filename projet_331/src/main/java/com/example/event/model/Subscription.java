@@ -3,12 +3,18 @@ package com.example.event.model;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 @Data
 @Entity
+@DynamicUpdate
+@Table(indexes = {
+        @Index(columnList = "inventory_pending"),
+        @Index(columnList = "statut, hold_expires_at"),
+        @Index(columnList = "event_id, visitor_profile_id")
+})
 public class Subscription {
 
     @Id
@@ -19,6 +25,17 @@ public class Subscription {
     private LocalDateTime createdAt;
     @Enumerated(EnumType.STRING)
     private Statut_Subscription statut;
+    // Places prises dans le ledger mémoire et pas encore reportées sur Event.places
+    @Column(columnDefinition = "boolean default false", updatable = false)
+    private boolean inventoryPending;
+    // Fin de la réservation des places d'un billet payant non encore réglé
+    private LocalDateTime holdExpiresAt;
+    // Rappel de la veille mis dans la file d'envoi (jamais deux fois)
+    private LocalDateTime reminderSentAt;
+    // Destinataire d'un billet offert sans compte visiteur
+    private String holderEmail;
+    // Code promo appliqué à montant, rendu à l'annulation
+    private Long promoCodeId;
 
     @ManyToOne
     @JoinColumn(name = "event_id")
@@ -34,11 +51,8 @@ public class Subscription {
     @JoinColumn(name = "ticket_id")
     @JsonBackReference
     private TicketCategory ticket;
-    //ticket
+    //ticket, généré par TicketCodeGenerator
+    @Column(unique = true)
     private String codeticket;
-    //Generation du ticket
-    public String generateTicketCode() {
-        return "TICKET-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
 
 }
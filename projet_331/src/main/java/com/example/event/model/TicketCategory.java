@@ -4,12 +4,15 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.List;
 
 
 @Data
 @Entity
+@DynamicUpdate
 public class TicketCategory {
 
     @Id
@@ -17,7 +20,12 @@ public class TicketCategory {
     private Long id;
     private String intitule;
     private int prix;
-
+    // Quota propre à la catégorie (null = seulement limité par les places de l'événement)
+    private Integer capacity;
+    // Places vendues, tenu à jour par des requêtes gardées uniquement (jamais par l'entité)
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private int sold;
 
 
     @ManyToOne
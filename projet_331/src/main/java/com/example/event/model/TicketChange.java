@@ -0,0 +1,44 @@
+package com.example.event.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only log of changes to the set of valid tickets of an event. The id is the cursor offline
+ * scanners pull from. Rows keep the event id and the code hash only, so they outlive the subscription.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "ticket_change", indexes = {
+        @Index(name = "idx_ticket_change_event_cursor", columnList = "event_id, id")
+})
+public class TicketChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    // GateIndex.keyOf(codeticket)
+    @Column(name = "code_key", nullable = false)
+    private long codeKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TicketChangeKind kind;
+
+    private LocalDateTime createdAt;
+
+    public TicketChange(Long eventId, long codeKey, TicketChangeKind kind) {
+        this.eventId = eventId;
+        this.codeKey = codeKey;
+        this.kind = kind;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.event.model;
+
+public enum TicketChangeKind {
+    // Billet devenu valide (gratuit ou payé)
+    ADDED,
+    // Billet supprimé ou annulé
+    REMOVED,
+    // Billet scanné à l'entrée
+    CHECKED_IN
+}
@@ -0,0 +1,46 @@
+package com.example.event.model;
+
+import com.fasterxml.jackson.annotation.JsonBackReference;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@DynamicUpdate
+@Table(name = "waitlist_entry", indexes = {
+        // Tête de file d'un événement : les premières entrées en attente, par id
+        @Index(name = "idx_waitlist_event_statut", columnList = "event_id, statut, id"),
+        @Index(columnList = "visitor_profile_id")
+})
+public class WaitlistEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private int places;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Statut_Waitlist statut;
+    private LocalDateTime createdAt;
+    private LocalDateTime promotedAt;
+    // Inscription créée à la promotion
+    private Long subscriptionId;
+
+    @ManyToOne
+    @JoinColumn(name = "event_id")
+    @JsonBackReference
+    private Event event;
+
+    @ManyToOne
+    @JoinColumn(name = "visitor_profile_id")
+    @JsonBackReference
+    private VisitorProfile visitorProfile;
+
+    @ManyToOne
+    @JoinColumn(name = "ticket_id")
+    @JsonBackReference
+    private TicketCategory ticket;
+}
@@ -0,0 +1,50 @@
+package com.example.event.repository;
+
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.JobKind;
+import com.example.event.model.Statut_Job;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BackgroundJobRepository extends JpaRepository<BackgroundJob, Long> {
+
+    List<BackgroundJob> findByEventIdOrderByIdDesc(Long eventId);
+
+    boolean existsByKindAndEventIdAndStatutIn(JobKind kind, Long eventId, List<Statut_Job> statuts);
+
+    // Tâches à (re)lancer : jamais démarrées, ou abandonnées par un nœud arrêté
+    @Query("SELECT j.id FROM BackgroundJob j WHERE j.statut = 'EN_ATTENTE' OR " +
+           "(j.statut = 'EN_COURS' AND j.heartbeatAt < :staleBefore) ORDER BY j.id")
+    List<Long> findRunnable(@Param("staleBefore") LocalDateTime staleBefore);
+
+    // Un seul nœud gagne la tâche ; le jeton change à chaque reprise
+    @Modifying
+    @Query("UPDATE BackgroundJob j SET j.statut = 'EN_COURS', j.runnerId = :runnerId, j.heartbeatAt = :now, " +
+           "j.startedAt = COALESCE(j.startedAt, :now) WHERE j.id = :id AND " +
+           "(j.statut = 'EN_ATTENTE' OR (j.statut = 'EN_COURS' AND j.heartbeatAt < :staleBefore))")
+    int claim(@Param("id") Long id, @Param("runnerId") String runnerId,
+              @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE BackgroundJob j SET j.total = :total, j.heartbeatAt = :now " +
+           "WHERE j.id = :id AND j.runnerId = :runnerId AND j.statut = 'EN_COURS'")
+    int updateTotal(@Param("id") Long id, @Param("runnerId") String runnerId,
+                    @Param("total") long total, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE BackgroundJob j SET j.processed = j.processed + :processed, j.lastKey = :lastKey, j.heartbeatAt = :now " +
+           "WHERE j.id = :id AND j.runnerId = :runnerId AND j.statut = 'EN_COURS'")
+    int checkpoint(@Param("id") Long id, @Param("runnerId") String runnerId, @Param("processed") long processed,
+                   @Param("lastKey") Long lastKey, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE BackgroundJob j SET j.statut = :statut, j.lastError = :error, j.finishedAt = :now " +
+           "WHERE j.id = :id AND j.runnerId = :runnerId AND j.statut = 'EN_COURS'")
+    int finish(@Param("id") Long id, @Param("runnerId") String runnerId, @Param("statut") Statut_Job statut,
+               @Param("error") String error, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,37 @@
+package com.example.event.repository;
+
+import com.example.event.model.EmailOutbox;
+import com.example.event.model.Statut_Email;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    long countByStatut(Statut_Email statut);
+
+    // SKIP LOCKED : plusieurs nœuds peuvent relever la file sans se bloquer
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM EmailOutbox o WHERE o.statut = 'EN_ATTENTE' AND o.nextAttemptAt <= :now ORDER BY o.nextAttemptAt")
+    List<EmailOutbox> lockDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Lignes tout juste validées, sauf celles déjà prises par le poller : le bail est ensuite prolongé
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM EmailOutbox o WHERE o.id IN :ids AND o.statut = 'EN_ATTENTE' AND o.nextAttemptAt <= :now")
+    List<EmailOutbox> lockDueByIds(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox o SET o.nextAttemptAt = :leaseUntil WHERE o.id IN :ids")
+    int extendLease(@Param("ids") List<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+}
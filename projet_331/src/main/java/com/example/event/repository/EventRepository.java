@@ -1,13 +1,27 @@
 package com.example.event.repository;
 
 import com.example.event.model.Event;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param; // NOUVEL IMPORT NÉCESSAIRE
 import java.util.List;
 
 public interface EventRepository extends JpaRepository<Event,Long> {
 
+    List<Event> findByAdmissionRateIsNotNull();
+
+    // Plage sur l'index idx_event_debut
+    @Query("SELECT e.id FROM Event e WHERE e.debut BETWEEN :from AND :to AND e.statut <> 'ANNULE'")
+    List<Long> findIdsStartingBetween(@Param("from") java.time.LocalDate from, @Param("to") java.time.LocalDate to);
+
+    // Un seul appel fait passer l'événement à ANNULE et lance la tâche d'annulation
+    @Modifying
+    @Query("UPDATE Event e SET e.statut = 'ANNULE' WHERE e.id = :id AND e.statut <> 'ANNULE'")
+    int markCancelled(@Param("id") Long id);
+
     // Interfaces pour le DTO de performance
     public interface LocationPerformanceDTO {
         String getLieu();
@@ -27,6 +41,29 @@ public interface EventRepository extends JpaRepository<Event,Long> {
     }
 
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Event e WHERE e.id = :eventId")
+    java.util.Optional<Event> findByIdForUpdate(@Param("eventId") Long eventId);
+
+    // Réservation atomique des places : une seule requête gardée, échoue (0 ligne) si le stock est insuffisant.
+    // Jamais sur un événement annulé : relu sous le verrou de ligne posé par markCancelled
+    @Modifying
+    @Query("UPDATE Event e SET e.places = e.places - :places WHERE e.id = :eventId AND e.places >= :places " +
+           "AND e.statut <> 'ANNULE'")
+    int decrementPlaces(@Param("eventId") Long eventId, @Param("places") int places);
+
+    // Restitution atomique des places (annulation d'une inscription)
+    @Modifying
+    @Query("UPDATE Event e SET e.places = e.places + :places WHERE e.id = :eventId")
+    int incrementPlaces(@Param("eventId") Long eventId, @Param("places") int places);
+
+
+    // Places restantes moins celles déjà prises dans le ledger mémoire (lecture en une seule requête)
+    @Query(value = "SELECT e.places - COALESCE((SELECT SUM(s.places) FROM subscription s " +
+                   "WHERE s.event_id = e.id AND s.inventory_pending = true), 0) FROM event e WHERE e.id = :eventId", nativeQuery = true)
+    Long findPlacesNetOfPendingInventory(@Param("eventId") Long eventId);
+
+
     // Statistiques globales 
     @Query("SELECT e.statut, COUNT(e) FROM Event e GROUP BY e.statut")
     List<Object[]> countEventsByStatus();
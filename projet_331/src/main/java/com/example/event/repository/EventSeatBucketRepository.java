@@ -0,0 +1,42 @@
+package com.example.event.repository;
+
+import com.example.event.model.EventSeatBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface EventSeatBucketRepository extends JpaRepository<EventSeatBucket, Long> {
+
+    long countByEventId(Long eventId);
+
+    // Lecture sans verrou : candidats pour une réservation
+    @Query("SELECT b.bucketIndex FROM EventSeatBucket b WHERE b.event.id = :eventId AND b.places >= :places")
+    List<Integer> findBucketIndexesWithAtLeast(@Param("eventId") Long eventId, @Param("places") int places);
+
+    @Modifying
+    @Query("UPDATE EventSeatBucket b SET b.places = b.places - :places " +
+           "WHERE b.event.id = :eventId AND b.bucketIndex = :bucketIndex AND b.places >= :places AND b.closed = false")
+    int decrementPlaces(@Param("eventId") Long eventId, @Param("bucketIndex") int bucketIndex, @Param("places") int places);
+
+    @Modifying
+    @Query("UPDATE EventSeatBucket b SET b.places = b.places + :places WHERE b.event.id = :eventId AND b.bucketIndex = :bucketIndex")
+    int incrementPlaces(@Param("eventId") Long eventId, @Param("bucketIndex") int bucketIndex, @Param("places") int places);
+
+    @Query("SELECT COALESCE(SUM(b.places), 0) FROM EventSeatBucket b WHERE b.event.id = :eventId")
+    long sumPlacesByEventId(@Param("eventId") Long eventId);
+
+    // Attend les réservations en cours sur chaque tranche (verrou de ligne), puis refuse les suivantes
+    @Modifying
+    @Query("UPDATE EventSeatBucket b SET b.closed = true WHERE b.event.id = :eventId")
+    int closeAll(@Param("eventId") Long eventId);
+
+    // Rééquilibrage : verrouille toutes les tranches de l'événement, toujours dans le même ordre
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM EventSeatBucket b WHERE b.event.id = :eventId ORDER BY b.bucketIndex")
+    List<EventSeatBucket> lockAllByEventId(@Param("eventId") Long eventId);
+}
@@ -0,0 +1,38 @@
+package com.example.event.repository;
+
+import com.example.event.model.PromoCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PromoCodeRepository extends JpaRepository<PromoCode, Long> {
+
+    Optional<PromoCode> findByCode(String code);
+
+    List<PromoCode> findByEventIdOrderByIdDesc(Long eventId);
+
+    // Codes encore utilisables : chargés dans l'index au démarrage
+    @Query("SELECT p FROM PromoCode p WHERE p.active = true AND (p.validUntil IS NULL OR p.validUntil > :now)")
+    List<PromoCode> findUsable(@Param("now") LocalDateTime now);
+
+    // Utilisation atomique du code : 0 ligne s'il est épuisé ou désactivé
+    @Modifying
+    @Query("UPDATE PromoCode p SET p.redeemed = p.redeemed + :count WHERE p.id = :id AND p.active = true " +
+           "AND (p.maxRedemptions IS NULL OR p.redeemed + :count <= p.maxRedemptions)")
+    int redeem(@Param("id") Long id, @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE PromoCode p SET p.redeemed = CASE WHEN p.redeemed >= :count THEN p.redeemed - :count ELSE 0 END WHERE p.id = :id")
+    int release(@Param("id") Long id, @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE PromoCode p SET p.active = false WHERE p.id = :id")
+    int deactivate(@Param("id") Long id);
+}
@@ -1,20 +1,115 @@
 package com.example.event.repository;
 
 import com.example.event.dto.Stats.SubscriptionCountDTO;
+import com.example.event.model.Statut_Subscription;
 import com.example.event.model.Subscription;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface SubscriptionRepository extends JpaRepository<Subscription,Long> {
-    boolean existsByCodeticket(String codeticket);
+
+    // Projection légère chargée à l'ouverture du mode portique
+    interface GateTicketView {
+        Long getId();
+        String getCodeticket();
+        int getPlaces();
+        Statut_Subscription getStatut();
+        String getTicketName();
+    }
 
     Optional<Subscription> findByCodeticket(String codeticket);
 
+    // Ids des billets insérés par lot JDBC (les clés générées ne sont pas remontées)
+    @Query("SELECT s.id FROM Subscription s WHERE s.codeticket IN :codes ORDER BY s.id")
+    List<Long> findIdsByCodes(@Param("codes") List<String> codes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Subscription s WHERE s.id = :id")
+    Optional<Subscription> findByIdForUpdate(@Param("id") Long id);
+
+    // Réservations expirées, verrouillées ; les lignes déjà prises par un autre nœud sont sautées
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM Subscription s WHERE s.statut = 'EN_ATTENTE' AND " +
+           "(s.holdExpiresAt < :now OR (s.holdExpiresAt IS NULL AND s.createdAt < :legacyCutoff)) ORDER BY s.id")
+    List<Subscription> lockExpiredHolds(@Param("now") LocalDateTime now,
+                                        @Param("legacyCutoff") LocalDateTime legacyCutoff,
+                                        Pageable pageable);
+
+    @Query("SELECT COUNT(s) FROM Subscription s WHERE s.statut = 'EN_ATTENTE' AND s.holdExpiresAt >= :now")
+    long countActiveHolds(@Param("now") LocalDateTime now);
+
+    // Ledger mémoire : inscriptions dont les places ne sont pas encore reportées sur Event.places
+    @Query("SELECT DISTINCT s.event.id FROM Subscription s WHERE s.inventoryPending = true")
+    List<Long> findEventIdsWithPendingInventory();
+
+    @Query(value = "SELECT id, places FROM subscription WHERE event_id = :eventId AND inventory_pending = true " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockPendingInventory(@Param("eventId") Long eventId, @Param("limit") int limit);
+
+    @Query("SELECT s.id AS id, s.codeticket AS codeticket, s.places AS places, s.statut AS statut, t.intitule AS ticketName " +
+           "FROM Subscription s LEFT JOIN s.ticket t WHERE s.event.id = :eventId AND s.statut IN ('REUSSI', 'UTILISE')")
+    List<GateTicketView> findGateTickets(@Param("eventId") Long eventId);
+
+    // Validation groupée : tout ce qu'il faut pour répondre, sans charger les entités
+    interface ScannedTicketView {
+        Long getId();
+        String getCodeticket();
+        int getPlaces();
+        Statut_Subscription getStatut();
+        String getTicketName();
+        Long getEventId();
+        Long getOrganizerId();
+    }
+
+    @Query("SELECT s.id AS id, s.codeticket AS codeticket, s.places AS places, s.statut AS statut, " +
+           "t.intitule AS ticketName, e.id AS eventId, o.id AS organizerId " +
+           "FROM Subscription s JOIN s.event e LEFT JOIN e.organizerProfile o LEFT JOIN s.ticket t " +
+           "WHERE s.codeticket IN :codes")
+    List<ScannedTicketView> findScannedTickets(@Param("codes") List<String> codes);
+
+    // Verrouille uniquement les lignes subscription (pas l'événement) encore valides
+    @Query(value = "SELECT id FROM subscription WHERE id IN (:ids) AND statut = 'REUSSI' ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockValidIds(@Param("ids") List<Long> ids);
+
+    interface CategoryAttendanceView {
+        String getTicketName();
+        long getTickets();
+        long getPlaces();
+    }
+
+    @Query("SELECT t.intitule AS ticketName, COUNT(s) AS tickets, COALESCE(SUM(s.places), 0) AS places " +
+           "FROM Subscription s LEFT JOIN s.ticket t WHERE s.event.id = :eventId AND s.statut = 'UTILISE' GROUP BY t.intitule")
+    List<CategoryAttendanceView> countCheckInsByCategory(@Param("eventId") Long eventId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Subscription s WHERE s.event.id = :eventId AND s.codeticket IN :codes")
+    List<Subscription> lockByEventAndCodes(@Param("eventId") Long eventId, @Param("codes") List<String> codes);
+
+    @Modifying
+    @Query("UPDATE Subscription s SET s.statut = 'UTILISE' WHERE s.id IN :ids AND s.statut = 'REUSSI'")
+    int markUsed(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Subscription s SET s.inventoryPending = false WHERE s.id IN :ids")
+    int clearInventoryPending(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Subscription s SET s.inventoryPending = false WHERE s.id = :id AND s.inventoryPending = true")
+    int clearInventoryPendingIfSet(@Param("id") Long id);
+
 
 
     //METHODES STATISTIQUES 
@@ -37,4 +132,90 @@ public interface SubscriptionRepository extends JpaRepository<Subscription,Long>
     @Query("SELECT SUM(s.montant) FROM Subscription s WHERE s.statut = 'REUSSI'")
     Optional<Long> sumSuccessfulMontant();
 
+    // Places occupées (payées, en attente ou utilisées) d'une catégorie : initialisation du compteur sold
+    @Query("SELECT COALESCE(SUM(s.places), 0) FROM Subscription s WHERE s.ticket.id = :ticketId " +
+           "AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE')")
+    long sumActivePlacesByTicketId(@Param("ticketId") Long ticketId);
+
+    // Utilisations d'un code promo par un visiteur (limite par visiteur)
+    @Query("SELECT COUNT(s) FROM Subscription s WHERE s.promoCodeId = :promoCodeId " +
+           "AND s.visitorProfile.id = :visitorProfileId AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE')")
+    long countActiveByPromoCode(@Param("promoCodeId") Long promoCodeId, @Param("visitorProfileId") Long visitorProfileId);
+
+    // Places occupées par un visiteur sur un événement : initialisation de son compteur de plafond
+    @Query("SELECT COALESCE(SUM(s.places), 0) FROM Subscription s WHERE s.event.id = :eventId " +
+           "AND s.visitorProfile.id = :visitorProfileId AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE')")
+    long sumActivePlacesByVisitor(@Param("eventId") Long eventId, @Param("visitorProfileId") Long visitorProfileId);
+
+    // Destinataires d'une diffusion : un par adresse (visiteur ou porteur d'un billet offert), même avec plusieurs inscriptions
+    interface RecipientView {
+        // Plus petite inscription de l'adresse : clé de pagination
+        Long getRecipientKey();
+        String getEmail();
+        // Null pour un porteur sans compte
+        String getName();
+        String getSurname();
+    }
+
+    // Pagination par clé sur la première inscription de chaque adresse : les inscriptions qui arrivent pendant l'envoi
+    // ont des identifiants plus grands et ne déplacent pas les adresses déjà servies
+    @Query("SELECT MIN(s.id) AS recipientKey, COALESCE(u.email, s.holderEmail) AS email, " +
+           "MAX(v.name) AS name, MAX(v.surname) AS surname " +
+           "FROM Subscription s LEFT JOIN s.visitorProfile v LEFT JOIN v.user u " +
+           "WHERE s.event.id = :eventId AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE') " +
+           "AND COALESCE(u.email, s.holderEmail) IS NOT NULL " +
+           "GROUP BY COALESCE(u.email, s.holderEmail) HAVING MIN(s.id) > :afterKey ORDER BY MIN(s.id)")
+    List<RecipientView> findRecipientsAfter(@Param("eventId") Long eventId,
+                                            @Param("afterKey") Long afterKey,
+                                            Pageable pageable);
+
+    // Rappels : lignes verrouillées par page, celles d'un autre nœud sont sautées
+    @Query(value = "SELECT id FROM subscription WHERE event_id = :eventId AND statut = 'REUSSI' " +
+                   "AND reminder_sent_at IS NULL ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockPendingReminders(@Param("eventId") Long eventId, @Param("limit") int limit);
+
+    @Query("SELECT COUNT(s) FROM Subscription s WHERE s.event.id = :eventId AND s.statut = 'REUSSI' " +
+           "AND s.reminderSentAt IS NULL")
+    long countPendingReminders(@Param("eventId") Long eventId);
+
+    interface SubscriptionEmailView {
+        Long getId();
+        String getEmail();
+    }
+
+    @Query("SELECT s.id AS id, COALESCE(u.email, s.holderEmail) AS email " +
+           "FROM Subscription s LEFT JOIN s.visitorProfile v LEFT JOIN v.user u " +
+           "WHERE s.id IN :ids ORDER BY s.id")
+    List<SubscriptionEmailView> findEmails(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Subscription s SET s.reminderSentAt = :now WHERE s.id IN :ids")
+    int markReminderSent(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    // Annulation d'un événement : lots d'inscriptions encore actives, verrouillés le temps du lot
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Subscription s WHERE s.event.id = :eventId " +
+           "AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE') ORDER BY s.id")
+    List<Subscription> lockActiveByEvent(@Param("eventId") Long eventId, Pageable pageable);
+
+    @Query("SELECT COUNT(s) FROM Subscription s WHERE s.event.id = :eventId AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE')")
+    long countActiveByEvent(@Param("eventId") Long eventId);
+
+    // Billets payés : à rembourser
+    @Modifying
+    @Query("UPDATE Subscription s SET s.statut = 'A_REMBOURSER', s.holdExpiresAt = NULL " +
+           "WHERE s.id IN :ids AND s.montant > 0 AND s.statut IN ('REUSSI', 'UTILISE')")
+    int markRefundPending(@Param("ids") List<Long> ids);
+
+    // Le reste (gratuits, réservations non payées) : annulé
+    @Modifying
+    @Query("UPDATE Subscription s SET s.statut = 'ANNULE', s.holdExpiresAt = NULL " +
+           "WHERE s.id IN :ids AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE')")
+    int markCancelled(@Param("ids") List<Long> ids);
+
+    @Query("SELECT COUNT(DISTINCT COALESCE(u.email, s.holderEmail)) " +
+           "FROM Subscription s LEFT JOIN s.visitorProfile v LEFT JOIN v.user u " +
+           "WHERE s.event.id = :eventId AND s.statut IN ('REUSSI', 'EN_ATTENTE', 'UTILISE')")
+    long countRecipients(@Param("eventId") Long eventId);
+
 }
@@ -3,9 +3,35 @@ package com.example.event.repository;
 import com.example.event.model.Event;
 import com.example.event.model.TicketCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface TicketCategoryRepository extends JpaRepository<TicketCategory,Long> {
     List<TicketCategory> findByEvent(Event event);
+
+    // Allocation atomique sur le quota de la catégorie : 0 ligne si le quota est atteint
+    @Modifying
+    @Query("UPDATE TicketCategory t SET t.sold = t.sold + :places " +
+           "WHERE t.id = :id AND (t.capacity IS NULL OR t.sold + :places <= t.capacity)")
+    int allocate(@Param("id") Long id, @Param("places") int places);
+
+    @Modifying
+    @Query("UPDATE TicketCategory t SET t.sold = CASE WHEN t.sold >= :places THEN t.sold - :places ELSE 0 END WHERE t.id = :id")
+    int deallocate(@Param("id") Long id, @Param("places") int places);
+
+    // Changement de quota refusé (0 ligne) s'il passe sous les places déjà vendues
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE TicketCategory t SET t.capacity = :capacity WHERE t.id = :id AND t.sold <= :capacity")
+    int updateCapacity(@Param("id") Long id, @Param("capacity") int capacity);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE TicketCategory t SET t.capacity = NULL WHERE t.id = :id")
+    int clearCapacity(@Param("id") Long id);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE TicketCategory t SET t.sold = :sold WHERE t.id = :id")
+    int setSold(@Param("id") Long id, @Param("sold") int sold);
 }
@@ -0,0 +1,18 @@
+package com.example.event.repository;
+
+import com.example.event.model.TicketChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TicketChangeRepository extends JpaRepository<TicketChange, Long> {
+
+    List<TicketChange> findByEventIdAndIdGreaterThanOrderByIdAsc(Long eventId, Long since, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM TicketChange c WHERE c.eventId = :eventId AND c.createdAt < :before")
+    long findLastIdBefore(@Param("eventId") Long eventId, @Param("before") LocalDateTime before);
+}
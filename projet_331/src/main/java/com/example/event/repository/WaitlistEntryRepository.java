@@ -0,0 +1,59 @@
+package com.example.event.repository;
+
+import com.example.event.model.Statut_Waitlist;
+import com.example.event.model.WaitlistEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    // Tête de file, servie par l'index (event_id, statut, id)
+    interface HeadView {
+        Long getId();
+        Long getVisitorProfileId();
+        Long getTicketId();
+        int getPlaces();
+    }
+
+    @Query("SELECT w.id AS id, w.visitorProfile.id AS visitorProfileId, w.ticket.id AS ticketId, w.places AS places " +
+           "FROM WaitlistEntry w WHERE w.event.id = :eventId AND w.statut = 'EN_ATTENTE' ORDER BY w.id")
+    List<HeadView> findHead(@Param("eventId") Long eventId, Pageable pageable);
+
+    boolean existsByEventIdAndVisitorProfileIdAndStatut(Long eventId, Long visitorProfileId, Statut_Waitlist statut);
+
+    List<WaitlistEntry> findByVisitorProfileIdOrderByIdDesc(Long visitorProfileId);
+
+    // Rang dans la file (0 = prochain servi)
+    @Query("SELECT COUNT(w) FROM WaitlistEntry w WHERE w.event.id = :eventId AND w.statut = 'EN_ATTENTE' AND w.id < :id")
+    long countAhead(@Param("eventId") Long eventId, @Param("id") Long id);
+
+    // Prise de l'entrée par une seule promotion : 0 ligne si elle a été annulée ou promue entre-temps
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.statut = 'PROMU', w.promotedAt = :now WHERE w.id = :id AND w.statut = 'EN_ATTENTE'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Pas assez de places : l'entrée garde son rang
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.statut = 'EN_ATTENTE', w.promotedAt = NULL WHERE w.id = :id AND w.statut = 'PROMU'")
+    int unclaim(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.subscriptionId = :subscriptionId WHERE w.id = :id")
+    int linkSubscription(@Param("id") Long id, @Param("subscriptionId") Long subscriptionId);
+
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.statut = 'ANNULE' WHERE w.id = :id AND w.statut = 'EN_ATTENTE'")
+    int cancel(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.statut = 'ANNULE' WHERE w.event.id = :eventId AND w.statut = 'EN_ATTENTE'")
+    int cancelAllForEvent(@Param("eventId") Long eventId);
+}
@@ -1,7 +1,9 @@
 package com.example.event.service;
 
+import com.example.event.Exception.BadRequestException;
 import com.example.event.Exception.EntityNotFoundException;
 import com.example.event.model.Event;
+import com.example.event.model.InventoryMode;
 import com.example.event.model.Statut_Event;
 import com.example.event.repository.EventRepository;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +17,8 @@ import org.springframework.transaction.annotation.Transactional;
 public class AdminEventService {
 
     private final EventRepository eventRepository;
+    private final SeatInventoryService seatInventoryService;
+    private final AdmissionQueueService admissionQueueService;
 
     @Transactional(readOnly = true)
     public Page<Event> getAllEvents(Pageable pageable) {
@@ -25,6 +29,10 @@ public class AdminEventService {
     public Event updateEventStatus(Long eventId, Statut_Event newStatus) {
         Event event = eventRepository.findById(eventId)
                 .orElseThrow(() -> new EntityNotFoundException("Event not found with ID: " + eventId));
+        // L'annulation passe par EventCancellationService, qui traite aussi les inscriptions
+        if (newStatus == Statut_Event.ANNULE || event.getStatut() == Statut_Event.ANNULE) {
+            throw new BadRequestException("Use the cancel endpoint to cancel an event; a cancelled event cannot be reopened.");
+        }
         event.setStatut(newStatus);
         return eventRepository.save(event);
     }
@@ -36,4 +44,20 @@ public class AdminEventService {
         event.setFeatured(isFeatured);
         return eventRepository.save(event);
     }
+
+    public Event updateEventInventoryMode(Long eventId, InventoryMode inventoryMode, Integer buckets) {
+        return seatInventoryService.switchMode(eventId, inventoryMode, buckets);
+    }
+
+    @Transactional
+    public Event updateEventAdmissionRate(Long eventId, Integer admissionRate) {
+        if (admissionRate != null && admissionRate <= 0) {
+            throw new BadRequestException("Admission rate must be positive");
+        }
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Event not found with ID: " + eventId));
+        event.setAdmissionRate(admissionRate);
+        admissionQueueService.configureAfterCommit(eventId, admissionRate);
+        return eventRepository.save(event);
+    }
 }
@@ -1,6 +1,8 @@
 package com.example.event.service;
 
 import com.example.event.dto.Stats.AdminDashboardStatsDto;
+import com.example.event.dto.Stats.HoldMetricsDto;
+import com.example.event.dto.Stats.OutboxMetricsDto;
 import com.example.event.repository.EventRepository;
 import com.example.event.repository.SubscriptionRepository;
 import com.example.event.repository.UserRepository;
@@ -15,6 +17,8 @@ public class AdminStatsService {
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
     private final SubscriptionRepository subscriptionRepository;
+    private final HoldExpiryService holdExpiryService;
+    private final EmailOutboxService emailOutboxService;
 
     @Transactional(readOnly = true)
     public AdminDashboardStatsDto getAdminDashboardStats() {
@@ -25,5 +29,13 @@ public class AdminStatsService {
 
         return new AdminDashboardStatsDto(totalUsers, totalEvents, totalSubscriptions, totalRevenue);
     }
+
+    public HoldMetricsDto getHoldMetrics() {
+        return holdExpiryService.getMetrics();
+    }
+
+    public OutboxMetricsDto getOutboxMetrics() {
+        return emailOutboxService.getMetrics();
+    }
 }
 
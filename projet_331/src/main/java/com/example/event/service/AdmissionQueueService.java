@@ -0,0 +1,170 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.QueueTicketResponse;
+import com.example.event.model.Event;
+import com.example.event.repository.EventRepository;
+import com.example.event.utils.AdmissionQueue;
+import com.example.event.utils.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Virtual waiting room in front of booking for events with an admission rate.
+ * <p>
+ * Queue tokens are {@code <sequence>.<signature>}, the signature binding the sequence number to
+ * the event and the user, so no per-client state is stored and tokens cannot be forged or shared.
+ * An admitted token stays usable while it is within the last {@code admission-ttl-seconds} worth
+ * of admissions. Queues live in memory: each node runs its own, and a restart empties them.
+ */
+@Service
+public class AdmissionQueueService {
+
+    public static final String QUEUE_TOKEN_HEADER = "X-Queue-Token";
+
+    private static final int SIGNATURE_BYTES = 12;
+
+    private final EventRepository eventRepository;
+    private final Map<Long, AdmissionQueue> queues = new ConcurrentHashMap<>();
+    private final byte[] secret;
+
+    @Value("${app.queue.burst-seconds:2}")
+    private int burstSeconds;
+
+    @Value("${app.queue.admission-ttl-seconds:300}")
+    private int admissionTtlSeconds;
+
+    public AdmissionQueueService(EventRepository eventRepository, @Value("${app.queue.secret:}") String secret) {
+        this.eventRepository = eventRepository;
+        if (secret == null || secret.isBlank()) {
+            this.secret = new byte[32];
+            new SecureRandom().nextBytes(this.secret);
+        } else {
+            this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadQueues() {
+        for (Event event : eventRepository.findByAdmissionRateIsNotNull()) {
+            configure(event.getId(), event.getAdmissionRate());
+        }
+    }
+
+    /** Opens, resizes or (with a null rate) closes the waiting room of an event once the change is committed. */
+    public void configureAfterCommit(Long eventId, Integer admissionRate) {
+        TransactionHooks.afterCommit(() -> configure(eventId, admissionRate));
+    }
+
+    private void configure(Long eventId, Integer admissionRate) {
+        if (admissionRate == null) {
+            queues.remove(eventId);
+        } else {
+            // A rate change keeps the queue: positions and tokens already handed out stay valid
+            int burst = admissionRate * Math.max(1, burstSeconds);
+            queues.compute(eventId, (id, queue) -> {
+                if (queue == null) {
+                    return new AdmissionQueue(admissionRate, burst);
+                }
+                queue.reconfigure(admissionRate, burst);
+                return queue;
+            });
+        }
+    }
+
+    public QueueTicketResponse join(Long eventId) {
+        AdmissionQueue queue = queueFor(eventId);
+        long sequence = queue.join();
+        return status(eventId, queue, sequence, sequence + "." + sign(eventId, sequence, currentUser()));
+    }
+
+    public QueueTicketResponse status(Long eventId, String token) {
+        AdmissionQueue queue = queueFor(eventId);
+        return status(eventId, queue, verify(eventId, queue, token, currentUser()), token);
+    }
+
+    /**
+     * Rejects a booking that did not go through the waiting room. Runs before any database access.
+     */
+    public void checkAdmitted(Long eventId, String token) {
+        AdmissionQueue queue = eventId == null ? null : queues.get(eventId);
+        if (queue == null) {
+            return;
+        }
+        if (token == null) {
+            throw new ForbiddenException("This event uses a waiting room: join the queue first.");
+        }
+        long sequence = verify(eventId, queue, token, currentUser());
+        long admitted = queue.admittedUpTo();
+        if (sequence > admitted) {
+            throw new ForbiddenException("You are still in the waiting room (position " + (sequence - admitted) + ").");
+        }
+        long window = Math.max(1, (long) (queue.getRatePerSecond() * admissionTtlSeconds));
+        if (sequence <= admitted - window) {
+            throw new ForbiddenException("Your admission has expired, please join the queue again.");
+        }
+    }
+
+    private QueueTicketResponse status(Long eventId, AdmissionQueue queue, long sequence, String token) {
+        long admitted = queue.admittedUpTo();
+        long position = Math.max(0, sequence - admitted);
+        long retryAfterMs = position == 0 ? 0
+                : Math.min(30_000, Math.max(1_000, (long) (position / queue.getRatePerSecond() * 1000)));
+        return new QueueTicketResponse(eventId, token, position, position == 0, retryAfterMs);
+    }
+
+    private AdmissionQueue queueFor(Long eventId) {
+        AdmissionQueue queue = eventId == null ? null : queues.get(eventId);
+        if (queue == null) {
+            throw new BadRequestException("This event has no waiting room.");
+        }
+        return queue;
+    }
+
+    private long verify(Long eventId, AdmissionQueue queue, String token, String username) {
+        int dot = token.indexOf('.');
+        long sequence;
+        try {
+            sequence = Long.parseLong(token.substring(0, Math.max(dot, 0)));
+        } catch (NumberFormatException e) {
+            throw new ForbiddenException("Invalid queue token.");
+        }
+        byte[] expected = sign(eventId, sequence, username).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        // Tokens issued before a restart or a queue reset point past the current queue
+        if (!MessageDigest.isEqual(expected, actual) || sequence < 1 || sequence > queue.issued()) {
+            throw new ForbiddenException("Invalid queue token.");
+        }
+        return sequence;
+    }
+
+    private String currentUser() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    private String sign(Long eventId, long sequence, String username) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] digest = mac.doFinal((eventId + ":" + sequence + ":" + username).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, SIGNATURE_BYTES));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
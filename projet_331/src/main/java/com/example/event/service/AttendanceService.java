@@ -0,0 +1,181 @@
+package com.example.event.service;
+
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Stats.AttendanceDto;
+import com.example.event.model.Event;
+import com.example.event.model.OrganizerProfile;
+import com.example.event.model.User;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.utils.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live check-in counts pushed to organizers over server-sent events.
+ * <p>
+ * Counters exist only for events that have a subscriber. They are seeded once from an aggregate
+ * query, then incremented by every successful check-in after its commit. A check-in committing
+ * while the seed query runs may be counted twice or missed; the next subscription reseeds.
+ * Pushes are coalesced: a scheduled task sends at most one snapshot per event and per
+ * {@code app.attendance.push-interval-ms}, whatever the scan rate.
+ */
+@Service
+public class AttendanceService {
+
+    private static final class Counter {
+        final LongAdder tickets = new LongAdder();
+        final LongAdder places = new LongAdder();
+    }
+
+    private static final class Attendance {
+        final Map<String, Counter> categories = new ConcurrentHashMap<>();
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        final AtomicBoolean dirty = new AtomicBoolean();
+
+        void add(String category, long tickets, long places) {
+            Counter counter = categories.computeIfAbsent(String.valueOf(category), name -> new Counter());
+            counter.tickets.add(tickets);
+            counter.places.add(places);
+        }
+    }
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final EventRepository eventRepository;
+    private final ProfileService profileService;
+    private final Map<Long, Attendance> attendances = new ConcurrentHashMap<>();
+
+    @Value("${app.attendance.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    public AttendanceService(SubscriptionRepository subscriptionRepository, EventRepository eventRepository,
+                             ProfileService profileService) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.eventRepository = eventRepository;
+        this.profileService = profileService;
+    }
+
+    @Transactional(readOnly = true)
+    public SseEmitter subscribe(Long eventId) {
+        checkOwner(eventId);
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Attendance attendance;
+        do {
+            attendance = attendances.get(eventId);
+            if (attendance == null) {
+                // Seeded outside the map: concurrent first subscribers keep whichever copy got in first
+                Attendance seeded = seed(eventId);
+                attendance = attendances.putIfAbsent(eventId, seeded);
+                if (attendance == null) {
+                    attendance = seeded;
+                }
+            }
+            // Dropped meanwhile by a leaving last subscriber: start over
+        } while (!register(eventId, attendance, emitter));
+        Runnable remove = () -> unsubscribe(eventId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        send(eventId, emitter, snapshot(eventId, attendance));
+        return emitter;
+    }
+
+    /** Counts a check-in once the surrounding transaction commits (immediately outside a transaction). */
+    public void recordCheckInAfterCommit(Long eventId, String category, int places) {
+        TransactionHooks.afterCommit(() -> {
+            Attendance attendance = attendances.get(eventId);
+            if (attendance != null) {
+                attendance.add(category, 1, places);
+                attendance.dirty.set(true);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.attendance.push-interval-ms:250}")
+    public void pushChanges() {
+        attendances.forEach((eventId, attendance) -> {
+            if (attendance.dirty.compareAndSet(true, false)) {
+                AttendanceDto snapshot = snapshot(eventId, attendance);
+                for (SseEmitter emitter : attendance.emitters) {
+                    send(eventId, emitter, snapshot);
+                }
+            }
+        });
+    }
+
+    private void send(Long eventId, SseEmitter emitter, AttendanceDto snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name("attendance").data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            // Client gone
+            unsubscribe(eventId, emitter);
+        }
+    }
+
+    private Attendance seed(Long eventId) {
+        Attendance attendance = new Attendance();
+        for (SubscriptionRepository.CategoryAttendanceView row : subscriptionRepository.countCheckInsByCategory(eventId)) {
+            attendance.add(row.getTicketName(), row.getTickets(), row.getPlaces());
+        }
+        return attendance;
+    }
+
+    // Registration and removal go through the map so that a leaving last subscriber cannot drop a new one
+    private boolean register(Long eventId, Attendance attendance, SseEmitter emitter) {
+        return attendances.computeIfPresent(eventId, (id, current) -> {
+            if (current == attendance) {
+                current.emitters.add(emitter);
+            }
+            return current;
+        }) == attendance;
+    }
+
+    private void unsubscribe(Long eventId, SseEmitter emitter) {
+        attendances.computeIfPresent(eventId, (id, current) -> {
+            current.emitters.remove(emitter);
+            // No more listeners: stop counting, the next subscriber reseeds from the database
+            return current.emitters.isEmpty() ? null : current;
+        });
+    }
+
+    private static AttendanceDto snapshot(Long eventId, Attendance attendance) {
+        List<AttendanceDto.CategoryAttendance> categories = new ArrayList<>();
+        long tickets = 0;
+        long places = 0;
+        for (Map.Entry<String, Counter> entry : attendance.categories.entrySet()) {
+            long categoryTickets = entry.getValue().tickets.sum();
+            long categoryPlaces = entry.getValue().places.sum();
+            categories.add(new AttendanceDto.CategoryAttendance(entry.getKey(), categoryTickets, categoryPlaces));
+            tickets += categoryTickets;
+            places += categoryPlaces;
+        }
+        return new AttendanceDto(eventId, tickets, places, categories);
+    }
+
+    private void checkOwner(Long eventId) {
+        User user = profileService.getAuthenticatedUser();
+        OrganizerProfile organizerProfile = user.getOrganizerProfile();
+        if (organizerProfile == null) {
+            throw new ForbiddenException("Only organizers can follow attendance.");
+        }
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Event not found with id: " + eventId));
+        if (!Objects.equals(event.getOrganizerProfile().getId(), organizerProfile.getId())) {
+            throw new ForbiddenException("You can only follow attendance of your own events.");
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class AuthService {
     private final OrganizerProfileRepository organizerProfileRepository;
     private final PasswordEncoder passwordEncoder;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
-    private final EmailSenderService emailSenderService;
+    private final EmailOutboxService emailOutboxService;
 
     @Value("${app.frontend-url}")
     private String frontendUrl;
@@ -81,12 +81,8 @@ public class AuthService {
         passwordResetTokenRepository.save(resetToken);
 
         String resetLink = frontendUrl + "/reset-password?token=" + token; // Frontend URL
-        emailSenderService.sendEmail(
-                user.getEmail(),
-                "Password Reset Request",
-                "To reset your password, click on the following link: " + resetLink +
-                "\n\nThis link will expire in 24 hours."
-        );
+        // Delivered after commit: the request never waits on SMTP
+        emailOutboxService.enqueuePasswordReset(user.getEmail(), resetLink);
     }
 
     @Transactional
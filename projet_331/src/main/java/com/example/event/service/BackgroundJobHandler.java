@@ -0,0 +1,18 @@
+package com.example.event.service;
+
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.JobKind;
+
+/**
+ * Work behind one {@link JobKind}, run by {@link BackgroundJobService} on its own threads.
+ * <p>
+ * An implementation processes the job in chunks, each in its own transaction that ends with
+ * {@link BackgroundJobService#checkpoint}, starting after {@link BackgroundJob#getLastKey()}
+ * so that a resumed job skips what was already committed.
+ */
+public interface BackgroundJobHandler {
+
+    JobKind kind();
+
+    void process(BackgroundJob job) throws InterruptedException;
+}
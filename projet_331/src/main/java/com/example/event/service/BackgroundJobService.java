@@ -0,0 +1,227 @@
+package com.example.event.service;
+
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Job.BackgroundJobResponse;
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.Event;
+import com.example.event.model.JobKind;
+import com.example.event.model.Statut_Job;
+import com.example.event.model.User;
+import com.example.event.model.UserRole;
+import com.example.event.repository.BackgroundJobRepository;
+import com.example.event.repository.EventRepository;
+import com.example.event.utils.TransactionHooks;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link BackgroundJob}s on a small worker pool. A job is created in the caller's transaction
+ * and started after commit; a scheduled sweep starts the jobs whose dispatch was lost and takes over
+ * those whose node stopped sending heartbeats. Each run claims the job with a fresh runner id, and
+ * progress is only recorded under that id, so a node that lost its job cannot write over the new run.
+ */
+@Service
+public class BackgroundJobService {
+
+    /** Thrown inside a chunk transaction when the job now belongs to another run: the chunk rolls back. */
+    public static class JobTakenOverException extends RuntimeException {
+        public JobTakenOverException(Long jobId) {
+            super("Job " + jobId + " was taken over by another run");
+        }
+    }
+
+    private final BackgroundJobRepository backgroundJobRepository;
+    private final EventRepository eventRepository;
+    private final ProfileService profileService;
+    private final ObjectProvider<BackgroundJobHandler> handlers;
+    private final TransactionTemplate transactionTemplate;
+
+    // Tâches déjà confiées au pool de ce nœud, pour que le balayage ne les soumette pas deux fois
+    private final Set<Long> scheduled = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor workers;
+
+    @Value("${app.jobs.workers:2}")
+    private int workerCount;
+
+    @Value("${app.jobs.stale-after-ms:120000}")
+    private long staleAfterMs;
+
+    public BackgroundJobService(BackgroundJobRepository backgroundJobRepository,
+                                EventRepository eventRepository,
+                                ProfileService profileService,
+                                ObjectProvider<BackgroundJobHandler> handlers,
+                                PlatformTransactionManager transactionManager) {
+        this.backgroundJobRepository = backgroundJobRepository;
+        this.eventRepository = eventRepository;
+        this.profileService = profileService;
+        this.handlers = handlers;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(100), runnable -> {
+                    Thread thread = new Thread(runnable, "background-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stopWorkers() throws InterruptedException {
+        // Interrupted jobs stay EN_COURS and are taken over once their heartbeat is stale
+        workers.shutdownNow();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /** Creates a job in the caller's transaction; it starts once the transaction commits. */
+    public BackgroundJob start(JobKind kind, Long eventId, Long requestedBy, String subject, String payload) {
+        BackgroundJob job = new BackgroundJob();
+        job.setKind(kind);
+        job.setStatut(Statut_Job.EN_ATTENTE);
+        job.setEventId(eventId);
+        job.setRequestedBy(requestedBy);
+        job.setSubject(subject);
+        job.setPayload(payload);
+        job.setCreatedAt(LocalDateTime.now());
+        BackgroundJob saved = backgroundJobRepository.save(job);
+        TransactionHooks.afterCommit(() -> submit(saved.getId()));
+        return saved;
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.resume-interval-ms:30000}")
+    public void resumeJobs() {
+        for (Long id : backgroundJobRepository.findRunnable(LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000))) {
+            submit(id);
+        }
+    }
+
+    public BackgroundJobResponse getJob(Long id) {
+        BackgroundJob job = backgroundJobRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Job not found"));
+        User user = profileService.getAuthenticatedUser();
+        if (user.getRole() != UserRole.ROLE_ADMIN && !user.getId().equals(job.getRequestedBy())) {
+            throw new ForbiddenException("You are not allowed to see this job.");
+        }
+        return toResponse(job);
+    }
+
+    public List<BackgroundJobResponse> getEventJobs(Long eventId) {
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Évènement introuvable"));
+        User user = profileService.getAuthenticatedUser();
+        if (user.getRole() != UserRole.ROLE_ADMIN && (event.getOrganizerProfile() == null
+                || !event.getOrganizerProfile().getUser().getId().equals(user.getId()))) {
+            throw new ForbiddenException("You are not the owner of this event.");
+        }
+        return backgroundJobRepository.findByEventIdOrderByIdDesc(eventId).stream().map(this::toResponse).toList();
+    }
+
+    /** Records the number of items the job will process. */
+    public void updateTotal(BackgroundJob job, long total) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (backgroundJobRepository.updateTotal(job.getId(), job.getRunnerId(), total, LocalDateTime.now()) != 1) {
+                throw new JobTakenOverException(job.getId());
+            }
+        });
+        job.setTotal(total);
+    }
+
+    /**
+     * Records a processed chunk. Must be called inside the chunk's transaction: if the job was taken
+     * over in the meantime, the exception rolls the chunk back.
+     */
+    public void checkpoint(BackgroundJob job, int processed, Long lastKey) {
+        if (backgroundJobRepository.checkpoint(job.getId(), job.getRunnerId(), processed, lastKey, LocalDateTime.now()) != 1) {
+            throw new JobTakenOverException(job.getId());
+        }
+        job.setProcessed(job.getProcessed() + processed);
+        job.setLastKey(lastKey);
+    }
+
+    private void submit(Long id) {
+        if (!scheduled.add(id)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    run(id);
+                } finally {
+                    scheduled.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool full: the next sweep submits it again
+            scheduled.remove(id);
+        }
+    }
+
+    private void run(Long id) {
+        String runnerId = UUID.randomUUID().toString();
+        BackgroundJob job = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (backgroundJobRepository.claim(id, runnerId, now, now.minusNanos(staleAfterMs * 1_000_000)) != 1) {
+                return null;
+            }
+            return backgroundJobRepository.findById(id).orElse(null);
+        });
+        if (job == null) {
+            return;
+        }
+        BackgroundJobHandler handler = handlers.orderedStream()
+                .filter(candidate -> candidate.kind() == job.getKind())
+                .findFirst().orElse(null);
+        try {
+            if (handler == null) {
+                throw new IllegalStateException("No handler for job kind " + job.getKind());
+            }
+            handler.process(job);
+            finish(job, Statut_Job.TERMINE, null);
+        } catch (InterruptedException e) {
+            // Shutdown: another node (or this one after restart) resumes from the last checkpoint
+            Thread.currentThread().interrupt();
+        } catch (JobTakenOverException e) {
+            // The new run owns the job now
+        } catch (Exception e) {
+            finish(job, Statut_Job.ECHOUE, e.toString());
+        }
+    }
+
+    private void finish(BackgroundJob job, Statut_Job statut, String error) {
+        String truncated = error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+        transactionTemplate.executeWithoutResult(status -> backgroundJobRepository.finish(
+                job.getId(), job.getRunnerId(), statut, truncated, LocalDateTime.now()));
+    }
+
+    public BackgroundJobResponse toResponse(BackgroundJob job) {
+        int progress = job.getTotal() == 0
+                ? (job.getStatut() == Statut_Job.TERMINE ? 100 : 0)
+                : (int) Math.min(100, job.getProcessed() * 100 / job.getTotal());
+        return new BackgroundJobResponse(job.getId(), job.getKind(), job.getStatut(), job.getEventId(),
+                job.getTotal(), job.getProcessed(), progress, job.getLastError(),
+                job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.event.service;
+
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.Event;
+import com.example.event.model.JobKind;
+import com.example.event.repository.SubscriptionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Tells every subscriber of an event that its date or venue changed.
+ * <p>
+ * Recipients are read in keyset pages of distinct email addresses, so someone holding several
+ * tickets gets one email and memory stays flat whatever the audience. Holders of complimentary
+ * tickets without an account are reached through the address on their ticket. Each page is
+ * rendered and written to the email outbox together with the job checkpoint, at the outbox's bulk
+ * pace.
+ */
+@Service
+public class BroadcastService implements BackgroundJobHandler {
+
+    private static final String NAME_PLACEHOLDER = "{name}";
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final EmailOutboxService emailOutboxService;
+    private final BackgroundJobService backgroundJobService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+
+    @Value("${app.broadcast.chunk-size:200}")
+    private int chunkSize;
+
+    public BroadcastService(SubscriptionRepository subscriptionRepository,
+                            EmailOutboxService emailOutboxService,
+                            BackgroundJobService backgroundJobService,
+                            PlatformTransactionManager transactionManager) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.emailOutboxService = emailOutboxService;
+        this.backgroundJobService = backgroundJobService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public JobKind kind() {
+        return JobKind.EVENT_BROADCAST;
+    }
+
+    /**
+     * Starts a broadcast if the date or the venue of the event changed. Call it in the transaction
+     * that saves the event: the job only starts if the change is committed.
+     *
+     * @return the broadcast job, or null when nothing subscribers care about changed
+     */
+    public BackgroundJob announceEventChange(Event event, LocalDate oldDebut, LocalDate oldFin, String oldLieu, Long requestedBy) {
+        StringBuilder changes = new StringBuilder();
+        if (!Objects.equals(oldDebut, event.getDebut()) || !Objects.equals(oldFin, event.getFin())) {
+            changes.append("- Date: ").append(period(oldDebut, oldFin))
+                    .append(" -> ").append(period(event.getDebut(), event.getFin())).append("\n");
+        }
+        if (!Objects.equals(oldLieu, event.getLieu())) {
+            changes.append("- Venue: ").append(oldLieu).append(" -> ").append(event.getLieu()).append("\n");
+        }
+        if (changes.isEmpty()) {
+            return null;
+        }
+        String body = "Hello " + NAME_PLACEHOLDER + ",\n\n" +
+                      "The event \"" + event.getTitle() + "\" you registered for has changed:\n" +
+                      changes +
+                      "\nYour ticket remains valid.";
+        return backgroundJobService.start(JobKind.EVENT_BROADCAST, event.getId(), requestedBy,
+                "Update for Event: " + event.getTitle(), body);
+    }
+
+    @Override
+    public void process(BackgroundJob job) throws InterruptedException {
+        if (job.getLastKey() == null) {
+            backgroundJobService.updateTotal(job, subscriptionRepository.countRecipients(job.getEventId()));
+        }
+        long after = job.getLastKey() == null ? 0 : job.getLastKey();
+        while (true) {
+            long from = after;
+            List<SubscriptionRepository.RecipientView> recipients = readOnlyTemplate.execute(status ->
+                    subscriptionRepository.findRecipientsAfter(job.getEventId(), from, PageRequest.of(0, chunkSize)));
+            if (recipients == null || recipients.isEmpty()) {
+                return;
+            }
+            List<EmailOutboxService.PlainEmail> emails = recipients.stream()
+                    .map(recipient -> new EmailOutboxService.PlainEmail(recipient.getEmail(), job.getSubject(),
+                            job.getPayload().replace(NAME_PLACEHOLDER, greeting(recipient))))
+                    .toList();
+            emailOutboxService.acquireBulkPermits(emails.size());
+            Long lastKey = recipients.get(recipients.size() - 1).getRecipientKey();
+            transactionTemplate.executeWithoutResult(status -> {
+                emailOutboxService.enqueueEmails(emails);
+                backgroundJobService.checkpoint(job, emails.size(), lastKey);
+            });
+            after = lastKey;
+        }
+    }
+
+    private static String greeting(SubscriptionRepository.RecipientView recipient) {
+        // A holder without an account is greeted by the address the ticket was sent to
+        return recipient.getName() == null ? recipient.getEmail() : recipient.getName() + " " + recipient.getSurname();
+    }
+
+    private static String period(LocalDate debut, LocalDate fin) {
+        return Objects.equals(debut, fin) || fin == null ? String.valueOf(debut) : debut + " to " + fin;
+    }
+}
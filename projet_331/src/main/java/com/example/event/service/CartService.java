@@ -0,0 +1,222 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.CartLine;
+import com.example.event.dto.Subscription.CartRequest;
+import com.example.event.dto.Subscription.CartResponse;
+import com.example.event.model.*;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.utils.GateIndex;
+import com.example.event.utils.TicketCodeSigner;
+import com.example.event.utils.UtilSubscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checkout of a cart: several ticket categories of one event bought in a single request.
+ * <p>
+ * The user and the event are read once, the seats of every line are taken with one guarded update
+ * per category and one on the event, the rows are inserted in one JDBC batch and a single
+ * confirmation email covers the whole order. Everything happens in one transaction: a line that
+ * cannot be served fails the cart and nothing is kept.
+ */
+@Service
+public class CartService {
+
+    private static final String INSERT_SQL = "INSERT INTO subscription " +
+            "(montant, places, created_at, statut, hold_expires_at, inventory_pending, event_id, visitor_profile_id, ticket_id, codeticket, promo_code_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_LINES = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SubscriptionRepository subscriptionRepository;
+    private final EventRepository eventRepository;
+    private final TicketCategoryRepository ticketCategoryRepository;
+    private final ProfileService profileService;
+    private final SeatInventoryService seatInventoryService;
+    private final TicketCodeSigner ticketCodeSigner;
+    private final ManifestService manifestService;
+    private final EmailOutboxService emailOutboxService;
+    private final VisitorCapService visitorCapService;
+    private final PromoCodeService promoCodeService;
+
+    @Value("${app.booking.hold-ttl-minutes:15}")
+    private long holdTtlMinutes;
+
+    public CartService(JdbcTemplate jdbcTemplate,
+                       SubscriptionRepository subscriptionRepository,
+                       EventRepository eventRepository,
+                       TicketCategoryRepository ticketCategoryRepository,
+                       ProfileService profileService,
+                       SeatInventoryService seatInventoryService,
+                       TicketCodeSigner ticketCodeSigner,
+                       ManifestService manifestService,
+                       EmailOutboxService emailOutboxService,
+                       VisitorCapService visitorCapService,
+                       PromoCodeService promoCodeService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.subscriptionRepository = subscriptionRepository;
+        this.eventRepository = eventRepository;
+        this.ticketCategoryRepository = ticketCategoryRepository;
+        this.profileService = profileService;
+        this.seatInventoryService = seatInventoryService;
+        this.ticketCodeSigner = ticketCodeSigner;
+        this.manifestService = manifestService;
+        this.emailOutboxService = emailOutboxService;
+        this.visitorCapService = visitorCapService;
+        this.promoCodeService = promoCodeService;
+    }
+
+    /**
+     * Books every line of the cart for the authenticated visitor. Free lines are confirmed at once,
+     * paid lines are held until the payment deadline like a single subscription.
+     */
+    @Transactional
+    public CartResponse checkout(CartRequest request) {
+        User user = profileService.getAuthenticatedUser();
+        VisitorProfile visitorProfile = user.getVisitorProfile();
+        if (visitorProfile == null) {
+            throw new ForbiddenException("Only visitors can subscribe to events.");
+        }
+        if (request.getLines() == null || request.getLines().isEmpty()) {
+            throw new BadRequestException("The cart is empty.");
+        }
+        Event event = eventRepository.findById(request.getId_event())
+                .orElseThrow(() -> new EntityNotFoundException("Event not found"));
+        if (event.getStatut() == Statut_Event.ANNULE) {
+            throw new ForbiddenException("This event has been cancelled.");
+        }
+
+        // Lignes regroupées par catégorie, dans l'ordre du panier
+        Map<Long, Integer> placesByTicket = new LinkedHashMap<>();
+        for (CartLine line : request.getLines()) {
+            if (line.getId_ticket() == null) {
+                throw new BadRequestException("Each line needs a ticket category.");
+            }
+            if (line.getPlaces() <= 0) {
+                throw new BadRequestException("The number of places must be positive.");
+            }
+            placesByTicket.merge(line.getId_ticket(), line.getPlaces(), Integer::sum);
+        }
+        if (placesByTicket.size() > MAX_LINES) {
+            throw new BadRequestException("At most " + MAX_LINES + " ticket categories per cart.");
+        }
+        Map<Long, TicketCategory> tickets = ticketCategoryRepository.findAllById(placesByTicket.keySet()).stream()
+                .collect(Collectors.toMap(TicketCategory::getId, Function.identity()));
+
+        PromoCodeService.Offer offer = request.getPromo_code() == null || request.getPromo_code().isBlank()
+                ? null : promoCodeService.resolve(request.getPromo_code(), event);
+        int discountedLines = 0;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Subscription> subscriptions = new ArrayList<>(placesByTicket.size());
+        for (Map.Entry<Long, Integer> line : placesByTicket.entrySet()) {
+            TicketCategory ticket = tickets.get(line.getKey());
+            if (ticket == null) {
+                throw new EntityNotFoundException("Ticket category not found");
+            }
+            if (!Objects.equals(ticket.getEvent().getId(), event.getId())) {
+                throw new BadRequestException("This ticket category does not belong to the event.");
+            }
+            Subscription subscription = new Subscription();
+            subscription.setCreatedAt(now);
+            subscription.setPlaces(line.getValue());
+            subscription.setVisitorProfile(visitorProfile);
+            subscription.setEvent(event);
+            subscription.setTicket(ticket);
+            subscription.setCodeticket(ticketCodeSigner.issue(event.getId()));
+            int prix = ticket.getPrix();
+            if (offer != null && offer.appliesTo(ticket)) {
+                prix = offer.unitPrice(prix);
+                subscription.setPromoCodeId(offer.id());
+                discountedLines++;
+            }
+            subscription.setMontant(line.getValue() * prix);
+            if (subscription.getMontant() > 0) {
+                subscription.setStatut(Statut_Subscription.EN_ATTENTE);
+                subscription.setHoldExpiresAt(now.plusMinutes(holdTtlMinutes));
+            } else {
+                subscription.setStatut(Statut_Subscription.REUSSI);
+            }
+            subscriptions.add(subscription);
+        }
+
+        if (offer != null && discountedLines == 0) {
+            throw new BadRequestException("This promo code does not apply to any ticket of the cart.");
+        }
+
+        // Plafond par visiteur sur le total du panier, avant toute réservation de places
+        visitorCapService.acquire(event, visitorProfile.getId(),
+                placesByTicket.values().stream().mapToInt(Integer::intValue).sum());
+        // Toutes les lignes ou aucune
+        seatInventoryService.reserveAll(subscriptions);
+        // Une utilisation du code par ligne remisée, verrouillé après les places comme dans les libérations
+        if (offer != null) {
+            promoCodeService.redeem(offer, visitorProfile.getId(), discountedLines);
+        }
+
+        Timestamp createdAt = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_SQL, subscriptions, subscriptions.size(), (statement, subscription) -> {
+            statement.setInt(1, subscription.getMontant());
+            statement.setInt(2, subscription.getPlaces());
+            statement.setTimestamp(3, createdAt);
+            statement.setString(4, subscription.getStatut().name());
+            if (subscription.getHoldExpiresAt() == null) {
+                statement.setNull(5, Types.TIMESTAMP);
+            } else {
+                statement.setTimestamp(5, Timestamp.valueOf(subscription.getHoldExpiresAt()));
+            }
+            statement.setBoolean(6, subscription.isInventoryPending());
+            statement.setLong(7, event.getId());
+            statement.setLong(8, visitorProfile.getId());
+            statement.setLong(9, subscription.getTicket().getId());
+            statement.setString(10, subscription.getCodeticket());
+            if (subscription.getPromoCodeId() == null) {
+                statement.setNull(11, Types.BIGINT);
+            } else {
+                statement.setLong(11, subscription.getPromoCodeId());
+            }
+        });
+
+        List<String> codes = subscriptions.stream().map(Subscription::getCodeticket).toList();
+        List<Long> ids = subscriptionRepository.findIdsByCodes(codes);
+        List<Subscription> saved = subscriptionRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(Subscription::getId))
+                .toList();
+
+        List<TicketChange> changes = new ArrayList<>();
+        int montant = 0;
+        for (Subscription subscription : saved) {
+            if (subscription.getStatut() == Statut_Subscription.REUSSI) {
+                changes.add(new TicketChange(event.getId(), GateIndex.keyOf(subscription.getCodeticket()), TicketChangeKind.ADDED));
+            }
+            montant += subscription.getMontant();
+        }
+        if (!changes.isEmpty()) {
+            manifestService.recordAll(changes);
+        }
+        emailOutboxService.enqueueOrderEmail(user.getEmail(), ids);
+
+        return new CartResponse(event.getId(), montant,
+                saved.stream().map(UtilSubscription::convertToSubscriptionResponse).toList());
+    }
+}
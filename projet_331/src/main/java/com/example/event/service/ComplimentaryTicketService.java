@@ -0,0 +1,216 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.ComplimentaryRequest;
+import com.example.event.dto.Subscription.ComplimentaryResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.model.TicketChange;
+import com.example.event.model.TicketChangeKind;
+import com.example.event.model.User;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.utils.GateIndex;
+import com.example.event.utils.QRCodeGenerator;
+import com.example.event.utils.TicketCodeSigner;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Press and sponsor tickets issued in bulk by the organizer of an event.
+ * <p>
+ * The seats of the whole batch are taken with one call to {@link SeatInventoryService}, the rows are
+ * inserted with JDBC batches and the manifest gets one ADDED change per ticket, all in a single
+ * transaction. Tickets are then either emailed through the outbox or downloaded as a ZIP of QR code
+ * PNGs, rendered on a dedicated fork-join pool one window at a time and streamed to the client.
+ */
+@Service
+public class ComplimentaryTicketService {
+
+    private static final String INSERT_SQL = "INSERT INTO subscription " +
+            "(montant, places, created_at, statut, inventory_pending, event_id, ticket_id, codeticket, holder_email) " +
+            "VALUES (0, ?, ?, 'REUSSI', ?, ?, ?, ?, ?)";
+
+    // Lots JDBC et fenêtres de rendu : la mémoire ne dépend pas de la taille de la commande
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SubscriptionRepository subscriptionRepository;
+    private final TicketCategoryRepository ticketCategoryRepository;
+    private final ProfileService profileService;
+    private final SeatInventoryService seatInventoryService;
+    private final TicketCodeSigner ticketCodeSigner;
+    private final ManifestService manifestService;
+    private final EmailOutboxService emailOutboxService;
+    private final ForkJoinPool qrPool;
+
+    @Value("${app.complimentary.max-count:5000}")
+    private int maxCount;
+
+    public ComplimentaryTicketService(JdbcTemplate jdbcTemplate,
+                                      SubscriptionRepository subscriptionRepository,
+                                      TicketCategoryRepository ticketCategoryRepository,
+                                      ProfileService profileService,
+                                      SeatInventoryService seatInventoryService,
+                                      TicketCodeSigner ticketCodeSigner,
+                                      ManifestService manifestService,
+                                      EmailOutboxService emailOutboxService,
+                                      @Value("${app.complimentary.qr-parallelism:0}") int qrParallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.subscriptionRepository = subscriptionRepository;
+        this.ticketCategoryRepository = ticketCategoryRepository;
+        this.profileService = profileService;
+        this.seatInventoryService = seatInventoryService;
+        this.ticketCodeSigner = ticketCodeSigner;
+        this.manifestService = manifestService;
+        this.emailOutboxService = emailOutboxService;
+        // Pool à part : un gros ZIP n'occupe pas le pool commun des parallel streams
+        this.qrPool = new ForkJoinPool(qrParallelism > 0 ? qrParallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void stopPool() {
+        qrPool.shutdownNow();
+    }
+
+    /**
+     * Issues the tickets and, when {@code sendEmails} is set, queues one ticket email per recipient.
+     */
+    @Transactional
+    public ComplimentaryResponse issue(ComplimentaryRequest request, boolean sendEmails) {
+        TicketCategory category = ticketCategoryRepository.findById(request.getId_ticket())
+                .orElseThrow(() -> new EntityNotFoundException("Ticket category not found"));
+        Event event = category.getEvent();
+        User user = profileService.getAuthenticatedUser();
+        if (event.getOrganizerProfile() == null || !event.getOrganizerProfile().getUser().getId().equals(user.getId())) {
+            throw new ForbiddenException("You are not the owner of this event.");
+        }
+        if (event.getStatut() == Statut_Event.ANNULE) {
+            throw new ForbiddenException("This event has been cancelled.");
+        }
+
+        List<String> recipients = request.getRecipients() == null ? List.of() : request.getRecipients();
+        if (sendEmails && recipients.isEmpty()) {
+            throw new BadRequestException("Recipients are required to email the tickets.");
+        }
+        if (recipients.stream().anyMatch(recipient -> recipient == null || !recipient.contains("@"))) {
+            throw new BadRequestException("Invalid recipient email.");
+        }
+        int count = request.getCount() != null ? request.getCount() : recipients.size();
+        if (!recipients.isEmpty() && count != recipients.size()) {
+            throw new BadRequestException("The count must match the number of recipients.");
+        }
+        if (count <= 0 || count > maxCount) {
+            throw new BadRequestException("The number of tickets must be between 1 and " + maxCount + ".");
+        }
+        int places = request.getPlaces() == null ? 1 : request.getPlaces();
+        if (places <= 0) {
+            throw new BadRequestException("The number of places must be positive.");
+        }
+
+        // Toutes les places du lot en une seule réservation gardée (catégorie puis événement)
+        Subscription seats = new Subscription();
+        seats.setEvent(event);
+        seats.setTicket(category);
+        seats.setPlaces(count * places);
+        seatInventoryService.reserve(seats);
+
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(ticketCodeSigner.issue(event.getId()));
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, indexes(count), BATCH_SIZE, (statement, i) -> {
+            statement.setInt(1, places);
+            statement.setTimestamp(2, now);
+            // Ledger mémoire : chaque ligne porte ses places jusqu'au report sur l'événement
+            statement.setBoolean(3, seats.isInventoryPending());
+            statement.setLong(4, event.getId());
+            statement.setLong(5, category.getId());
+            statement.setString(6, codes.get(i));
+            statement.setString(7, recipients.isEmpty() ? null : recipients.get(i));
+        });
+
+        List<TicketChange> changes = new ArrayList<>(count);
+        for (String code : codes) {
+            changes.add(new TicketChange(event.getId(), GateIndex.keyOf(code), TicketChangeKind.ADDED));
+        }
+        manifestService.recordAll(changes);
+
+        int emailed = 0;
+        if (sendEmails) {
+            for (int from = 0; from < count; from += BATCH_SIZE) {
+                List<Long> ids = subscriptionRepository.findIdsByCodes(codes.subList(from, Math.min(count, from + BATCH_SIZE)));
+                List<SubscriptionRepository.SubscriptionEmailView> batch = subscriptionRepository.findEmails(ids);
+                emailOutboxService.enqueueTicketEmails(batch);
+                emailed += batch.size();
+            }
+        }
+        return new ComplimentaryResponse(event.getId(), category.getId(), count, places, emailed, codes);
+    }
+
+    /**
+     * Writes one PNG per ticket into a ZIP. QR codes are rendered in parallel, a window at a time,
+     * so only one window of images is ever held in memory.
+     */
+    public void writeZip(List<String> codes, OutputStream output) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(output);
+        // Les PNG sont déjà compressés
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        for (int from = 0; from < codes.size(); from += BATCH_SIZE) {
+            List<String> window = codes.subList(from, Math.min(codes.size(), from + BATCH_SIZE));
+            List<byte[]> images;
+            try {
+                images = qrPool.submit(() -> window.parallelStream().map(ComplimentaryTicketService::render).toList()).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while rendering QR codes", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to render QR codes", e.getCause());
+            }
+            for (int i = 0; i < window.size(); i++) {
+                zip.putNextEntry(new ZipEntry(String.format("%05d-%s.png", from + i + 1,
+                        window.get(i).replaceAll("[^A-Za-z0-9-]", "_"))));
+                zip.write(images.get(i));
+                zip.closeEntry();
+            }
+            zip.flush();
+        }
+        zip.finish();
+    }
+
+    private static byte[] render(String code) {
+        try {
+            return QRCodeGenerator.generateQRCodeImage(code, 250, 250);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to render the QR code of " + code, e);
+        }
+    }
+
+    private static List<Integer> indexes(int count) {
+        List<Integer> indexes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,509 @@
+package com.example.event.service;
+
+import com.example.event.dto.Stats.OutboxMetricsDto;
+import com.example.event.model.EmailKind;
+import com.example.event.model.EmailOutbox;
+import com.example.event.model.PasswordResetToken;
+import com.example.event.model.Statut_Email;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.Subscription;
+import com.example.event.repository.EmailOutboxRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.utils.QRCodeGenerator;
+import com.example.event.utils.RateLimiter;
+import com.example.event.utils.SmtpConnectionPool;
+import com.example.event.utils.TransactionHooks;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for emails. Callers enqueue a row in their own transaction; once it commits,
+ * a bounded worker pool renders and sends the email, outside any transaction, in batches over the
+ * pooled SMTP connections. Failed sends are retried with exponential backoff and dead-lettered
+ * (ECHOUE) after {@code max-attempts}. While the SMTP circuit is open, emails wait without spending attempts.
+ * <p>
+ * A worker takes a lease on a row by pushing its {@code nextAttemptAt} forward before sending.
+ * A scheduled poller picks up rows whose after-commit dispatch was lost (full pool, restart, crash).
+ */
+@Service
+public class EmailOutboxService {
+
+    /** Recipient, subject and body of an email written by the caller. */
+    public record PlainEmail(String to, String subject, String body) {
+    }
+
+    // QR codes à joindre : contenu encodé par content id, référencé dans le html par cid:<id>
+    private record RenderedEmail(String to, String subject, String html, Map<String, String> qrCodes) {
+    }
+
+    private record Outgoing(EmailOutbox email, MimeMessage message) {
+    }
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final EmailSenderService emailSenderService;
+    private final MailTemplateService mailTemplateService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+
+    private final RateLimiter bulkRateLimiter;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private ThreadPoolExecutor workers;
+
+    @Value("${app.mail.outbox.workers:4}")
+    private int workerCount;
+
+    @Value("${app.mail.outbox.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff-ms:30000}")
+    private long initialBackoffMs;
+
+    @Value("${app.mail.outbox.max-backoff-ms:1800000}")
+    private long maxBackoffMs;
+
+    @Value("${app.mail.outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${app.mail.outbox.poll-batch-size:100}")
+    private int pollBatchSize;
+
+    // Emails sent back to back over one SMTP connection
+    @Value("${app.mail.outbox.send-batch-size:20}")
+    private int sendBatchSize;
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository,
+                              SubscriptionRepository subscriptionRepository,
+                              EmailSenderService emailSenderService,
+                              MailTemplateService mailTemplateService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.mail.outbox.bulk-rate-per-second:3}") double bulkRatePerSecond) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.emailSenderService = emailSenderService;
+        this.mailTemplateService = mailTemplateService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.bulkRateLimiter = new RateLimiter(bulkRatePerSecond);
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "email-outbox-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stopWorkers() throws InterruptedException {
+        workers.shutdown();
+        // Unsent rows stay EN_ATTENTE and are picked up after the restart
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /** Queues the ticket email of a subscription in the caller's transaction. */
+    public void enqueueTicketEmail(Subscription subscription) {
+        EmailOutbox email = new EmailOutbox();
+        email.setKind(EmailKind.TICKET);
+        email.setSubscriptionId(subscription.getId());
+        email.setRecipient(subscription.getVisitorProfile().getUser().getEmail());
+        enqueue(email);
+    }
+
+    /** Queues the ticket emails of subscriptions created in bulk, in the caller's transaction. */
+    public void enqueueTicketEmails(List<SubscriptionRepository.SubscriptionEmailView> recipients) {
+        List<EmailOutbox> rows = new ArrayList<>(recipients.size());
+        for (SubscriptionRepository.SubscriptionEmailView recipient : recipients) {
+            EmailOutbox email = new EmailOutbox();
+            email.setKind(EmailKind.TICKET);
+            email.setSubscriptionId(recipient.getId());
+            email.setRecipient(recipient.getEmail());
+            rows.add(email);
+        }
+        enqueueAll(rows);
+    }
+
+    /**
+     * Queues one confirmation for the subscriptions of a cart, in the caller's transaction.
+     * The ids travel in the body; the email is rendered from them when sent.
+     */
+    public void enqueueOrderEmail(String to, List<Long> subscriptionIds) {
+        EmailOutbox email = new EmailOutbox();
+        email.setKind(EmailKind.ORDER);
+        email.setSubscriptionId(subscriptionIds.get(0));
+        email.setRecipient(to);
+        email.setBody(subscriptionIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        enqueue(email);
+    }
+
+    /** Queues the offer sent when a paid waitlist request is promoted to a held subscription. */
+    public void enqueueWaitlistOffer(Subscription subscription) {
+        EmailOutbox email = new EmailOutbox();
+        email.setKind(EmailKind.WAITLIST);
+        email.setSubscriptionId(subscription.getId());
+        email.setRecipient(subscription.getVisitorProfile().getUser().getEmail());
+        enqueue(email);
+    }
+
+    /**
+     * Queues the reminder of each subscription in the caller's transaction. Tickets without any
+     * address (complimentary tickets handed out as a ZIP) are skipped.
+     */
+    public void enqueueReminders(List<SubscriptionRepository.SubscriptionEmailView> recipients) {
+        List<EmailOutbox> rows = new ArrayList<>(recipients.size());
+        for (SubscriptionRepository.SubscriptionEmailView recipient : recipients) {
+            if (recipient.getEmail() == null) {
+                continue;
+            }
+            EmailOutbox email = new EmailOutbox();
+            email.setKind(EmailKind.REMINDER);
+            email.setSubscriptionId(recipient.getId());
+            email.setRecipient(recipient.getEmail());
+            rows.add(email);
+        }
+        enqueueAll(rows);
+    }
+
+    /**
+     * Paces bulk senders (broadcasts, reminders) below the SMTP rate, so that ticket emails enqueued
+     * meanwhile are not stuck behind thousands of bulk rows. Blocks; call it outside any transaction.
+     */
+    public void acquireBulkPermits(int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            bulkRateLimiter.acquire();
+        }
+    }
+
+    /** Queues a password reset email (rendered from its template when sent) in the caller's transaction. */
+    public void enqueuePasswordReset(String to, String resetLink) {
+        EmailOutbox email = new EmailOutbox();
+        email.setKind(EmailKind.PASSWORD_RESET);
+        email.setRecipient(to);
+        email.setSubject("Password Reset Request");
+        email.setBody(resetLink);
+        enqueue(email);
+    }
+
+    /** Queues an already written plain-text email in the caller's transaction. */
+    public void enqueueEmail(String to, String subject, String body) {
+        EmailOutbox email = new EmailOutbox();
+        email.setKind(EmailKind.SIMPLE);
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setBody(body);
+        enqueue(email);
+    }
+
+    /**
+     * Queues many plain-text emails in the caller's transaction. After commit they are handed to
+     * the workers in send batches rather than one by one.
+     */
+    public void enqueueEmails(List<PlainEmail> emails) {
+        List<EmailOutbox> rows = new ArrayList<>(emails.size());
+        for (PlainEmail plain : emails) {
+            EmailOutbox email = new EmailOutbox();
+            email.setKind(EmailKind.SIMPLE);
+            email.setRecipient(plain.to());
+            email.setSubject(plain.subject());
+            email.setBody(plain.body());
+            rows.add(email);
+        }
+        enqueueAll(rows);
+    }
+
+    private void enqueue(EmailOutbox email) {
+        enqueueAll(List.of(email));
+    }
+
+    private void enqueueAll(List<EmailOutbox> emails) {
+        LocalDateTime now = LocalDateTime.now();
+        for (EmailOutbox email : emails) {
+            email.setStatut(Statut_Email.EN_ATTENTE);
+            email.setCreatedAt(now);
+            email.setNextAttemptAt(now);
+        }
+        List<Long> ids = emailOutboxRepository.saveAll(emails).stream().map(EmailOutbox::getId).toList();
+        // The rows are claimed by a worker: the caller's connection is still held during afterCommit,
+        // and taking a second one there deadlocks once every pooled connection belongs to a request
+        TransactionHooks.afterCommit(() -> {
+            try {
+                workers.execute(() -> dispatch(ids));
+            } catch (RejectedExecutionException e) {
+                // Pool full: the poller sends them
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:5000}")
+    public void pollDueEmails() {
+        List<Long> due;
+        do {
+            due = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<Long> ids = emailOutboxRepository.lockDue(now, PageRequest.of(0, pollBatchSize))
+                        .stream().map(EmailOutbox::getId).toList();
+                if (!ids.isEmpty()) {
+                    emailOutboxRepository.extendLease(ids, now.plusNanos(leaseMs * 1_000_000));
+                }
+                return ids;
+            });
+            for (int from = 0; from < due.size(); from += sendBatchSize) {
+                if (!submit(due.subList(from, Math.min(due.size(), from + sendBatchSize)))) {
+                    // Pool full: the lease expires and a later poll retries
+                    return;
+                }
+            }
+        } while (due.size() == pollBatchSize);
+    }
+
+    public OutboxMetricsDto getMetrics() {
+        return new OutboxMetricsDto(
+                emailOutboxRepository.countByStatut(Statut_Email.EN_ATTENTE),
+                emailOutboxRepository.countByStatut(Statut_Email.ECHOUE),
+                workers.getQueue().size(),
+                sent.get(),
+                failedAttempts.get());
+    }
+
+    private void dispatch(List<Long> ids) {
+        List<Long> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> locked = emailOutboxRepository.lockDueByIds(ids, now)
+                    .stream().map(EmailOutbox::getId).toList();
+            if (!locked.isEmpty()) {
+                emailOutboxRepository.extendLease(locked, now.plusNanos(leaseMs * 1_000_000));
+            }
+            return locked;
+        });
+        for (int from = 0; from < claimed.size(); from += sendBatchSize) {
+            if (!submit(claimed.subList(from, Math.min(claimed.size(), from + sendBatchSize)))) {
+                // Pool full: the lease expires and the poller sends the rest
+                return;
+            }
+        }
+    }
+
+    private boolean submit(List<Long> ids) {
+        List<Long> batch = new ArrayList<>(ids);
+        try {
+            workers.execute(() -> deliver(batch));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void deliver(List<Long> ids) {
+        List<Outgoing> outgoing = new ArrayList<>(ids.size());
+        for (EmailOutbox email : emailOutboxRepository.findAllById(ids)) {
+            if (email.getStatut() != Statut_Email.EN_ATTENTE) {
+                continue;
+            }
+            try {
+                MimeMessage message = buildMessage(email);
+                if (message == null) {
+                    finish(email.getId(), Statut_Email.ECHOUE, email.getAttempts(), "Subscription " + email.getSubscriptionId() + " no longer exists");
+                } else {
+                    outgoing.add(new Outgoing(email, message));
+                }
+            } catch (Exception e) {
+                failed(email, e);
+            }
+        }
+        if (outgoing.isEmpty()) {
+            return;
+        }
+
+        List<Exception> results;
+        try {
+            results = emailSenderService.send(outgoing.stream().map(Outgoing::message).toList());
+        } catch (SmtpConnectionPool.CircuitOpenException e) {
+            // Provider down: wait for the breaker without spending an attempt
+            for (Outgoing out : outgoing) {
+                postpone(out.email().getId(), e.getRetryAt());
+            }
+            return;
+        }
+        for (int i = 0; i < outgoing.size(); i++) {
+            EmailOutbox email = outgoing.get(i).email();
+            Exception failure = results.get(i);
+            if (failure == null) {
+                sent.incrementAndGet();
+                finish(email.getId(), Statut_Email.ENVOYE, email.getAttempts() + 1, null);
+            } else if (failure instanceof SmtpConnectionPool.CircuitOpenException open) {
+                postpone(email.getId(), open.getRetryAt());
+            } else {
+                failed(email, failure);
+            }
+        }
+    }
+
+    private MimeMessage buildMessage(EmailOutbox email) throws Exception {
+        if (email.getKind() == EmailKind.SIMPLE) {
+            return emailSenderService.buildEmail(email.getRecipient(), email.getSubject(), email.getBody());
+        }
+        if (email.getKind() == EmailKind.PASSWORD_RESET) {
+            String html = mailTemplateService.renderPasswordReset(
+                    new MailTemplateService.PasswordResetMail(email.getBody(), PasswordResetToken.EXPIRATION_TIME_MINUTES / 60));
+            return emailSenderService.buildHtmlEmail(email.getRecipient(), email.getSubject(), html);
+        }
+        RenderedEmail rendered = readOnlyTemplate.execute(status -> render(email));
+        if (rendered == null) {
+            return null;
+        }
+        if (rendered.qrCodes().isEmpty()) {
+            return emailSenderService.buildHtmlEmail(rendered.to(), rendered.subject(), rendered.html());
+        }
+        Map<String, byte[]> qrCodes = new LinkedHashMap<>();
+        for (Map.Entry<String, String> qrCode : rendered.qrCodes().entrySet()) {
+            qrCodes.put(qrCode.getKey(), QRCodeGenerator.cachedQRCodeImage(qrCode.getValue(), 250, 250));
+        }
+        return emailSenderService.buildEmailWithQRCodes(rendered.to(), rendered.subject(), rendered.html(), qrCodes);
+    }
+
+    private void failed(EmailOutbox email, Exception e) {
+        failedAttempts.incrementAndGet();
+        int attempts = email.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            finish(email.getId(), Statut_Email.ECHOUE, attempts, e.toString());
+        } else {
+            retryLater(email.getId(), attempts, e.toString());
+        }
+    }
+
+    private void postpone(Long id, long retryAtMillis) {
+        LocalDateTime retryAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(retryAtMillis), ZoneId.systemDefault());
+        transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.findById(id)
+                .ifPresent(email -> email.setNextAttemptAt(retryAt)));
+    }
+
+    private RenderedEmail render(EmailOutbox email) {
+        if (email.getKind() == EmailKind.ORDER) {
+            return renderOrder(email);
+        }
+        Subscription subscription = subscriptionRepository.findById(email.getSubscriptionId()).orElse(null);
+        if (subscription == null) {
+            return null;
+        }
+        MailTemplateService.TicketMail mail = new MailTemplateService.TicketMail(
+                subscription.getEvent().getTitle(),
+                subscription.getEvent().getDebut(),
+                subscription.getEvent().getLieu(),
+                subscription.getVisitorProfile() == null ? subscription.getHolderEmail()
+                        : subscription.getVisitorProfile().getName() + " " + subscription.getVisitorProfile().getSurname(),
+                subscription.getPlaces(),
+                subscription.getMontant(),
+                subscription.getCodeticket());
+        if (email.getKind() == EmailKind.WAITLIST) {
+            // Pas encore de billet : pas de QR code
+            return new RenderedEmail(email.getRecipient(), "Places available for " + mail.eventTitle(),
+                    mailTemplateService.renderWaitlistOffer(mail, subscription.getHoldExpiresAt()), Map.of());
+        }
+        Map<String, String> qrCode = Map.of("qrCodeImage", subscription.getCodeticket());
+        if (email.getKind() == EmailKind.REMINDER) {
+            return new RenderedEmail(email.getRecipient(), "Reminder: " + mail.eventTitle() + " is tomorrow",
+                    mailTemplateService.renderReminder(mail), qrCode);
+        }
+        return new RenderedEmail(email.getRecipient(), "Ticket Confirmation for Event: " + mail.eventTitle(),
+                mailTemplateService.renderTicket(mail), qrCode);
+    }
+
+    // Une commande : les billets réglés avec leur QR code, les autres avec leur date limite de paiement
+    private RenderedEmail renderOrder(EmailOutbox email) {
+        List<Long> ids = Arrays.stream(email.getBody().split(",")).map(Long::valueOf).toList();
+        List<Subscription> subscriptions = subscriptionRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(Subscription::getId))
+                .toList();
+        if (subscriptions.isEmpty()) {
+            return null;
+        }
+        Subscription first = subscriptions.get(0);
+        List<MailTemplateService.OrderLine> lines = new ArrayList<>(subscriptions.size());
+        Map<String, String> qrCodes = new LinkedHashMap<>();
+        int montant = 0;
+        for (Subscription subscription : subscriptions) {
+            boolean confirmed = subscription.getStatut() == Statut_Subscription.REUSSI;
+            lines.add(new MailTemplateService.OrderLine(subscription.getId(),
+                    subscription.getTicket() != null ? subscription.getTicket().getIntitule() : null,
+                    subscription.getPlaces(), subscription.getMontant(), subscription.getCodeticket(),
+                    confirmed, subscription.getHoldExpiresAt()));
+            if (confirmed) {
+                qrCodes.put("qr-" + subscription.getId(), subscription.getCodeticket());
+            }
+            montant += subscription.getMontant();
+        }
+        MailTemplateService.OrderMail mail = new MailTemplateService.OrderMail(
+                first.getEvent().getTitle(),
+                first.getEvent().getDebut(),
+                first.getEvent().getLieu(),
+                first.getVisitorProfile().getName() + " " + first.getVisitorProfile().getSurname(),
+                montant,
+                lines);
+        return new RenderedEmail(email.getRecipient(), "Order Confirmation for Event: " + mail.eventTitle(),
+                mailTemplateService.renderOrder(mail), qrCodes);
+    }
+
+    private void retryLater(Long id, int attempts, String error) {
+        // Exponential backoff with jitter: 1x, 2x, 4x... the initial delay, capped
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.findById(id).ifPresent(email -> {
+            email.setAttempts(attempts);
+            email.setLastError(truncate(error));
+            email.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000));
+        }));
+    }
+
+    private void finish(Long id, Statut_Email statut, int attempts, String error) {
+        transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.findById(id).ifPresent(email -> {
+            email.setStatut(statut);
+            email.setAttempts(attempts);
+            email.setLastError(truncate(error));
+            if (statut == Statut_Email.ENVOYE) {
+                email.setSentAt(LocalDateTime.now());
+            }
+        }));
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+}
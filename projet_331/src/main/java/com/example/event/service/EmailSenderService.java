@@ -1,64 +1,116 @@
 package com.example.event.service;
 
+import com.example.event.utils.SmtpConnectionPool;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class EmailSenderService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private SmtpConnectionPool smtpConnectionPool;
+
     public void sendEmail(
                           String to,
                           String subject,
                           String body){
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom("isabelle.nishimwe@facsciences-uy1.cm");
-        message.setTo(to);
-        message.setText(body);
-        message.setSubject(subject);
+        sendOne(buildEmail(to, subject, body));
+        System.out.println("Simple mail envoyé avec succès...");
+    }
 
-        mailSender.send(message);
+    public void sendEmailWithQRCode(String to, String subject, String html, byte[] qrCode) {
+        sendOne(buildEmailWithQRCode(to, subject, html, qrCode));
+        System.out.println("Mail avec QR Code envoyé avec succès...");
+    }
 
-        System.out.println("Simple mail envoyé avec succès...");
+    /**
+     * Sends several messages over one pooled SMTP connection.
+     *
+     * @return one entry per message: null when accepted, otherwise the failure.
+     */
+    public List<Exception> send(List<MimeMessage> messages) {
+        return smtpConnectionPool.send(messages);
     }
 
-    public void sendEmailWithQRCode(String to, String subject, String body, byte[] qrCode) {
+    public MimeMessage buildEmail(String to, String subject, String body) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+            helper.setFrom("isabelle.nishimwe@facsciences-uy1.cm");
+            helper.setTo(to);
+            helper.setSubject(subject);
+            helper.setText(body);
+            return message;
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Failed to build email", e);
+        }
+    }
 
+    public MimeMessage buildHtmlEmail(String to, String subject, String html) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
             helper.setFrom("isabelle.nishimwe@facsciences-uy1.cm");
             helper.setTo(to);
             helper.setSubject(subject);
+            helper.setText(html, true);
+            return message;
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Failed to build email", e);
+        }
+    }
 
-            // Set the HTML body
-            // The body should be an HTML string that references the inline image
-            String htmlContent = "<html><body>" +
-                                 body.replace("\n", "<br/>") +
-                                 "<br/><br/>" +
-                                 "<b>Your QR Code Ticket:</b><br/>" +
-                                 "<img src='cid:qrCodeImage'/>" +
-                                 "</body></html>";
-            helper.setText(htmlContent, true);
+    /**
+     * @param html body rendered by {@link MailTemplateService}, referencing the QR code as {@code cid:qrCodeImage}
+     */
+    public MimeMessage buildEmailWithQRCode(String to, String subject, String html, byte[] qrCode) {
+        return buildEmailWithQRCodes(to, subject, html, Map.of("qrCodeImage", qrCode));
+    }
 
-            // Add the QR code as an inline attachment
-            helper.addInline("qrCodeImage", new ByteArrayResource(qrCode), "image/png");
+    /**
+     * @param qrCodes PNG QR codes by content id, referenced from the html as {@code cid:<id>}
+     */
+    public MimeMessage buildEmailWithQRCodes(String to, String subject, String html, Map<String, byte[]> qrCodes) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
-            mailSender.send(message);
-            System.out.println("Mail avec QR Code envoyé avec succès...");
+            helper.setFrom("isabelle.nishimwe@facsciences-uy1.cm");
+            helper.setTo(to);
+            helper.setSubject(subject);
 
+            helper.setText(html, true);
+
+            // Add the QR codes as inline attachments
+            for (Map.Entry<String, byte[]> qrCode : qrCodes.entrySet()) {
+                helper.addInline(qrCode.getKey(), new ByteArrayResource(qrCode.getValue()), "image/png");
+            }
+            return message;
         } catch (MessagingException e) {
-            // It's a good practice to handle the exception
-            // For example, log it or wrap it in a custom application exception
-            e.printStackTrace();
-            // Or throw new RuntimeException("Failed to send email with QR code", e);
+            // Propagated so that the outbox can retry the delivery
+            throw new MailPreparationException("Failed to build email with QR code", e);
+        }
+    }
+
+    private void sendOne(MimeMessage message) {
+        Exception failure = smtpConnectionPool.send(List.of(message)).get(0);
+        if (failure instanceof MailSendException mailSendException) {
+            throw mailSendException;
+        }
+        if (failure != null) {
+            throw new MailSendException("Failed to send email", failure);
         }
     }
 }
@@ -0,0 +1,214 @@
+package com.example.event.service;
+
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Job.BackgroundJobResponse;
+import com.example.event.model.*;
+import com.example.event.repository.BackgroundJobRepository;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.utils.GateIndex;
+import com.example.event.utils.TransientRetry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cancels an event without deleting it.
+ * <p>
+ * The request only flips the event to {@code ANNULE} (which stops new bookings, reminders and
+ * waitlist promotions) and starts a background job. The job then works through the active
+ * subscriptions in chunks, each in its own short transaction: lock a page, give the seats back,
+ * move paid tickets to {@code A_REMBOURSER} and the rest to {@code ANNULE} with two bulk updates,
+ * revoke the tickets at the gate and in the offline manifest, and write the notification emails to
+ * the outbox with the job checkpoint. Row locks are held for one chunk only, so a large event never
+ * blocks bookings or scans on other events, and a job interrupted by a restart resumes where it stopped.
+ */
+@Service
+public class EventCancellationService implements BackgroundJobHandler {
+
+    private static final List<Statut_Job> ACTIVE = List.of(Statut_Job.EN_ATTENTE, Statut_Job.EN_COURS);
+
+    private final EventRepository eventRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final ProfileService profileService;
+    private final BackgroundJobService backgroundJobService;
+    private final SeatInventoryService seatInventoryService;
+    private final VisitorCapService visitorCapService;
+    private final PromoCodeService promoCodeService;
+    private final WaitlistService waitlistService;
+    private final GateService gateService;
+    private final ManifestService manifestService;
+    private final EmailOutboxService emailOutboxService;
+    private final BackgroundJobRepository backgroundJobRepository;
+    private final TransientRetry transientRetry;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.cancellation.chunk-size:500}")
+    private int chunkSize;
+
+    public EventCancellationService(EventRepository eventRepository,
+                                    SubscriptionRepository subscriptionRepository,
+                                    ProfileService profileService,
+                                    BackgroundJobService backgroundJobService,
+                                    SeatInventoryService seatInventoryService,
+                                    VisitorCapService visitorCapService,
+                                    PromoCodeService promoCodeService,
+                                    WaitlistService waitlistService,
+                                    GateService gateService,
+                                    ManifestService manifestService,
+                                    EmailOutboxService emailOutboxService,
+                                    BackgroundJobRepository backgroundJobRepository,
+                                    TransientRetry transientRetry,
+                                    PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.profileService = profileService;
+        this.backgroundJobService = backgroundJobService;
+        this.seatInventoryService = seatInventoryService;
+        this.visitorCapService = visitorCapService;
+        this.promoCodeService = promoCodeService;
+        this.waitlistService = waitlistService;
+        this.gateService = gateService;
+        this.manifestService = manifestService;
+        this.emailOutboxService = emailOutboxService;
+        this.backgroundJobRepository = backgroundJobRepository;
+        this.transientRetry = transientRetry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public JobKind kind() {
+        return JobKind.EVENT_CANCELLATION;
+    }
+
+    /**
+     * Cancels the event for its organizer or an admin; the subscriptions are processed in the
+     * background and the progress is followed on {@code /job/{id}}. Called again on a cancelled
+     * event whose job failed, it starts a new job for the subscriptions left.
+     */
+    @Transactional
+    public BackgroundJobResponse cancel(Long eventId, String reason) {
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Évènement introuvable"));
+        User user = profileService.getAuthenticatedUser();
+        if (user.getRole() != UserRole.ROLE_ADMIN && (event.getOrganizerProfile() == null
+                || !event.getOrganizerProfile().getUser().getId().equals(user.getId()))) {
+            throw new ForbiddenException("You are not the owner of this event.");
+        }
+        if (event.getStatut() == Statut_Event.TERMINE) {
+            throw new ForbiddenException("A finished event cannot be cancelled.");
+        }
+        // Gardé : deux annulations simultanées ne lancent qu'une tâche
+        if (eventRepository.markCancelled(eventId) == 0) {
+            return restart(event, user);
+        }
+        // Les réservations en cours sont validées avant l'annulation ou refusées : aucune ne passe après la tâche
+        seatInventoryService.closeForCancellation(eventId);
+        waitlistService.cancelAll(eventId);
+
+        BackgroundJob job = backgroundJobService.start(JobKind.EVENT_CANCELLATION, eventId, user.getId(),
+                subjectOf(event), message(event, reason));
+        return backgroundJobService.toResponse(job);
+    }
+
+    private BackgroundJobResponse restart(Event event, User user) {
+        if (backgroundJobRepository.existsByKindAndEventIdAndStatutIn(JobKind.EVENT_CANCELLATION, event.getId(), ACTIVE)
+                || subscriptionRepository.countActiveByEvent(event.getId()) == 0) {
+            throw new ForbiddenException("This event is already cancelled.");
+        }
+        // La tâche précédente a échoué : même message, pour les inscriptions restantes seulement
+        BackgroundJob failed = backgroundJobRepository.findByEventIdOrderByIdDesc(event.getId()).stream()
+                .filter(job -> job.getKind() == JobKind.EVENT_CANCELLATION)
+                .findFirst()
+                .orElse(null);
+        BackgroundJob job = backgroundJobService.start(JobKind.EVENT_CANCELLATION, event.getId(), user.getId(),
+                failed != null ? failed.getSubject() : subjectOf(event),
+                failed != null ? failed.getPayload() : message(event, null));
+        return backgroundJobService.toResponse(job);
+    }
+
+    private static String subjectOf(Event event) {
+        return "Event cancelled: " + event.getTitle();
+    }
+
+    private static String message(Event event, String reason) {
+        StringBuilder body = new StringBuilder("Hello,\n\nThe event \"").append(event.getTitle())
+                .append("\" you registered for has been cancelled.\n");
+        if (reason != null && !reason.isBlank()) {
+            body.append("Reason: ").append(reason.strip()).append("\n");
+        }
+        body.append("\nYour ticket is no longer valid. Paid tickets will be refunded.");
+        return body.length() <= 4000 ? body.toString() : body.substring(0, 4000);
+    }
+
+    @Override
+    public void process(BackgroundJob job) throws InterruptedException {
+        if (job.getLastKey() == null) {
+            backgroundJobService.updateTotal(job, subscriptionRepository.countActiveByEvent(job.getEventId()));
+        }
+        while (true) {
+            // Un verrou qui expire ne fait pas échouer la tâche : le lot est rejoué
+            Integer cancelled = transientRetry.execute(() -> transactionTemplate.execute(status -> cancelChunk(job)));
+            if (cancelled == null || cancelled == 0) {
+                return;
+            }
+            // Cadence après coup, hors transaction : aucun verrou tenu pendant l'attente
+            emailOutboxService.acquireBulkPermits(cancelled);
+        }
+    }
+
+    private int cancelChunk(BackgroundJob job) {
+        Long eventId = job.getEventId();
+        // Sans SKIP LOCKED : une réservation ou un paiement en cours est attendu, pas oublié
+        List<Subscription> subscriptions = subscriptionRepository.lockActiveByEvent(eventId, PageRequest.of(0, chunkSize));
+        if (subscriptions.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(subscriptions.size());
+        List<String> codes = new ArrayList<>(subscriptions.size());
+        List<TicketChange> changes = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            ids.add(subscription.getId());
+            codes.add(subscription.getCodeticket());
+            if (subscription.getStatut() == Statut_Subscription.REUSSI || subscription.getStatut() == Statut_Subscription.UTILISE) {
+                changes.add(new TicketChange(eventId, GateIndex.keyOf(subscription.getCodeticket()), TicketChangeKind.REMOVED));
+            }
+            if (subscription.getVisitorProfile() != null) {
+                visitorCapService.release(eventId, subscription.getVisitorProfile().getId(), subscription.getPlaces());
+            }
+        }
+        seatInventoryService.releaseAll(subscriptions);
+        promoCodeService.releaseAll(subscriptions);
+        // Après releaseAll : ses écritures sont envoyées avant les mises à jour en masse
+        subscriptionRepository.markRefundPending(ids);
+        subscriptionRepository.markCancelled(ids);
+        gateService.revokeAllAfterCommit(eventId, codes);
+        if (!changes.isEmpty()) {
+            manifestService.recordAll(changes);
+        }
+
+        // Un email par adresse dans le lot, même pour plusieurs billets
+        Set<String> recipients = new LinkedHashSet<>();
+        for (SubscriptionRepository.SubscriptionEmailView view : subscriptionRepository.findEmails(ids)) {
+            if (view.getEmail() != null) {
+                recipients.add(view.getEmail());
+            }
+        }
+        emailOutboxService.enqueueEmails(recipients.stream()
+                .map(email -> new EmailOutboxService.PlainEmail(email, job.getSubject(), job.getPayload()))
+                .toList());
+        backgroundJobService.checkpoint(job, ids.size(), ids.get(ids.size() - 1));
+        return ids.size();
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.event.service;
 
+import com.example.event.Exception.BadRequestException;
 import com.example.event.Exception.EntityNotFoundException;
 import com.example.event.Exception.ForbiddenException;
 import com.example.event.dto.Event.EventRequest;
 import com.example.event.dto.Event.EventResponse;
 import com.example.event.model.Event;
+import com.example.event.model.InventoryMode;
 import com.example.event.model.OrganizerProfile;
 import com.example.event.model.Statut_Event;
 import com.example.event.model.User;
@@ -14,6 +16,7 @@ import com.example.event.utils.UtilEvent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -26,6 +29,8 @@ public class EventService {
     private final EventRepository eventRepository;
     private final ProfileService profileService;
     private final OrganizerProfileRepository organizerProfileRepository;
+    private final SeatInventoryService seatInventoryService;
+    private final BroadcastService broadcastService;
 
     public ResponseEntity<?> createEvent(EventRequest eventRequest) {
         User user = profileService.getAuthenticatedUser();
@@ -42,6 +47,7 @@ public class EventService {
         event.setLieu(eventRequest.getLieu());
         event.setPlaces(eventRequest.getPlaces());
         event.setProfil_url(eventRequest.getProfil_url());
+        event.setMaxPlacesPerVisitor(checkedCap(eventRequest.getMaxPlacesPerVisitor()));
         event.setOrganizerProfile(organizerProfile);
 
         if (eventRequest.getDebut().isAfter(LocalDate.now())) {
@@ -58,21 +64,21 @@ public class EventService {
         organizerProfile.getEvents().add(event);
         organizerProfileRepository.save(organizerProfile);
 
-        EventResponse eventResponse = UtilEvent.convertToEventResponse(event);
+        EventResponse eventResponse = toEventResponse(event);
         return ResponseEntity.ok(eventResponse);
     }
 
     public ResponseEntity<?> findEventById(Long id) {
         Event event = eventRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Évènement introuvable"));
-        EventResponse eventResponse = UtilEvent.convertToEventResponse(event);
+        EventResponse eventResponse = toEventResponse(event);
         return ResponseEntity.ok(eventResponse);
     }
 
     public ResponseEntity<?> getAllEvents() {
         List<Event> events = eventRepository.findAll();
         List<EventResponse> eventResponses = events.stream()
-                .map(UtilEvent::convertToEventResponse)
+                .map(this::toEventResponse)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(eventResponses);
     }
@@ -91,6 +97,7 @@ public class EventService {
         return ResponseEntity.ok("Suppression Reussie !!!");
     }
 
+    @Transactional
     public ResponseEntity<?> updateEvent(EventRequest eventRequest, Long id) {
         Event event = eventRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Évènement introuvable"));
@@ -101,17 +108,30 @@ public class EventService {
             throw new ForbiddenException("You are not the owner of this event.");
         }
 
+        LocalDate oldDebut = event.getDebut();
+        LocalDate oldFin = event.getFin();
+        String oldLieu = event.getLieu();
+
         event.setTitle(eventRequest.getTitle());
         event.setDebut(eventRequest.getDebut());
         event.setFin(eventRequest.getFin());
         event.setLieu(eventRequest.getLieu());
-        event.setPlaces(eventRequest.getPlaces());
+        if (event.getInventoryMode() == InventoryMode.SEAT_BUCKETS) {
+            // Les places restantes sont réparties dans les tranches, pas sur la ligne de l'événement
+            seatInventoryService.resetBucketPlaces(event.getId(), eventRequest.getPlaces());
+        } else {
+            event.setPlaces(eventRequest.getPlaces());
+        }
         event.setProfil_url(eventRequest.getProfil_url());
         event.setDescription(eventRequest.getDescription());
+        event.setMaxPlacesPerVisitor(checkedCap(eventRequest.getMaxPlacesPerVisitor()));
 
         eventRepository.save(event);
+        seatInventoryService.invalidate(event.getId());
+        // Les inscrits sont prévenus en arrière-plan ; l'avancement se suit sur /job/event/{id}
+        broadcastService.announceEventChange(event, oldDebut, oldFin, oldLieu, user.getId());
 
-        EventResponse eventResponse = UtilEvent.convertToEventResponse(event);
+        EventResponse eventResponse = toEventResponse(event);
         return ResponseEntity.ok(eventResponse);
     }
 
@@ -123,9 +143,23 @@ public class EventService {
         }
 
         List<EventResponse> eventResponses = organizerProfile.getEvents().stream()
-                .map(UtilEvent::convertToEventResponse)
+                .map(this::toEventResponse)
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(eventResponses);
     }
+
+    private static Integer checkedCap(Integer maxPlacesPerVisitor) {
+        if (maxPlacesPerVisitor != null && maxPlacesPerVisitor <= 0) {
+            throw new BadRequestException("The maximum number of places per visitor must be positive.");
+        }
+        return maxPlacesPerVisitor;
+    }
+
+    // Places affichées selon la stratégie de réservation active (ledger mémoire ou base)
+    private EventResponse toEventResponse(Event event) {
+        EventResponse eventResponse = UtilEvent.convertToEventResponse(event);
+        eventResponse.setPlaces(seatInventoryService.remainingPlaces(event));
+        return eventResponse;
+    }
 }
@@ -0,0 +1,344 @@
+package com.example.event.service;
+
+import com.example.event.Exception.EntityAlreadyExistException;
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.BatchValidationResult;
+import com.example.event.dto.Subscription.GateStatusResponse;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.dto.Subscription.TicketScanResult;
+import com.example.event.model.Event;
+import com.example.event.model.OrganizerProfile;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.TicketChange;
+import com.example.event.model.TicketChangeKind;
+import com.example.event.model.User;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketChangeRepository;
+import com.example.event.utils.GateIndex;
+import com.example.event.utils.TicketCodeSigner;
+import com.example.event.utils.TransactionHooks;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gate mode: at doors-open the organizer loads every valid ticket of an event into a {@link GateIndex}.
+ * Scans are then answered from memory, with no query and no entity loading. Check-ins are written
+ * to the database in batches (write-behind). A check-in accepted in memory but not yet flushed is
+ * lost if the node stops abruptly. The index belongs to one node, so all the scanners of an event
+ * must reach the same node while its gate is open.
+ * <p>
+ * Codes the index does not know about fall back to {@link SubscriptionService#validateTicket}.
+ * These are unsigned legacy codes and tickets paid after the gate was opened.
+ */
+@Service
+public class GateService {
+
+    private static final class Gate {
+        final GateIndex index;
+        final String[] ticketNames;
+        final String organizerEmail;
+        final String organizerName;
+        final String title;
+        final LocalDate debut;
+        final String lieu;
+        final String profilUrl;
+        final AtomicLong checkedIn = new AtomicLong();
+
+        Gate(GateIndex index, String[] ticketNames, Event event) {
+            this.index = index;
+            this.ticketNames = ticketNames;
+            this.organizerEmail = event.getOrganizerProfile().getUser().getEmail();
+            this.organizerName = event.getOrganizerProfile().getName();
+            this.title = event.getTitle();
+            this.debut = event.getDebut();
+            this.lieu = event.getLieu();
+            this.profilUrl = event.getProfil_url();
+        }
+    }
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final TicketChangeRepository ticketChangeRepository;
+    private final EventRepository eventRepository;
+    private final ProfileService profileService;
+    private final TicketCodeSigner ticketCodeSigner;
+    private final AttendanceService attendanceService;
+    private final TransactionTemplate transactionTemplate;
+
+    private record PendingCheckIn(long subscriptionId, long eventId, long codeKey, String category, int places) {
+    }
+
+    private final Map<Long, Gate> gates = new ConcurrentHashMap<>();
+    private final Queue<PendingCheckIn> pendingCheckIns = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    @Value("${app.gate.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    public GateService(SubscriptionRepository subscriptionRepository, TicketChangeRepository ticketChangeRepository,
+                       EventRepository eventRepository, ProfileService profileService,
+                       TicketCodeSigner ticketCodeSigner, AttendanceService attendanceService,
+                       PlatformTransactionManager transactionManager) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.ticketChangeRepository = ticketChangeRepository;
+        this.eventRepository = eventRepository;
+        this.profileService = profileService;
+        this.ticketCodeSigner = ticketCodeSigner;
+        this.attendanceService = attendanceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public GateStatusResponse open(Long eventId) {
+        ownedEvent(eventId);
+        // Opening again keeps the gate: a fresh index would forget the check-ins not flushed yet
+        if (!gates.containsKey(eventId)) {
+            // Check-ins left by an earlier gate reach the database before the tickets are read again
+            flushCheckIns();
+            gates.putIfAbsent(eventId, transactionTemplate.execute(status -> load(eventId)));
+        }
+        return status(eventId);
+    }
+
+    private Gate load(Long eventId) {
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Event not found with id: " + eventId));
+        List<SubscriptionRepository.GateTicketView> tickets = subscriptionRepository.findGateTickets(eventId);
+
+        GateIndex index = new GateIndex(tickets.size());
+        Map<String, Integer> categories = new HashMap<>();
+        List<String> ticketNames = new ArrayList<>();
+        for (SubscriptionRepository.GateTicketView ticket : tickets) {
+            if (ticket.getCodeticket() == null) {
+                continue;
+            }
+            int category = categories.computeIfAbsent(String.valueOf(ticket.getTicketName()), name -> {
+                ticketNames.add(ticket.getTicketName());
+                return ticketNames.size() - 1;
+            });
+            index.put(ticket.getCodeticket(), ticket.getId(), ticket.getPlaces(), category,
+                    ticket.getStatut() == Statut_Subscription.UTILISE);
+        }
+        return new Gate(index, ticketNames.toArray(new String[0]), event);
+    }
+
+    public GateStatusResponse close(Long eventId) {
+        ownedEvent(eventId);
+        // Flush before and after removal so that no in-memory check-in is missed by the database path
+        flushCheckIns();
+        gates.remove(eventId);
+        flushCheckIns();
+        return status(eventId);
+    }
+
+    public GateStatusResponse status(Long eventId) {
+        Gate gate = gates.get(eventId);
+        if (gate == null) {
+            return new GateStatusResponse(eventId, false, 0, 0, pendingCount.get());
+        }
+        return new GateStatusResponse(eventId, true, gate.index.size(), gate.checkedIn.get(), pendingCount.get());
+    }
+
+    /**
+     * Validates a scanned code from memory.
+     *
+     * @return null when the code must go through the database path instead.
+     */
+    public SubscriptionResponse validate(String ticketCode) {
+        Scan scan = scan(ticketCode);
+        if (scan == null) {
+            return null;
+        }
+        switch (scan.result()) {
+            case WRONG_ORGANIZER -> throw new ForbiddenException("You can only validate tickets for your own events.");
+            case ALREADY_USED -> throw new EntityAlreadyExistException("This ticket has already been used.");
+            case INVALID -> throw new ForbiddenException("This ticket is not valid for use.");
+            default -> {
+                return toResponse(scan.eventId(), scan.gate(), scan.slot(), ticketCode);
+            }
+        }
+    }
+
+    /**
+     * Batch flavour of {@link #validate}: same in-memory check-in, with a compact result.
+     *
+     * @return null when the code must go through the database path instead.
+     */
+    public BatchValidationResult validateForBatch(String ticketCode) {
+        Scan scan = scan(ticketCode);
+        if (scan == null) {
+            return null;
+        }
+        if (scan.slot() < 0) {
+            return new BatchValidationResult(ticketCode, scan.result(), null, null, null);
+        }
+        GateIndex index = scan.gate().index;
+        return new BatchValidationResult(ticketCode, scan.result(), index.subscriptionId(scan.slot()),
+                index.places(scan.slot()), scan.gate().ticketNames[index.category(scan.slot())]);
+    }
+
+    private record Scan(long eventId, Gate gate, int slot, TicketScanResult result) {
+    }
+
+    private Scan scan(String ticketCode) {
+        if (gates.isEmpty()) {
+            return null;
+        }
+        Long eventId = ticketCodeSigner.verify(ticketCode);
+        Gate gate = eventId == null ? null : gates.get(eventId);
+        if (gate == null) {
+            return null;
+        }
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (!gate.organizerEmail.equals(email)) {
+            return new Scan(eventId, gate, -1, TicketScanResult.WRONG_ORGANIZER);
+        }
+        long codeKey = GateIndex.keyOf(ticketCode);
+        int slot = gate.index.find(codeKey);
+        if (slot < 0 || gate.index.state(slot) == GateIndex.AMBIGUOUS) {
+            return null;
+        }
+        if (!gate.index.checkIn(slot)) {
+            boolean used = gate.index.state(slot) == GateIndex.USED;
+            return new Scan(eventId, gate, slot, used ? TicketScanResult.ALREADY_USED : TicketScanResult.INVALID);
+        }
+        gate.checkedIn.incrementAndGet();
+        pendingCheckIns.add(new PendingCheckIn(gate.index.subscriptionId(slot), eventId, codeKey,
+                gate.ticketNames[gate.index.category(slot)], gate.index.places(slot)));
+        pendingCount.incrementAndGet();
+        return new Scan(eventId, gate, slot, TicketScanResult.OK);
+    }
+
+    /** Keeps a deleted or cancelled ticket from being admitted by an open gate. */
+    public void revokeAfterCommit(Long eventId, String ticketCode) {
+        TransactionHooks.afterCommit(() -> {
+            Gate gate = gates.get(eventId);
+            int slot = gate == null || ticketCode == null ? -1 : gate.index.find(ticketCode);
+            if (slot >= 0) {
+                gate.index.revoke(slot);
+            }
+        });
+    }
+
+    /** Same as {@link #revokeAfterCommit} for a batch of tickets of one event. */
+    public void revokeAllAfterCommit(Long eventId, List<String> ticketCodes) {
+        TransactionHooks.afterCommit(() -> {
+            Gate gate = gates.get(eventId);
+            if (gate == null) {
+                return;
+            }
+            for (String ticketCode : ticketCodes) {
+                int slot = ticketCode == null ? -1 : gate.index.find(ticketCode);
+                if (slot >= 0) {
+                    gate.index.revoke(slot);
+                }
+            }
+        });
+    }
+
+    /** Applies check-ins merged from offline scanners to an open gate. */
+    public void markUsedAfterCommit(Long eventId, List<String> ticketCodes) {
+        TransactionHooks.afterCommit(() -> {
+            Gate gate = gates.get(eventId);
+            if (gate == null) {
+                return;
+            }
+            for (String ticketCode : ticketCodes) {
+                int slot = gate.index.find(ticketCode);
+                if (slot >= 0 && gate.index.checkIn(slot)) {
+                    gate.checkedIn.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.gate.flush-interval-ms:500}")
+    public void flushCheckIns() {
+        List<PendingCheckIn> batch = new ArrayList<>(flushBatchSize);
+        PendingCheckIn checkIn;
+        while ((checkIn = pendingCheckIns.poll()) != null) {
+            batch.add(checkIn);
+            if (batch.size() == flushBatchSize) {
+                flushBatch(batch);
+                batch = new ArrayList<>(flushBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushCheckIns();
+    }
+
+    private void flushBatch(List<PendingCheckIn> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        List<TicketChange> changes = new ArrayList<>(batch.size());
+        for (PendingCheckIn checkIn : batch) {
+            ids.add(checkIn.subscriptionId());
+            changes.add(new TicketChange(checkIn.eventId(), checkIn.codeKey(), TicketChangeKind.CHECKED_IN));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                subscriptionRepository.markUsed(ids);
+                // Offline scanners learn about gate check-ins through the change log
+                ticketChangeRepository.saveAll(changes);
+            });
+            pendingCount.addAndGet(-batch.size());
+            for (PendingCheckIn checkIn : batch) {
+                attendanceService.recordCheckInAfterCommit(checkIn.eventId(), checkIn.category(), checkIn.places());
+            }
+        } catch (RuntimeException e) {
+            // Kept for the next flush
+            pendingCheckIns.addAll(batch);
+            throw e;
+        }
+    }
+
+    private Event ownedEvent(Long eventId) {
+        User user = profileService.getAuthenticatedUser();
+        OrganizerProfile organizerProfile = user.getOrganizerProfile();
+        if (organizerProfile == null) {
+            throw new ForbiddenException("Only organizers can open the gate.");
+        }
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Event not found with id: " + eventId));
+        if (!Objects.equals(event.getOrganizerProfile().getId(), organizerProfile.getId())) {
+            throw new ForbiddenException("You can only manage the gate of your own events.");
+        }
+        return event;
+    }
+
+    private static SubscriptionResponse toResponse(Long eventId, Gate gate, int slot, String ticketCode) {
+        SubscriptionResponse response = new SubscriptionResponse();
+        response.setId(gate.index.subscriptionId(slot));
+        response.setPlaces(gate.index.places(slot));
+        response.setEvent_id(eventId);
+        response.setEvent_name(gate.title);
+        response.setEvent_debut(gate.debut);
+        response.setEvent_lieu(gate.lieu);
+        response.setOrganizer_name(gate.organizerName);
+        response.setNom_ticket(gate.ticketNames[gate.index.category(slot)]);
+        response.setEvent_profil_url(gate.profilUrl);
+        response.setCodeticket(ticketCode);
+        return response;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.event.service;
+
+import com.example.event.dto.Stats.HoldMetricsDto;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.Subscription;
+import com.example.event.repository.SubscriptionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sweeps pending paid subscriptions whose hold has expired: they are moved to ECHOUE and their
+ * seats are returned, one short transaction per batch. Rows are claimed with
+ * {@code FOR UPDATE SKIP LOCKED}, so several nodes can sweep at the same time and a concurrent
+ * {@code confirmPayment} either wins the row or sees it expired. Released seats are offered to the
+ * event's waitlist in the same transaction.
+ */
+@Service
+public class HoldExpiryService {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SeatInventoryService seatInventoryService;
+    private final WaitlistService waitlistService;
+    private final VisitorCapService visitorCapService;
+    private final PromoCodeService promoCodeService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong expiredLastSweep = new AtomicLong();
+    private final AtomicLong seatsReleasedLastSweep = new AtomicLong();
+    private final AtomicLong seatsReleasedTotal = new AtomicLong();
+    private volatile LocalDateTime lastSweepAt;
+
+    @Value("${app.booking.hold-ttl-minutes:15}")
+    private long holdTtlMinutes;
+
+    @Value("${app.booking.hold-sweep-batch-size:200}")
+    private int batchSize;
+
+    public HoldExpiryService(SubscriptionRepository subscriptionRepository,
+                             SeatInventoryService seatInventoryService,
+                             WaitlistService waitlistService,
+                             VisitorCapService visitorCapService,
+                             PromoCodeService promoCodeService,
+                             PlatformTransactionManager transactionManager) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.seatInventoryService = seatInventoryService;
+        this.waitlistService = waitlistService;
+        this.visitorCapService = visitorCapService;
+        this.promoCodeService = promoCodeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.hold-sweep-interval-ms:30000}")
+    public void sweepExpiredHolds() {
+        long expired = 0;
+        long seats = 0;
+        int[] batch;
+        do {
+            batch = transactionTemplate.execute(status -> expireBatch(LocalDateTime.now()));
+            expired += batch[0];
+            seats += batch[1];
+        } while (batch[0] == batchSize);
+
+        expiredLastSweep.set(expired);
+        seatsReleasedLastSweep.set(seats);
+        seatsReleasedTotal.addAndGet(seats);
+        lastSweepAt = LocalDateTime.now();
+    }
+
+    private int[] expireBatch(LocalDateTime now) {
+        // Holds created before expiry dates existed are aged from their creation date
+        List<Subscription> expired = subscriptionRepository.lockExpiredHolds(
+                now, now.minusMinutes(holdTtlMinutes), PageRequest.of(0, batchSize));
+        if (expired.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        for (Subscription subscription : expired) {
+            subscription.setStatut(Statut_Subscription.ECHOUE);
+            visitorCapService.release(subscription.getEvent().getId(),
+                    subscription.getVisitorProfile() != null ? subscription.getVisitorProfile().getId() : null,
+                    subscription.getPlaces());
+        }
+        int seats = seatInventoryService.releaseAll(expired);
+        // Un paiement non abouti ne consomme pas le code promo
+        promoCodeService.releaseAll(expired);
+        // Promoted paid requests become new holds, swept in turn if they are not paid
+        expired.stream().map(subscription -> subscription.getEvent().getId()).distinct()
+                .forEach(waitlistService::promote);
+        return new int[]{expired.size(), seats};
+    }
+
+    public HoldMetricsDto getMetrics() {
+        return new HoldMetricsDto(
+                subscriptionRepository.countActiveHolds(LocalDateTime.now()),
+                expiredLastSweep.get(),
+                seatsReleasedLastSweep.get(),
+                seatsReleasedTotal.get(),
+                lastSweepAt
+        );
+    }
+}
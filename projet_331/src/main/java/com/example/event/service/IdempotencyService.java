@@ -0,0 +1,77 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.EntityAlreadyExistException;
+import com.example.event.utils.IdempotencyStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}. A repeat gets the stored response, and a
+ * concurrent duplicate waits for the first request instead of running it again. Keys are scoped by
+ * user and operation. Failed requests are not remembered, so the client can retry them.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${app.idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    public <T extends ResponseEntity<?>> T execute(String key, String operation, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Invalid " + IDEMPOTENCY_KEY_HEADER + " header");
+        }
+        String scopedKey = SecurityContextHolder.getContext().getAuthentication().getName() + ":" + operation + ":" + key;
+        CompletableFuture<ResponseEntity<?>> pending = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<?>> first = idempotencyStore.claim(scopedKey, pending);
+        if (first != null) {
+            return awaitFirst(first);
+        }
+        try {
+            T response = action.get();
+            idempotencyStore.complete(scopedKey, pending, response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            idempotencyStore.abandon(scopedKey, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ResponseEntity<?>> T awaitFirst(CompletableFuture<ResponseEntity<?>> first) {
+        try {
+            return (T) first.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // The duplicate sees the same error as the first request
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new EntityAlreadyExistException("A request with this " + IDEMPOTENCY_KEY_HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        }
+    }
+}
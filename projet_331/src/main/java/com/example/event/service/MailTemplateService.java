@@ -0,0 +1,109 @@
+package com.example.event.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * HTML bodies of the emails, from the Thymeleaf templates in {@code templates/mail}.
+ * <p>
+ * The engine is private to mail rendering: templates are parsed once (at startup, so a broken
+ * template fails the boot rather than the first email) and kept in the cache whatever the web
+ * view settings, so each email only pays for evaluating its small model. Values are HTML-escaped.
+ */
+@Service
+public class MailTemplateService {
+
+    /** What the ticket and reminder templates show. */
+    public record TicketMail(String eventTitle, LocalDate debut, String lieu, String visitorName,
+                             int places, int montant, String codeticket) {
+    }
+
+    /** A cart: one line per ticket category, with its QR code once confirmed. */
+    public record OrderMail(String eventTitle, LocalDate debut, String lieu, String visitorName,
+                            int montant, List<OrderLine> lines) {
+    }
+
+    public record OrderLine(Long id, String category, int places, int montant, String codeticket,
+                            boolean confirmed, LocalDateTime payBefore) {
+    }
+
+    public record PasswordResetMail(String resetLink, int validityHours) {
+    }
+
+    private static final String TICKET = "ticket";
+    private static final String REMINDER = "reminder";
+    private static final String PASSWORD_RESET = "password-reset";
+    private static final String WAITLIST = "waitlist";
+    private static final String ORDER = "order";
+
+    private final SpringTemplateEngine templateEngine;
+
+    public MailTemplateService() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/mail/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(true);
+        // Pas d'expiration : les modèles font partie du livrable
+        resolver.setCacheTTLMs(null);
+        templateEngine = new SpringTemplateEngine();
+        // Expressions SpEL compilées en bytecode après quelques rendus
+        templateEngine.setEnableSpringELCompiler(true);
+        templateEngine.setTemplateResolver(resolver);
+    }
+
+    @PostConstruct
+    void precompile() {
+        TicketMail sample = new TicketMail("", LocalDate.now(), "", "", 1, 0, "");
+        renderTicket(sample);
+        renderReminder(sample);
+        renderPasswordReset(new PasswordResetMail("", 24));
+        renderWaitlistOffer(sample, LocalDateTime.now());
+        renderOrder(new OrderMail("", LocalDate.now(), "", "", 0,
+                List.of(new OrderLine(1L, "", 1, 0, "", true, null), new OrderLine(2L, "", 1, 0, "", false, LocalDateTime.now()))));
+    }
+
+    public String renderTicket(TicketMail mail) {
+        return render(TICKET, mail);
+    }
+
+    public String renderReminder(TicketMail mail) {
+        return render(REMINDER, mail);
+    }
+
+    public String renderOrder(OrderMail mail) {
+        return render(ORDER, mail);
+    }
+
+    public String renderPasswordReset(PasswordResetMail mail) {
+        return render(PASSWORD_RESET, mail);
+    }
+
+    /** Places of a paid ticket held for a waitlisted visitor until {@code payBefore}. */
+    public String renderWaitlistOffer(TicketMail mail, LocalDateTime payBefore) {
+        Context context = context(mail);
+        context.setVariable("payBefore", payBefore);
+        return templateEngine.process(WAITLIST, context);
+    }
+
+    private String render(String template, Object mail) {
+        return templateEngine.process(template, context(mail));
+    }
+
+    private static Context context(Object mail) {
+        Context context = new Context(Locale.ENGLISH);
+        context.setVariable("mail", mail);
+        return context;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.CheckInMergeResponse;
+import com.example.event.dto.Subscription.ManifestDeltaResponse;
+import com.example.event.model.*;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketChangeRepository;
+import com.example.event.utils.GateIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Offline scanning. Scanners download a manifest of the valid tickets of an event, then keep it
+ * current by pulling the {@link TicketChange} log from a cursor. Check-ins made offline are
+ * uploaded in batches and merged as a grow-only set: a ticket only ever moves from REUSSI to
+ * UTILISE, so replays and tickets scanned at several gates merge to the same state.
+ * <p>
+ * Binary manifest layout (big-endian):
+ * {@code "TKM1" | event id (long) | cursor (long) | count (varint) | code keys (varint deltas) | used bitmap}.
+ * Codes are identified by {@link GateIndex#keyOf(String)} and sorted as unsigned numbers. Each key
+ * is written as the difference from the previous one. Bit i of the bitmap (LSB first) marks key i
+ * as already used.
+ * <p>
+ * Ids are handed out at insert time, not at commit time, so a change can become visible after a
+ * higher id was already pulled. The cursor therefore only moves past changes older than
+ * {@code app.manifest.settle-ms}; newer ones are delivered again by the next pull. Replays are
+ * harmless because a ticket only moves forward (ADDED, then CHECKED_IN, then REMOVED).
+ */
+@Service
+@RequiredArgsConstructor
+public class ManifestService {
+
+    private static final byte[] MAGIC = {'T', 'K', 'M', '1'};
+    private static final int MAX_CHANGES_PER_PULL = 5000;
+    private static final int MAX_CHECK_INS_PER_UPLOAD = 1000;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final EventRepository eventRepository;
+    private final TicketChangeRepository ticketChangeRepository;
+    private final ProfileService profileService;
+    private final GateService gateService;
+    private final AttendanceService attendanceService;
+
+    // A transaction that inserted a change is assumed to have committed or rolled back after this delay
+    @Value("${app.manifest.settle-ms:30000}")
+    private long settleMs;
+
+    /** Appends a change to the log, in the caller's transaction. */
+    public void record(Long eventId, String codeticket, TicketChangeKind kind) {
+        if (codeticket != null) {
+            ticketChangeRepository.save(new TicketChange(eventId, GateIndex.keyOf(codeticket), kind));
+        }
+    }
+
+    public void recordAll(List<TicketChange> changes) {
+        ticketChangeRepository.saveAll(changes);
+    }
+
+    @Transactional(readOnly = true)
+    public byte[] exportManifest(Long eventId) {
+        checkOwner(eventId);
+        // Cursor read first and kept behind the changes that may still commit: they are replayed by the next pull
+        long cursor = ticketChangeRepository.findLastIdBefore(eventId, settledBefore());
+        List<SubscriptionRepository.GateTicketView> tickets = subscriptionRepository.findGateTickets(eventId);
+
+        // The sign bit is flipped so that a signed sort orders the keys as unsigned numbers
+        long[] entries = new long[tickets.size()];
+        int count = 0;
+        for (SubscriptionRepository.GateTicketView ticket : tickets) {
+            if (ticket.getCodeticket() != null) {
+                entries[count++] = GateIndex.keyOf(ticket.getCodeticket()) ^ Long.MIN_VALUE;
+            }
+        }
+        long[] sorted = Arrays.copyOf(entries, count);
+        Arrays.sort(sorted);
+
+        Set<Long> used = new HashSet<>();
+        for (SubscriptionRepository.GateTicketView ticket : tickets) {
+            if (ticket.getCodeticket() != null && ticket.getStatut() == Statut_Subscription.UTILISE) {
+                used.add(GateIndex.keyOf(ticket.getCodeticket()));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + count * 9 + count / 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            out.writeLong(eventId);
+            out.writeLong(cursor);
+            writeVarint(out, count);
+            long previous = 0;
+            for (long entry : sorted) {
+                long key = entry ^ Long.MIN_VALUE;
+                writeVarint(out, key - previous);
+                previous = key;
+            }
+            byte[] bitmap = new byte[(count + 7) / 8];
+            for (int i = 0; i < count; i++) {
+                if (used.contains(sorted[i] ^ Long.MIN_VALUE)) {
+                    bitmap[i / 8] |= (byte) (1 << (i % 8));
+                }
+            }
+            out.write(bitmap);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Transactional(readOnly = true)
+    public ManifestDeltaResponse changesSince(Long eventId, long since) {
+        checkOwner(eventId);
+        List<TicketChange> changes = ticketChangeRepository.findByEventIdAndIdGreaterThanOrderByIdAsc(
+                eventId, since, PageRequest.of(0, MAX_CHANGES_PER_PULL));
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> checkedIn = new ArrayList<>();
+        LocalDateTime settledBefore = settledBefore();
+        long cursor = since;
+        boolean settled = true;
+        for (TicketChange change : changes) {
+            String key = toHex(change.getCodeKey());
+            switch (change.getKind()) {
+                case ADDED -> added.add(key);
+                case REMOVED -> removed.add(key);
+                case CHECKED_IN -> checkedIn.add(key);
+            }
+            // A lower id may still commit while a recent change is visible: stop the cursor at the first recent one
+            settled = settled && change.getCreatedAt() != null && change.getCreatedAt().isBefore(settledBefore);
+            if (settled) {
+                cursor = change.getId();
+            }
+        }
+        boolean more = changes.size() == MAX_CHANGES_PER_PULL && cursor > since;
+        return new ManifestDeltaResponse(eventId, cursor, added, removed, checkedIn, more);
+    }
+
+    @Transactional
+    public CheckInMergeResponse mergeCheckIns(Long eventId, List<String> codes) {
+        checkOwner(eventId);
+        if (codes == null || codes.isEmpty()) {
+            return new CheckInMergeResponse(eventId, 0, 0, 0);
+        }
+        if (codes.size() > MAX_CHECK_INS_PER_UPLOAD) {
+            throw new BadRequestException("At most " + MAX_CHECK_INS_PER_UPLOAD + " check-ins per upload.");
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(codes));
+        List<Subscription> subscriptions = subscriptionRepository.lockByEventAndCodes(eventId, distinct);
+
+        List<Long> toMerge = new ArrayList<>();
+        List<String> mergedCodes = new ArrayList<>();
+        int alreadyUsed = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.getStatut() == Statut_Subscription.REUSSI) {
+                toMerge.add(subscription.getId());
+                mergedCodes.add(subscription.getCodeticket());
+                attendanceService.recordCheckInAfterCommit(eventId,
+                        subscription.getTicket() != null ? subscription.getTicket().getIntitule() : null, subscription.getPlaces());
+            } else if (subscription.getStatut() == Statut_Subscription.UTILISE) {
+                alreadyUsed++;
+            }
+        }
+        if (!toMerge.isEmpty()) {
+            subscriptionRepository.markUsed(toMerge);
+            List<TicketChange> changes = new ArrayList<>(mergedCodes.size());
+            for (String code : mergedCodes) {
+                changes.add(new TicketChange(eventId, GateIndex.keyOf(code), TicketChangeKind.CHECKED_IN));
+            }
+            ticketChangeRepository.saveAll(changes);
+            gateService.markUsedAfterCommit(eventId, mergedCodes);
+        }
+        int unknown = distinct.size() - toMerge.size() - alreadyUsed;
+        return new CheckInMergeResponse(eventId, toMerge.size(), alreadyUsed, unknown);
+    }
+
+    private void checkOwner(Long eventId) {
+        User user = profileService.getAuthenticatedUser();
+        OrganizerProfile organizerProfile = user.getOrganizerProfile();
+        if (organizerProfile == null) {
+            throw new ForbiddenException("Only organizers can scan tickets.");
+        }
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Event not found with id: " + eventId));
+        if (!Objects.equals(event.getOrganizerProfile().getId(), organizerProfile.getId())) {
+            throw new ForbiddenException("You can only scan tickets for your own events.");
+        }
+    }
+
+    private LocalDateTime settledBefore() {
+        return LocalDateTime.now().minusNanos(settleMs * 1_000_000);
+    }
+
+    private static String toHex(long key) {
+        return String.format("%016x", key);
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.EntityAlreadyExistException;
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Promo.PromoCodeRequest;
+import com.example.event.dto.Promo.PromoCodeResponse;
+import com.example.event.model.*;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.PromoCodeRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.utils.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Discount codes on ticket prices, with a redemption budget, a validity window and a per-visitor limit.
+ * <p>
+ * Codes are looked up in an in-memory hash index (normalised code to an immutable {@link Offer}),
+ * loaded at startup and kept up to date on commit, so a presale burst validates codes without a
+ * query. Entries older than {@code app.promo.index-ttl-ms} are read again, which picks up codes
+ * disabled on another node. The redemption budget itself is never trusted to memory: each booking
+ * takes its share with one guarded update on the code row, in the booking transaction, so a code
+ * cannot be over-redeemed and a booking that rolls back gives its share back with it.
+ */
+@Service
+public class PromoCodeService {
+
+    private static final Pattern CODE_PATTERN = Pattern.compile("[A-Z0-9_-]{3,64}");
+
+    /** Immutable view of a code, as held by the index. */
+    public record Offer(Long id, String code, Long eventId, Long ticketId, Integer percentOff, Integer amountOff,
+                        Integer perVisitorLimit, LocalDateTime validFrom, LocalDateTime validUntil, long loadedAt) {
+
+        public boolean appliesTo(TicketCategory ticket) {
+            return ticketId == null || ticketId.equals(ticket.getId());
+        }
+
+        /** Discounted price of one place, never below zero. */
+        public int unitPrice(int prix) {
+            if (percentOff != null) {
+                return prix - prix * percentOff / 100;
+            }
+            return Math.max(0, prix - amountOff);
+        }
+    }
+
+    private final PromoCodeRepository promoCodeRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final EventRepository eventRepository;
+    private final TicketCategoryRepository ticketCategoryRepository;
+    private final ProfileService profileService;
+    private final Map<String, Offer> index = new ConcurrentHashMap<>();
+
+    @Value("${app.promo.index-ttl-ms:60000}")
+    private long indexTtlMs;
+
+    public PromoCodeService(PromoCodeRepository promoCodeRepository,
+                            SubscriptionRepository subscriptionRepository,
+                            EventRepository eventRepository,
+                            TicketCategoryRepository ticketCategoryRepository,
+                            ProfileService profileService) {
+        this.promoCodeRepository = promoCodeRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.eventRepository = eventRepository;
+        this.ticketCategoryRepository = ticketCategoryRepository;
+        this.profileService = profileService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        long now = System.currentTimeMillis();
+        for (PromoCode promoCode : promoCodeRepository.findUsable(LocalDateTime.now())) {
+            index.put(promoCode.getCode(), toOffer(promoCode, now));
+        }
+    }
+
+    /**
+     * Finds a code in the index and checks it can be used on this event now, without taking anything.
+     *
+     * @throws BadRequestException if the code is unknown, disabled, out of its window or not for this event.
+     */
+    public Offer resolve(String code, Event event) {
+        Offer offer = lookup(code);
+        LocalDateTime now = LocalDateTime.now();
+        if (offer == null || !Objects.equals(offer.eventId(), event.getId())
+                || (offer.validFrom() != null && now.isBefore(offer.validFrom()))
+                || (offer.validUntil() != null && !now.isBefore(offer.validUntil()))) {
+            throw new BadRequestException("This promo code is not valid for this event.");
+        }
+        return offer;
+    }
+
+    /**
+     * Takes {@code count} redemptions of the offer for the visitor, in the caller's transaction.
+     *
+     * @throws ForbiddenException if the code or the visitor's share of it is used up.
+     */
+    public void redeem(Offer offer, Long visitorProfileId, int count) {
+        if (promoCodeRepository.redeem(offer.id(), count) == 0) {
+            throw new ForbiddenException("This promo code has been fully redeemed.");
+        }
+        // Counted under the row lock taken by the update above: two bookings of the same visitor
+        // with this code run one after the other, and the second one sees the first once committed
+        if (offer.perVisitorLimit() != null
+                && subscriptionRepository.countActiveByPromoCode(offer.id(), visitorProfileId) + count > offer.perVisitorLimit()) {
+            throw new ForbiddenException("You have already used this promo code.");
+        }
+    }
+
+    /** Gives back the redemption of a cancelled or expired subscription, in the caller's transaction. */
+    public void release(Subscription subscription) {
+        if (subscription.getPromoCodeId() != null) {
+            promoCodeRepository.release(subscription.getPromoCodeId(), 1);
+        }
+    }
+
+    /** Gives back the redemptions of a batch of subscriptions: one update per code. */
+    public void releaseAll(List<Subscription> subscriptions) {
+        Map<Long, Integer> byCode = new HashMap<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.getPromoCodeId() != null) {
+                byCode.merge(subscription.getPromoCodeId(), 1, Integer::sum);
+            }
+        }
+        byCode.forEach(promoCodeRepository::release);
+    }
+
+    @Transactional
+    public PromoCodeResponse create(PromoCodeRequest request) {
+        Event event = ownedEvent(request.getId_event());
+        String code = normalize(request.getCode());
+        if (code == null || !CODE_PATTERN.matcher(code).matches()) {
+            throw new BadRequestException("A promo code is 3 to 64 letters, digits, '-' or '_'.");
+        }
+        if ((request.getPercentOff() == null) == (request.getAmountOff() == null)) {
+            throw new BadRequestException("Give either a percentage or an amount off.");
+        }
+        if (request.getPercentOff() != null && (request.getPercentOff() <= 0 || request.getPercentOff() > 100)) {
+            throw new BadRequestException("The percentage off must be between 1 and 100.");
+        }
+        if (request.getAmountOff() != null && request.getAmountOff() <= 0) {
+            throw new BadRequestException("The amount off must be positive.");
+        }
+        if ((request.getMaxRedemptions() != null && request.getMaxRedemptions() <= 0)
+                || (request.getPerVisitorLimit() != null && request.getPerVisitorLimit() <= 0)) {
+            throw new BadRequestException("Redemption limits must be positive.");
+        }
+        if (request.getValidFrom() != null && request.getValidUntil() != null
+                && !request.getValidUntil().isAfter(request.getValidFrom())) {
+            throw new BadRequestException("The validity window ends before it starts.");
+        }
+        if (promoCodeRepository.findByCode(code).isPresent()) {
+            throw new EntityAlreadyExistException("This promo code already exists.");
+        }
+
+        PromoCode promoCode = new PromoCode();
+        promoCode.setCode(code);
+        promoCode.setEvent(event);
+        if (request.getId_ticket() != null) {
+            TicketCategory ticket = ticketCategoryRepository.findById(request.getId_ticket())
+                    .orElseThrow(() -> new EntityNotFoundException("Ticket category not found"));
+            if (!Objects.equals(ticket.getEvent().getId(), event.getId())) {
+                throw new BadRequestException("This ticket category does not belong to the event.");
+            }
+            promoCode.setTicket(ticket);
+        }
+        promoCode.setPercentOff(request.getPercentOff());
+        promoCode.setAmountOff(request.getAmountOff());
+        promoCode.setMaxRedemptions(request.getMaxRedemptions());
+        promoCode.setPerVisitorLimit(request.getPerVisitorLimit());
+        promoCode.setValidFrom(request.getValidFrom());
+        promoCode.setValidUntil(request.getValidUntil());
+        promoCode.setCreatedAt(LocalDateTime.now());
+        PromoCode saved = promoCodeRepository.save(promoCode);
+
+        Offer offer = toOffer(saved, System.currentTimeMillis());
+        TransactionHooks.afterCommit(() -> index.put(code, offer));
+        return toResponse(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PromoCodeResponse> getByEvent(Long eventId) {
+        ownedEvent(eventId);
+        return promoCodeRepository.findByEventIdOrderByIdDesc(eventId).stream().map(this::toResponse).toList();
+    }
+
+    /** Disables a code; bookings already made with it keep their price. */
+    @Transactional
+    public void deactivate(Long id) {
+        PromoCode promoCode = promoCodeRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Promo code not found"));
+        ownedEvent(promoCode.getEvent().getId());
+        promoCodeRepository.deactivate(id);
+        TransactionHooks.afterCommit(() -> index.remove(promoCode.getCode()));
+    }
+
+    private Offer lookup(String code) {
+        String key = normalize(code);
+        if (key == null) {
+            return null;
+        }
+        Offer offer = index.get(key);
+        if (offer != null && System.currentTimeMillis() - offer.loadedAt() < indexTtlMs) {
+            return offer;
+        }
+        // Absent ou trop ancien : relu en base (code créé ou désactivé sur un autre noeud)
+        PromoCode promoCode = promoCodeRepository.findByCode(key).filter(PromoCode::isActive).orElse(null);
+        if (promoCode == null) {
+            index.remove(key);
+            return null;
+        }
+        offer = toOffer(promoCode, System.currentTimeMillis());
+        index.put(key, offer);
+        return offer;
+    }
+
+    private Event ownedEvent(Long eventId) {
+        User user = profileService.getAuthenticatedUser();
+        OrganizerProfile organizerProfile = user.getOrganizerProfile();
+        if (organizerProfile == null) {
+            throw new ForbiddenException("Only organizers can manage promo codes.");
+        }
+        if (eventId == null) {
+            throw new BadRequestException("The event is required.");
+        }
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Event not found with id: " + eventId));
+        if (event.getOrganizerProfile() == null
+                || !Objects.equals(event.getOrganizerProfile().getId(), organizerProfile.getId())) {
+            throw new ForbiddenException("You can only manage promo codes of your own events.");
+        }
+        return event;
+    }
+
+    private static String normalize(String code) {
+        return code == null || code.isBlank() ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static Offer toOffer(PromoCode promoCode, long loadedAt) {
+        return new Offer(promoCode.getId(), promoCode.getCode(), promoCode.getEvent().getId(),
+                promoCode.getTicket() != null ? promoCode.getTicket().getId() : null,
+                promoCode.getPercentOff(), promoCode.getAmountOff(), promoCode.getPerVisitorLimit(),
+                promoCode.getValidFrom(), promoCode.getValidUntil(), loadedAt);
+    }
+
+    private PromoCodeResponse toResponse(PromoCode promoCode) {
+        return new PromoCodeResponse(promoCode.getId(), promoCode.getCode(), promoCode.getEvent().getId(),
+                promoCode.getTicket() != null ? promoCode.getTicket().getId() : null,
+                promoCode.getPercentOff(), promoCode.getAmountOff(), promoCode.getMaxRedemptions(),
+                promoCode.getRedeemed(), promoCode.getPerVisitorLimit(), promoCode.getValidFrom(),
+                promoCode.getValidUntil(), promoCode.isActive());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.event.service;
+
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.JobKind;
+import com.example.event.model.Statut_Job;
+import com.example.event.repository.BackgroundJobRepository;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * "Your event is tomorrow" reminders with the ticket QR code.
+ * <p>
+ * A scheduled scan finds the events starting in the reminder window (range on the {@code debut}
+ * index) and starts one background job per event with reminders left. The job locks pages of
+ * {@code REUSSI} subscriptions without a reminder (SKIP LOCKED), and in the same transaction marks
+ * them {@code reminderSentAt} and writes their outbox rows: a rerun or another node only ever sees
+ * the rest, and at most one page is held in memory.
+ */
+@Service
+public class ReminderService implements BackgroundJobHandler {
+
+    private static final List<Statut_Job> ACTIVE = List.of(Statut_Job.EN_ATTENTE, Statut_Job.EN_COURS);
+
+    private final EventRepository eventRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final BackgroundJobRepository backgroundJobRepository;
+    private final BackgroundJobService backgroundJobService;
+    private final EmailOutboxService emailOutboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Rappel envoyé pour les événements qui commencent dans 1 à days-before jours
+    @Value("${app.reminder.days-before:1}")
+    private int daysBefore;
+
+    @Value("${app.reminder.page-size:500}")
+    private int pageSize;
+
+    public ReminderService(EventRepository eventRepository,
+                           SubscriptionRepository subscriptionRepository,
+                           BackgroundJobRepository backgroundJobRepository,
+                           BackgroundJobService backgroundJobService,
+                           EmailOutboxService emailOutboxService,
+                           PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.backgroundJobRepository = backgroundJobRepository;
+        this.backgroundJobService = backgroundJobService;
+        this.emailOutboxService = emailOutboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public JobKind kind() {
+        return JobKind.EVENT_REMINDER;
+    }
+
+    @Scheduled(fixedDelayString = "${app.reminder.scan-interval-ms:600000}",
+               initialDelayString = "${app.reminder.initial-delay-ms:60000}")
+    public void scheduleReminders() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        for (Long eventId : eventRepository.findIdsStartingBetween(tomorrow, tomorrow.plusDays(Math.max(0, daysBefore - 1)))) {
+            // Deux nœuds peuvent lancer chacun une tâche : le verrou par page empêche tout doublon
+            if (!backgroundJobRepository.existsByKindAndEventIdAndStatutIn(JobKind.EVENT_REMINDER, eventId, ACTIVE)
+                    && subscriptionRepository.countPendingReminders(eventId) > 0) {
+                backgroundJobService.start(JobKind.EVENT_REMINDER, eventId, null, null, null);
+            }
+        }
+    }
+
+    @Override
+    public void process(BackgroundJob job) throws InterruptedException {
+        if (job.getLastKey() == null) {
+            backgroundJobService.updateTotal(job, subscriptionRepository.countPendingReminders(job.getEventId()));
+        }
+        while (true) {
+            Integer sent = transactionTemplate.execute(status -> {
+                List<Long> ids = subscriptionRepository.lockPendingReminders(job.getEventId(), pageSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                subscriptionRepository.markReminderSent(ids, LocalDateTime.now());
+                emailOutboxService.enqueueReminders(subscriptionRepository.findEmails(ids));
+                backgroundJobService.checkpoint(job, ids.size(), ids.get(ids.size() - 1));
+                return ids.size();
+            });
+            if (sent == null || sent < pageSize) {
+                return;
+            }
+            // Cadence après coup, hors transaction : aucun verrou tenu pendant l'attente
+            emailOutboxService.acquireBulkPermits(sent);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.model.Event;
+import com.example.event.model.EventSeatBucket;
+import com.example.event.model.InventoryMode;
+import com.example.event.model.Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.EventSeatBucketRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.utils.SeatLedger;
+import com.example.event.utils.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Single entry point for taking and giving back event seats.
+ * <p>
+ * Categories with their own capacity are allocated first with a guarded update on
+ * {@code TicketCategory.sold}, then the event total is taken with the active strategy below.
+ * Both happen in the caller's transaction, so a failure on the event rolls the category back.
+ * <p>
+ * In {@link InventoryMode#DATABASE} mode seats are taken with a guarded update on the event row.
+ * In {@link InventoryMode#MEMORY_LEDGER} mode they are taken from an in-process {@link SeatLedger};
+ * the subscription is flagged {@code inventoryPending} and a background flush reports the seats on
+ * {@code Event.places} in batches. The flag is written in the booking transaction, so a crash never
+ * loses a reservation: the same flush runs on startup and reconciles the event rows.
+ * The ledger is local to the JVM, so an event should only be switched to it when its bookings
+ * are served by a single node.
+ * <p>
+ * In {@link InventoryMode#SEAT_BUCKETS} mode the remaining places live in N {@link EventSeatBucket}
+ * rows and each booking decrements a random one, so concurrent buyers lock different rows.
+ * <p>
+ * Modes are meant to be switched before a sale opens: bookings still in flight during a switch
+ * are accounted for, but may briefly use the previous strategy.
+ */
+@Service
+public class SeatInventoryService {
+
+    private static final int FLUSH_BATCH_SIZE = 1000;
+    private static final int MAX_BUCKETS = 256;
+    private static final long LEDGER_CLOSE_TIMEOUT_MS = 5000;
+
+    private final EventRepository eventRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final EventSeatBucketRepository eventSeatBucketRepository;
+    private final TicketCategoryRepository ticketCategoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, SeatLedger> ledgers = new ConcurrentHashMap<>();
+
+    @Value("${app.inventory.ledger.stripes:16}")
+    private int ledgerStripes;
+
+    @Value("${app.inventory.buckets.default-count:16}")
+    private int defaultBucketCount;
+
+    public SeatInventoryService(EventRepository eventRepository,
+                                SubscriptionRepository subscriptionRepository,
+                                EventSeatBucketRepository eventSeatBucketRepository,
+                                TicketCategoryRepository ticketCategoryRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.eventSeatBucketRepository = eventSeatBucketRepository;
+        this.ticketCategoryRepository = ticketCategoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Flushes may be triggered from an after-commit hook: always use a fresh transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Takes the seats of a subscription that is about to be saved. Must run inside the booking transaction.
+     *
+     * @throws ForbiddenException if the event does not have enough places left.
+     */
+    public void reserve(Subscription subscription) {
+        int places = subscription.getPlaces();
+
+        TicketCategory ticket = subscription.getTicket();
+        if (ticket != null && ticket.getCapacity() != null
+                && ticketCategoryRepository.allocate(ticket.getId(), places) == 0) {
+            throw new ForbiddenException("Not enough places available in the category " + ticket.getIntitule() + ".");
+        }
+        if (!takeEventSeats(subscription)) {
+            throw new ForbiddenException("Not enough places available for this event.");
+        }
+    }
+
+    /**
+     * Same as {@link #reserve} but reports a shortage instead of throwing, leaving the category and the
+     * event untouched, so that the caller's transaction can go on (waitlist promotion).
+     */
+    public boolean tryReserve(Subscription subscription) {
+        TicketCategory ticket = subscription.getTicket();
+        boolean allocated = ticket != null && ticket.getCapacity() != null;
+        if (allocated && ticketCategoryRepository.allocate(ticket.getId(), subscription.getPlaces()) == 0) {
+            return false;
+        }
+        if (!takeEventSeats(subscription)) {
+            if (allocated) {
+                ticketCategoryRepository.deallocate(ticket.getId(), subscription.getPlaces());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the seats of several subscriptions of one event (a cart): one guarded update per category,
+     * always in category id order so that concurrent carts lock them in the same order, then one on the
+     * event for the total. Must run inside the booking transaction.
+     *
+     * @throws ForbiddenException if a category or the event does not have enough places left.
+     */
+    public void reserveAll(List<Subscription> subscriptions) {
+        Map<Long, TicketCategory> tickets = new TreeMap<>();
+        Map<Long, Integer> placesByTicket = new HashMap<>();
+        int total = 0;
+        for (Subscription subscription : subscriptions) {
+            total += subscription.getPlaces();
+            TicketCategory ticket = subscription.getTicket();
+            if (ticket != null && ticket.getCapacity() != null) {
+                tickets.put(ticket.getId(), ticket);
+                placesByTicket.merge(ticket.getId(), subscription.getPlaces(), Integer::sum);
+            }
+        }
+        for (TicketCategory ticket : tickets.values()) {
+            if (ticketCategoryRepository.allocate(ticket.getId(), placesByTicket.get(ticket.getId())) == 0) {
+                throw new ForbiddenException("Not enough places available in the category " + ticket.getIntitule() + ".");
+            }
+        }
+
+        Subscription seats = new Subscription();
+        seats.setEvent(subscriptions.get(0).getEvent());
+        seats.setPlaces(total);
+        if (!takeEventSeats(seats)) {
+            throw new ForbiddenException("Not enough places available for this event.");
+        }
+        // Each row carries its own places in the ledger until the flush
+        for (Subscription subscription : subscriptions) {
+            subscription.setInventoryPending(seats.isInventoryPending());
+        }
+    }
+
+    private boolean takeEventSeats(Subscription subscription) {
+        Event event = subscription.getEvent();
+        int places = subscription.getPlaces();
+
+        if (event.getInventoryMode() == InventoryMode.MEMORY_LEDGER) {
+            SeatLedger ledger = ledgerFor(event.getId());
+            if (!ledger.tryAcquireOpen(places)) {
+                return false;
+            }
+            subscription.setInventoryPending(true);
+            // The seats go back to the ledger if the booking is not committed
+            TransactionHooks.afterRollback(() -> ledger.release(places));
+            // Closing the ledger (event cancelled) waits until this booking is committed or rolled back
+            TransactionHooks.afterCompletion(ledger::complete);
+            return true;
+        }
+
+        if (event.getInventoryMode() == InventoryMode.SEAT_BUCKETS) {
+            return reserveFromBuckets(event.getId(), places);
+        }
+
+        return eventRepository.decrementPlaces(event.getId(), places) == 1;
+    }
+
+    /**
+     * Gives back the seats of a persisted subscription. Must run inside the transaction that cancels it.
+     */
+    public void release(Subscription subscription) {
+        Long eventId = subscription.getEvent().getId();
+        int places = subscription.getPlaces();
+
+        TicketCategory ticket = subscription.getTicket();
+        if (ticket != null && ticket.getCapacity() != null) {
+            ticketCategoryRepository.deallocate(ticket.getId(), places);
+        }
+
+        // Clearing the flag locks the row: either the flush already reported the seats on the event
+        // (flag gone, give them back there) or it never will (flag cleared here).
+        boolean reportedOnEvent = !subscription.isInventoryPending()
+                || subscriptionRepository.clearInventoryPendingIfSet(subscription.getId()) == 0;
+        if (reportedOnEvent) {
+            if (subscription.getEvent().getInventoryMode() == InventoryMode.SEAT_BUCKETS) {
+                releaseToBuckets(eventId, places);
+            } else {
+                eventRepository.incrementPlaces(eventId, places);
+            }
+        }
+        subscription.setInventoryPending(false);
+
+        SeatLedger ledger = ledgers.get(eventId);
+        if (ledger != null) {
+            TransactionHooks.afterCommit(() -> ledger.release(places));
+        }
+    }
+
+    /**
+     * Gives back the seats of many subscriptions with one update per category and per event.
+     * The caller must hold row locks on the subscriptions (e.g. {@code SELECT ... FOR UPDATE}),
+     * so that their {@code inventoryPending} flags cannot change underneath.
+     *
+     * @return the number of seats released.
+     */
+    public int releaseAll(List<Subscription> subscriptions) {
+        Map<Long, Integer> placesByTicket = new HashMap<>();
+        Map<Long, Integer> placesByEvent = new HashMap<>();
+        Map<Long, Event> events = new HashMap<>();
+        List<Long> pendingIds = new ArrayList<>();
+        int released = 0;
+
+        for (Subscription subscription : subscriptions) {
+            int places = subscription.getPlaces();
+            released += places;
+            TicketCategory ticket = subscription.getTicket();
+            if (ticket != null && ticket.getCapacity() != null) {
+                placesByTicket.merge(ticket.getId(), places, Integer::sum);
+            }
+            Event event = subscription.getEvent();
+            events.put(event.getId(), event);
+            placesByEvent.merge(event.getId(), places, Integer::sum);
+            if (subscription.isInventoryPending()) {
+                pendingIds.add(subscription.getId());
+            }
+        }
+
+        // Same lock order as reserve(): categories first, then events
+        placesByTicket.forEach((ticketId, places) -> ticketCategoryRepository.deallocate(ticketId, places));
+        if (!pendingIds.isEmpty()) {
+            subscriptionRepository.clearInventoryPending(pendingIds);
+        }
+        Map<Long, Integer> reportedByEvent = new HashMap<>(placesByEvent);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isInventoryPending()) {
+                reportedByEvent.merge(subscription.getEvent().getId(), -subscription.getPlaces(), Integer::sum);
+                subscription.setInventoryPending(false);
+            }
+        }
+        reportedByEvent.forEach((eventId, places) -> {
+            if (places <= 0) {
+                return;
+            }
+            if (events.get(eventId).getInventoryMode() == InventoryMode.SEAT_BUCKETS) {
+                releaseToBuckets(eventId, places);
+            } else {
+                eventRepository.incrementPlaces(eventId, places);
+            }
+        });
+        placesByEvent.forEach((eventId, places) -> {
+            SeatLedger ledger = ledgers.get(eventId);
+            if (ledger != null) {
+                TransactionHooks.afterCommit(() -> ledger.release(places));
+            }
+        });
+        return released;
+    }
+
+    /** Places left for sale, as seen by the active inventory strategy. */
+    public int remainingPlaces(Event event) {
+        SeatLedger ledger = ledgers.get(event.getId());
+        if (event.getInventoryMode() == InventoryMode.MEMORY_LEDGER && ledger != null) {
+            return ledger.available();
+        }
+        if (event.getInventoryMode() == InventoryMode.SEAT_BUCKETS) {
+            return (int) eventSeatBucketRepository.sumPlacesByEventId(event.getId());
+        }
+        return event.getPlaces();
+    }
+
+    /**
+     * Moves an event to another inventory strategy, carrying its remaining places over.
+     *
+     * @param bucketCount number of rows for {@link InventoryMode#SEAT_BUCKETS}, default when null.
+     */
+    @Transactional
+    public Event switchMode(Long eventId, InventoryMode newMode, Integer bucketCount) {
+        // Seats still in the ledger are reported on the event row first
+        flushEvent(eventId);
+
+        Event event = eventRepository.findByIdForUpdate(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Event not found with ID: " + eventId));
+        InventoryMode oldMode = event.getInventoryMode() == null ? InventoryMode.DATABASE : event.getInventoryMode();
+        if (oldMode == newMode) {
+            return event;
+        }
+
+        if (oldMode == InventoryMode.SEAT_BUCKETS) {
+            List<EventSeatBucket> buckets = eventSeatBucketRepository.lockAllByEventId(eventId);
+            int places = buckets.stream().mapToInt(EventSeatBucket::getPlaces).sum();
+            eventSeatBucketRepository.deleteAll(buckets);
+            event.setPlaces(event.getPlaces() + places);
+        }
+        if (newMode == InventoryMode.SEAT_BUCKETS) {
+            int count = bucketCount == null ? defaultBucketCount : bucketCount;
+            if (count < 1 || count > MAX_BUCKETS) {
+                throw new BadRequestException("The number of seat buckets must be between 1 and " + MAX_BUCKETS + ".");
+            }
+            // Only seats already reported on the row are moved; late ledger bookings are left for the flush
+            Long net = eventRepository.findPlacesNetOfPendingInventory(eventId);
+            int places = net == null ? 0 : Math.max(0, net.intValue());
+            createBuckets(event, count, places);
+            event.setPlaces(event.getPlaces() - places);
+        }
+
+        event.setInventoryMode(newMode);
+        ledgers.remove(eventId);
+        TransactionHooks.afterCommit(() -> ledgers.remove(eventId));
+        return eventRepository.save(event);
+    }
+
+    /** Sets the places left for sale of a bucketed event, spread evenly over its buckets. */
+    @Transactional
+    public void resetBucketPlaces(Long eventId, int places) {
+        List<EventSeatBucket> buckets = eventSeatBucketRepository.lockAllByEventId(eventId);
+        spread(buckets, Math.max(0, places));
+    }
+
+    /**
+     * Stops selling seats of an event being cancelled. Must run in the cancelling transaction, after the
+     * event row is marked cancelled: the guarded updates on the event and on its buckets then refuse any
+     * later booking, and bookings already holding a bucket row (or ledger seats) are waited for, so
+     * that every booking is either committed before the cancellation or refused.
+     *
+     * @throws ForbiddenException if ledger bookings are still in flight after a few seconds.
+     */
+    public void closeForCancellation(Long eventId) {
+        eventSeatBucketRepository.closeAll(eventId);
+        SeatLedger ledger = ledgers.get(eventId);
+        if (ledger == null) {
+            return;
+        }
+        TransactionHooks.afterRollback(ledger::reopen);
+        try {
+            if (!ledger.close(LEDGER_CLOSE_TIMEOUT_MS)) {
+                throw new ForbiddenException("Bookings are still in progress on this event, try again.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while closing the seat ledger", e);
+        }
+    }
+
+    /**
+     * Drops the cached state of an event whose capacity or inventory mode changed.
+     * It is rebuilt from the database on the next booking.
+     */
+    public void invalidate(Long eventId) {
+        TransactionHooks.afterCommit(() -> {
+            ledgers.remove(eventId);
+            flushEvent(eventId);
+        });
+    }
+
+    private boolean reserveFromBuckets(Long eventId, int places) {
+        // Fast path: a random bucket that can serve the whole request, without locking the others
+        List<Integer> candidates = eventSeatBucketRepository.findBucketIndexesWithAtLeast(eventId, places);
+        if (!candidates.isEmpty()) {
+            int start = ThreadLocalRandom.current().nextInt(candidates.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                int bucketIndex = candidates.get((start + i) % candidates.size());
+                if (eventSeatBucketRepository.decrementPlaces(eventId, bucketIndex, places) == 1) {
+                    return true;
+                }
+            }
+        }
+        // Sold out: reject without locking every bucket
+        if (eventSeatBucketRepository.sumPlacesByEventId(eventId) < places) {
+            return false;
+        }
+        // Slow path: buckets are drained or too fragmented, take the seats and rebalance what is left
+        List<EventSeatBucket> buckets = eventSeatBucketRepository.lockAllByEventId(eventId);
+        int total = buckets.stream().mapToInt(EventSeatBucket::getPlaces).sum();
+        if (buckets.isEmpty() || total < places || buckets.get(0).isClosed()) {
+            return false;
+        }
+        spread(buckets, total - places);
+        return true;
+    }
+
+    private void releaseToBuckets(Long eventId, int places) {
+        long count = eventSeatBucketRepository.countByEventId(eventId);
+        int bucketIndex = count <= 1 ? 0 : ThreadLocalRandom.current().nextInt((int) count);
+        if (eventSeatBucketRepository.incrementPlaces(eventId, bucketIndex, places) == 0) {
+            // Buckets were folded back in the meantime
+            eventRepository.incrementPlaces(eventId, places);
+        }
+    }
+
+    private void createBuckets(Event event, int count, int places) {
+        List<EventSeatBucket> buckets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EventSeatBucket bucket = new EventSeatBucket();
+            bucket.setEvent(event);
+            bucket.setBucketIndex(i);
+            buckets.add(bucket);
+        }
+        spread(buckets, places);
+    }
+
+    private void spread(List<EventSeatBucket> buckets, int places) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        int share = places / buckets.size();
+        int rest = places % buckets.size();
+        for (int i = 0; i < buckets.size(); i++) {
+            buckets.get(i).setPlaces(share + (i < rest ? 1 : 0));
+        }
+        eventSeatBucketRepository.saveAll(buckets);
+    }
+
+    private SeatLedger ledgerFor(Long eventId) {
+        return ledgers.computeIfAbsent(eventId, id -> {
+            Long available = eventRepository.findPlacesNetOfPendingInventory(id);
+            return new SeatLedger(available == null ? 0 : available.intValue(), ledgerStripes);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        flushPendingInventory();
+    }
+
+    /** Write-behind: reports the seats taken from the ledgers on the event rows, one transaction per event. */
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.flush-interval-ms:1000}")
+    public void flushPendingInventory() {
+        for (Long eventId : subscriptionRepository.findEventIdsWithPendingInventory()) {
+            flushEvent(eventId);
+        }
+    }
+
+    private void flushEvent(Long eventId) {
+        int flushed;
+        do {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Object[]> rows = subscriptionRepository.lockPendingInventory(eventId, FLUSH_BATCH_SIZE);
+                if (rows.isEmpty()) {
+                    return 0;
+                }
+                List<Long> ids = new ArrayList<>(rows.size());
+                int places = 0;
+                for (Object[] row : rows) {
+                    ids.add(((Number) row[0]).longValue());
+                    places += ((Number) row[1]).intValue();
+                }
+                subscriptionRepository.clearInventoryPending(ids);
+                eventRepository.incrementPlaces(eventId, -places);
+                return rows.size();
+            });
+            flushed = count == null ? 0 : count;
+        } while (flushed == FLUSH_BATCH_SIZE);
+    }
+}
@@ -1,40 +1,62 @@
 package com.example.event.service;
 
+import com.example.event.Exception.BadRequestException;
 import com.example.event.Exception.EntityAlreadyExistException;
 import com.example.event.Exception.ForbiddenException;
 import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.dto.Subscription.BatchValidationResult;
 import com.example.event.dto.Subscription.SubscriptionRequest;
 import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.dto.Subscription.TicketScanResult;
 import com.example.event.model.*;
 import com.example.event.repository.EventRepository;
 import com.example.event.repository.SubscriptionRepository;
 import com.example.event.repository.TicketCategoryRepository;
 import com.example.event.repository.VisitorProfileRepository;
-import com.example.event.utils.QRCodeGenerator;
+import com.example.event.utils.GateIndex;
+import com.example.event.utils.TicketCodeSigner;
 import com.example.event.utils.UtilSubscription;
-import com.google.zxing.WriterException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SubscriptionService {
 
+    private static final int MAX_BATCH_VALIDATION = 500;
+
     private final SubscriptionRepository subscriptionRepository;
     private final EventRepository eventRepository;
     private final TicketCategoryRepository ticketCategoryRepository;
     private final VisitorProfileRepository visitorProfileRepository;
     private final ProfileService profileService;
-    private final EmailSenderService emailSenderService;
+    private final EmailOutboxService emailOutboxService;
+    private final SeatInventoryService seatInventoryService;
+    private final TicketCodeSigner ticketCodeSigner;
+    private final GateService gateService;
+    private final ManifestService manifestService;
+    private final AttendanceService attendanceService;
+    private final WaitlistService waitlistService;
+    private final VisitorCapService visitorCapService;
+    private final PromoCodeService promoCodeService;
+
+    @Value("${app.booking.hold-ttl-minutes:15}")
+    private long holdTtlMinutes;
 
     @Transactional
     public ResponseEntity<SubscriptionResponse> createSubscription(SubscriptionRequest subscriptionRequest) {
@@ -49,39 +71,60 @@ public class SubscriptionService {
         TicketCategory ticketCategory = ticketCategoryRepository.findById(subscriptionRequest.getId_ticket())
                 .orElseThrow(() -> new EntityNotFoundException("Ticket category not found"));
 
-        if (event.getPlaces() < subscriptionRequest.getPlaces()) {
-            throw new ForbiddenException("Not enough places available for this event.");
+        if (!Objects.equals(ticketCategory.getEvent().getId(), event.getId())) {
+            throw new BadRequestException("This ticket category does not belong to the event.");
         }
-        event.setPlaces(event.getPlaces() - subscriptionRequest.getPlaces());
-
+        if (subscriptionRequest.getPlaces() <= 0) {
+            throw new BadRequestException("The number of places must be positive.");
+        }
+        if (event.getStatut() == Statut_Event.ANNULE) {
+            throw new ForbiddenException("This event has been cancelled.");
+        }
+        // Plafond par visiteur vérifié en mémoire, avant toute réservation de places
+        visitorCapService.acquire(event, visitorProfile.getId(), subscriptionRequest.getPlaces());
 
         Subscription subscription = new Subscription();
-        String codeticket;
-        do {
-            codeticket = subscription.generateTicketCode();
-        } while (subscriptionRepository.existsByCodeticket(codeticket));
 
         subscription.setCreatedAt(LocalDateTime.now());
         subscription.setPlaces(subscriptionRequest.getPlaces());
         subscription.setVisitorProfile(visitorProfile);
         subscription.setEvent(event);
         subscription.setTicket(ticketCategory);
-        subscription.setCodeticket(codeticket);
-        subscription.setMontant(subscriptionRequest.getPlaces() * ticketCategory.getPrix());
+        subscription.setCodeticket(ticketCodeSigner.issue(event.getId()));
+        int prix = ticketCategory.getPrix();
+        PromoCodeService.Offer offer = null;
+        if (subscriptionRequest.getPromo_code() != null && !subscriptionRequest.getPromo_code().isBlank()) {
+            offer = promoCodeService.resolve(subscriptionRequest.getPromo_code(), event);
+            if (!offer.appliesTo(ticketCategory)) {
+                throw new BadRequestException("This promo code does not apply to this ticket category.");
+            }
+            prix = offer.unitPrice(prix);
+            subscription.setPromoCodeId(offer.id());
+        }
+        subscription.setMontant(subscriptionRequest.getPlaces() * prix);
+        // Guarded updates on the category quota and the event stock: concurrent bookings can never oversell
+        seatInventoryService.reserve(subscription);
+        // Code promo verrouillé après les places, dans l'ordre des libérations (catégorie, événement, code)
+        if (offer != null) {
+            promoCodeService.redeem(offer, visitorProfile.getId(), 1);
+        }
         
-        boolean isPaidTicket = ticketCategory.getPrix() > 0;
+        // Un billet ramené à 0 par un code promo est confirmé comme un billet gratuit
+        boolean isPaidTicket = subscription.getMontant() > 0;
         
         if (isPaidTicket) {
             subscription.setStatut(Statut_Subscription.EN_ATTENTE);
+            // Seats are only held until the payment deadline, then released by HoldExpiryService
+            subscription.setHoldExpiresAt(subscription.getCreatedAt().plusMinutes(holdTtlMinutes));
         } else {
             subscription.setStatut(Statut_Subscription.REUSSI);
         }
 
         Subscription savedSubscription = subscriptionRepository.save(subscription);
-        eventRepository.save(event);
         
         if (!isPaidTicket) {
-            sendTicketEmail(savedSubscription);
+            manifestService.record(event.getId(), savedSubscription.getCodeticket(), TicketChangeKind.ADDED);
+            emailOutboxService.enqueueTicketEmail(savedSubscription);
         }
 
         SubscriptionResponse subscriptionResponse = UtilSubscription.convertToSubscriptionResponse(savedSubscription);
@@ -95,42 +138,29 @@ public class SubscriptionService {
 
     @Transactional
     public SubscriptionResponse confirmPayment(Long subscriptionId) {
-        Subscription subscription = subscriptionRepository.findById(subscriptionId)
+        // Row lock: the expiry sweeper either already released this hold or skips it until we commit
+        Subscription subscription = subscriptionRepository.findByIdForUpdate(subscriptionId)
                 .orElseThrow(() -> new EntityNotFoundException("Subscription not found"));
 
         if(subscription.getStatut() != Statut_Subscription.EN_ATTENTE) {
             throw new ForbiddenException("This subscription is not pending payment.");
         }
+        LocalDateTime holdExpiresAt = subscription.getHoldExpiresAt() != null
+                ? subscription.getHoldExpiresAt()
+                : subscription.getCreatedAt().plusMinutes(holdTtlMinutes);
+        if (holdExpiresAt.isBefore(LocalDateTime.now())) {
+            throw new ForbiddenException("The payment deadline for this subscription has expired.");
+        }
 
         subscription.setStatut(Statut_Subscription.REUSSI);
         Subscription savedSubscription = subscriptionRepository.save(subscription);
+        manifestService.record(subscription.getEvent().getId(), subscription.getCodeticket(), TicketChangeKind.ADDED);
 
-        sendTicketEmail(savedSubscription);
+        emailOutboxService.enqueueTicketEmail(savedSubscription);
 
         return UtilSubscription.convertToSubscriptionResponse(savedSubscription);
     }
     
-    private void sendTicketEmail(Subscription subscription) {
-        try {
-            User user = subscription.getVisitorProfile().getUser();
-            byte[] qrCode = QRCodeGenerator.generateQRCodeImage(subscription.getCodeticket(), 250, 250);
-            String emailBody = "Thank you for your registration for " + subscription.getEvent().getTitle() + ".\n" +
-                               "Visitor: " + subscription.getVisitorProfile().getName() + " " + subscription.getVisitorProfile().getSurname() + "\n" +
-                               "Number of places: " + subscription.getPlaces() + "\n" +
-                               "Total Amount: " + subscription.getMontant() + " CFA\n" +
-                               "Your Ticket Code: " + subscription.getCodeticket();
-
-            emailSenderService.sendEmailWithQRCode(
-                    user.getEmail(),
-                    "Ticket Confirmation for Event: " + subscription.getEvent().getTitle(),
-                    emailBody,
-                    qrCode
-            );
-        } catch (WriterException | IOException e) {
-            System.err.println("Failed to generate or send QR code email for subscription " + subscription.getId() + ": " + e.getMessage());
-        }
-    }
-    
      @Transactional(readOnly = true)
     public ResponseEntity<?> findSubsription(Long id) {
         Subscription subscription = subscriptionRepository.findById(id)
@@ -148,18 +178,38 @@ public class SubscriptionService {
     }
     @Transactional
     public ResponseEntity<?> deleteSubscription(Long id) {
-        Subscription subscription = subscriptionRepository.findById(id)
+        // Row lock: the expiry sweeper either already released this hold or skips it until we commit
+        Subscription subscription = subscriptionRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new EntityNotFoundException("Subscription not found"));
 
         User user = profileService.getAuthenticatedUser();
-        if (!subscription.getVisitorProfile().getUser().getId().equals(user.getId())) {
+        if (subscription.getVisitorProfile() == null
+                || !subscription.getVisitorProfile().getUser().getId().equals(user.getId())) {
             throw new ForbiddenException("You can only delete your own subscriptions.");
         }
-         Event event = subscription.getEvent();
-        event.setPlaces(event.getPlaces() + subscription.getPlaces());
-        eventRepository.save(event);
+        // Seule trace du remboursement dû : conservée
+        if (subscription.getStatut() == Statut_Subscription.A_REMBOURSER) {
+            throw new ForbiddenException("This ticket is awaiting its refund and cannot be deleted.");
+        }
+        // Un hold expiré (ECHOUE) ou une inscription annulée avec l'événement a déjà tout rendu
+        boolean holdsSeats = subscription.getStatut() == Statut_Subscription.EN_ATTENTE
+                || subscription.getStatut() == Statut_Subscription.REUSSI
+                || subscription.getStatut() == Statut_Subscription.UTILISE;
+        if (holdsSeats) {
+            seatInventoryService.release(subscription);
+            visitorCapService.release(subscription.getEvent().getId(), subscription.getVisitorProfile().getId(), subscription.getPlaces());
+            promoCodeService.release(subscription);
+        }
+        gateService.revokeAfterCommit(subscription.getEvent().getId(), subscription.getCodeticket());
+        if (subscription.getStatut() == Statut_Subscription.REUSSI || subscription.getStatut() == Statut_Subscription.UTILISE) {
+            manifestService.record(subscription.getEvent().getId(), subscription.getCodeticket(), TicketChangeKind.REMOVED);
+        }
 
         subscriptionRepository.delete(subscription);
+        if (holdsSeats) {
+            // Freed seats go to the waitlist in the same transaction
+            waitlistService.promote(subscription.getEvent().getId());
+        }
         return ResponseEntity.ok("Subscription deleted successfully!");
     }
     @Transactional(readOnly = true)
@@ -187,6 +237,12 @@ public class SubscriptionService {
     }
     @Transactional
     public SubscriptionResponse validateTicket(String ticketCode) {
+        // Signature checked in memory: forged codes never reach the database
+        Long signedEventId = ticketCodeSigner.verify(ticketCode);
+        if (signedEventId == null) {
+            throw new EntityNotFoundException("Ticket with code " + ticketCode + " not found.");
+        }
+
         User user = profileService.getAuthenticatedUser();
         OrganizerProfile organizerProfile = user.getOrganizerProfile();
         if (organizerProfile == null) {
@@ -209,10 +265,108 @@ public class SubscriptionService {
             throw new ForbiddenException("This ticket is not valid for use (Status: " + subscription.getStatut() + ").");
         }
 
-        subscription.setStatut(Statut_Subscription.UTILISE);
-        Subscription updatedSubscription = subscriptionRepository.save(subscription);
+        // Mise à jour gardée, comme pour les lots : deux scanners sur le même code n'admettent qu'une entrée
+        if (subscriptionRepository.markUsed(List.of(subscription.getId())) != 1) {
+            throw new EntityAlreadyExistException("This ticket has already been used.");
+        }
+        manifestService.record(event.getId(), ticketCode, TicketChangeKind.CHECKED_IN);
+        attendanceService.recordCheckInAfterCommit(event.getId(),
+                subscription.getTicket() != null ? subscription.getTicket().getIntitule() : null, subscription.getPlaces());
 
-        return UtilSubscription.convertToSubscriptionResponse(updatedSubscription);
+        return UtilSubscription.convertToSubscriptionResponse(subscription);
     }
-}
 
+    /**
+     * Validates up to {@value #MAX_BATCH_VALIDATION} codes at once. Codes are resolved with one query,
+     * the still-valid rows are locked and moved to UTILISE with one bulk update, and each code gets a
+     * compact result. Results follow the order of the request; a code repeated in the batch is
+     * admitted at most once.
+     */
+    @Transactional
+    public List<BatchValidationResult> validateTickets(List<String> ticketCodes) {
+        if (ticketCodes == null || ticketCodes.isEmpty()) {
+            return List.of();
+        }
+        if (ticketCodes.size() > MAX_BATCH_VALIDATION) {
+            throw new BadRequestException("At most " + MAX_BATCH_VALIDATION + " codes per batch.");
+        }
+        User user = profileService.getAuthenticatedUser();
+        OrganizerProfile organizerProfile = user.getOrganizerProfile();
+        if (organizerProfile == null) {
+            throw new ForbiddenException("Only organizers can validate tickets.");
+        }
+
+        Map<String, BatchValidationResult> results = new HashMap<>();
+        List<String> toLookUp = new ArrayList<>();
+        for (String code : new LinkedHashSet<>(ticketCodes)) {
+            // Forged codes are rejected in memory, codes of an open gate are answered by its index
+            BatchValidationResult result = ticketCodeSigner.verify(code) == null
+                    ? new BatchValidationResult(code, TicketScanResult.INVALID, null, null, null)
+                    : gateService.validateForBatch(code);
+            if (result != null) {
+                results.put(code, result);
+            } else {
+                toLookUp.add(code);
+            }
+        }
+
+        if (!toLookUp.isEmpty()) {
+            Map<Long, SubscriptionRepository.ScannedTicketView> candidates = new HashMap<>();
+            for (SubscriptionRepository.ScannedTicketView ticket : subscriptionRepository.findScannedTickets(toLookUp)) {
+                TicketScanResult result;
+                if (!Objects.equals(ticket.getOrganizerId(), organizerProfile.getId())) {
+                    result = TicketScanResult.WRONG_ORGANIZER;
+                } else if (ticket.getStatut() == Statut_Subscription.UTILISE) {
+                    result = TicketScanResult.ALREADY_USED;
+                } else if (ticket.getStatut() != Statut_Subscription.REUSSI) {
+                    result = TicketScanResult.INVALID;
+                } else {
+                    candidates.put(ticket.getId(), ticket);
+                    continue;
+                }
+                results.put(ticket.getCodeticket(), scanned(ticket, result));
+            }
+
+            if (!candidates.isEmpty()) {
+                // Rows scanned meanwhile by another lane are no longer REUSSI once locked
+                Set<Long> admitted = new HashSet<>(subscriptionRepository.lockValidIds(new ArrayList<>(candidates.keySet())));
+                if (!admitted.isEmpty()) {
+                    subscriptionRepository.markUsed(new ArrayList<>(admitted));
+                }
+                List<TicketChange> changes = new ArrayList<>(admitted.size());
+                Map<Long, List<String>> admittedByEvent = new HashMap<>();
+                for (SubscriptionRepository.ScannedTicketView ticket : candidates.values()) {
+                    boolean ok = admitted.contains(ticket.getId());
+                    results.put(ticket.getCodeticket(), scanned(ticket, ok ? TicketScanResult.OK : TicketScanResult.ALREADY_USED));
+                    if (ok) {
+                        changes.add(new TicketChange(ticket.getEventId(), GateIndex.keyOf(ticket.getCodeticket()), TicketChangeKind.CHECKED_IN));
+                        admittedByEvent.computeIfAbsent(ticket.getEventId(), id -> new ArrayList<>()).add(ticket.getCodeticket());
+                        attendanceService.recordCheckInAfterCommit(ticket.getEventId(), ticket.getTicketName(), ticket.getPlaces());
+                    }
+                }
+                manifestService.recordAll(changes);
+                admittedByEvent.forEach(gateService::markUsedAfterCommit);
+            }
+        }
+
+        List<BatchValidationResult> response = new ArrayList<>(ticketCodes.size());
+        Set<String> seen = new HashSet<>();
+        for (String code : ticketCodes) {
+            BatchValidationResult result = results.getOrDefault(code,
+                    new BatchValidationResult(code, TicketScanResult.INVALID, null, null, null));
+            if (!seen.add(code) && result.getResult() == TicketScanResult.OK) {
+                result = new BatchValidationResult(code, TicketScanResult.ALREADY_USED,
+                        result.getSubscription_id(), result.getPlaces(), result.getNom_ticket());
+            }
+            response.add(result);
+        }
+        return response;
+    }
+
+    private static BatchValidationResult scanned(SubscriptionRepository.ScannedTicketView ticket, TicketScanResult result) {
+        if (result == TicketScanResult.WRONG_ORGANIZER) {
+            return new BatchValidationResult(ticket.getCodeticket(), result, null, null, null);
+        }
+        return new BatchValidationResult(ticket.getCodeticket(), result, ticket.getId(), ticket.getPlaces(), ticket.getTicketName());
+    }
+}
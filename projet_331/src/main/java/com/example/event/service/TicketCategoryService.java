@@ -1,18 +1,22 @@
 package com.example.event.service;
+import com.example.event.Exception.BadRequestException;
 import com.example.event.Exception.EntityNotFoundException;
 import com.example.event.dto.category.TicketCategoryRequest;
 import com.example.event.dto.category.TicketCategoryResponse;
 import com.example.event.model.Event;
 import com.example.event.model.TicketCategory;
 import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
 import com.example.event.repository.TicketCategoryRepository;
 import com.example.event.utils.UtilCategorie;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class TicketCategoryService {
@@ -21,6 +25,8 @@ public class TicketCategoryService {
     private TicketCategoryRepository ticketCategoryRepository;
     @Autowired
     private EventRepository eventRepository;
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
 
     public ResponseEntity<?> createTicket(TicketCategoryRequest ticketCategoryRequest){
         Event event = eventRepository.findById(ticketCategoryRequest.getId_event()).orElse(null);
@@ -31,6 +37,10 @@ public class TicketCategoryService {
         ticketCategory.setEvent(event);
         ticketCategory.setPrix(ticketCategoryRequest.getPrix());
         ticketCategory.setIntitule(ticketCategoryRequest.getIntitule());
+        if (ticketCategoryRequest.getCapacity() != null && ticketCategoryRequest.getCapacity() < 0) {
+            throw new BadRequestException("La capacité doit être positive");
+        }
+        ticketCategory.setCapacity(ticketCategoryRequest.getCapacity());
 
         event.getTicketCategoryList().add(ticketCategory);
 
@@ -72,6 +82,7 @@ public class TicketCategoryService {
         return ResponseEntity.ok("Suppression reussie !");
     }
 
+    @Transactional
     public ResponseEntity<?> updateTicket(TicketCategoryRequest ticketCategoryRequest,Long id){
         TicketCategory ticketCategory = ticketCategoryRepository.findById(id).orElse(null);
         if(ticketCategory == null){
@@ -82,11 +93,35 @@ public class TicketCategoryService {
         ticketCategory.setPrix(ticketCategoryRequest.getPrix());
         ticketCategory.setIntitule(ticketCategoryRequest.getIntitule());
 
-        ticketCategoryRepository.save(ticketCategory);
+        ticketCategoryRepository.saveAndFlush(ticketCategory);
+
+        if (!Objects.equals(ticketCategoryRequest.getCapacity(), ticketCategory.getCapacity())) {
+            updateCapacity(ticketCategory, ticketCategoryRequest.getCapacity());
+            ticketCategory = ticketCategoryRepository.findById(id).orElseThrow();
+        }
 
         TicketCategoryResponse ticketCategoryResponse = UtilCategorie.convertToCategorieResponse(ticketCategory);
 
         return ResponseEntity.ok(ticketCategoryResponse);
     }
 
+    // Le quota est modifié par requêtes gardées pour ne jamais passer sous les places déjà vendues
+    private void updateCapacity(TicketCategory ticketCategory, Integer capacity) {
+        if (capacity == null) {
+            ticketCategoryRepository.clearCapacity(ticketCategory.getId());
+            return;
+        }
+        if (capacity < 0) {
+            throw new BadRequestException("La capacité doit être positive");
+        }
+        if (ticketCategory.getCapacity() == null) {
+            // Sans quota le compteur n'est pas tenu : on l'initialise une seule fois
+            long active = subscriptionRepository.sumActivePlacesByTicketId(ticketCategory.getId());
+            ticketCategoryRepository.setSold(ticketCategory.getId(), (int) active);
+        }
+        if (ticketCategoryRepository.updateCapacity(ticketCategory.getId(), capacity) == 0) {
+            throw new BadRequestException("La capacité ne peut pas être inférieure aux places déjà vendues");
+        }
+    }
+
 }
@@ -0,0 +1,131 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.model.Event;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.utils.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the places a visitor can hold on one event (per-event {@code maxPlacesPerVisitor}, or the
+ * {@code app.booking.max-places-per-visitor} default; 0 = no cap).
+ * <p>
+ * Places held are counted in memory per (event, visitor), seeded from the database the first time
+ * the pair is seen. A booking is checked and counted with one compare-and-set, before any seat is
+ * taken, so a bot over its cap is turned away without a query nor a lock. Counts taken by a booking
+ * that rolls back are given back; cancellations are subtracted once committed. Idle counters are
+ * dropped and seeded again on next use, which bounds memory and resynchronises them.
+ * <p>
+ * Like the memory ledger, counters are local to the JVM: with several nodes the cap holds per node.
+ */
+@Service
+public class VisitorCapService {
+
+    private record Key(Long eventId, Long visitorProfileId) {
+    }
+
+    private static final class Counter {
+        private final AtomicInteger places;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        Counter(int places) {
+            this.places = new AtomicInteger(places);
+        }
+    }
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final Map<Key, Counter> counters = new ConcurrentHashMap<>();
+
+    @Value("${app.booking.max-places-per-visitor:0}")
+    private int defaultCap;
+
+    @Value("${app.booking.visitor-cap.idle-ms:600000}")
+    private long idleMs;
+
+    public VisitorCapService(SubscriptionRepository subscriptionRepository) {
+        this.subscriptionRepository = subscriptionRepository;
+    }
+
+    /**
+     * Counts {@code places} more for the visitor, in the caller's transaction.
+     *
+     * @throws ForbiddenException if that would take the visitor over the cap of the event.
+     */
+    public void acquire(Event event, Long visitorProfileId, int places) {
+        int cap = capOf(event);
+        if (cap <= 0) {
+            return;
+        }
+        Counter counter = counterFor(event.getId(), visitorProfileId);
+        int held;
+        do {
+            held = counter.places.get();
+            if (held + places > cap) {
+                throw new ForbiddenException("At most " + cap + " places per visitor for this event.");
+            }
+        } while (!counter.places.compareAndSet(held, held + places));
+        TransactionHooks.afterRollback(() -> counter.places.addAndGet(-places));
+    }
+
+    /** Rejects a request that could not be booked within the cap, without counting anything. */
+    public void check(Event event, Long visitorProfileId, int places) {
+        int cap = capOf(event);
+        if (cap > 0 && counterFor(event.getId(), visitorProfileId).places.get() + places > cap) {
+            throw new ForbiddenException("At most " + cap + " places per visitor for this event.");
+        }
+    }
+
+    /** Counts places booked on the visitor's behalf (waitlist promotion), without checking the cap. */
+    public void add(Long eventId, Long visitorProfileId, int places) {
+        Counter counter = counters.get(new Key(eventId, visitorProfileId));
+        if (counter != null) {
+            counter.places.addAndGet(places);
+            TransactionHooks.afterRollback(() -> counter.places.addAndGet(-places));
+        }
+    }
+
+    /** Gives back the places of a cancelled or expired subscription once the caller commits. */
+    public void release(Long eventId, Long visitorProfileId, int places) {
+        if (visitorProfileId == null) {
+            return;
+        }
+        Key key = new Key(eventId, visitorProfileId);
+        TransactionHooks.afterCommit(() -> {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.places.updateAndGet(held -> Math.max(0, held - places));
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.visitor-cap.idle-ms:600000}")
+    public void evictIdleCounters() {
+        long cutoff = System.currentTimeMillis() - idleMs;
+        counters.values().removeIf(counter -> counter.lastUsed < cutoff);
+    }
+
+    private Counter counterFor(Long eventId, Long visitorProfileId) {
+        Key key = new Key(eventId, visitorProfileId);
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            // Seeded outside the map: a concurrent first booking keeps whichever counter got in first
+            Counter seeded = new Counter((int) subscriptionRepository.sumActivePlacesByVisitor(eventId, visitorProfileId));
+            counter = counters.putIfAbsent(key, seeded);
+            if (counter == null) {
+                counter = seeded;
+            }
+        }
+        counter.lastUsed = System.currentTimeMillis();
+        return counter;
+    }
+
+    private int capOf(Event event) {
+        return event.getMaxPlacesPerVisitor() != null ? event.getMaxPlacesPerVisitor() : defaultCap;
+    }
+}
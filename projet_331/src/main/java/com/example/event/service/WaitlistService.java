@@ -0,0 +1,349 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.Exception.EntityAlreadyExistException;
+import com.example.event.Exception.EntityNotFoundException;
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Waitlist.WaitlistResponse;
+import com.example.event.model.*;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.VisitorProfileRepository;
+import com.example.event.repository.WaitlistEntryRepository;
+import com.example.event.utils.TicketCodeSigner;
+import com.example.event.utils.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-event waitlist for sold-out events, served first come, first served.
+ * <p>
+ * Whenever seats are given back (cancelled subscription, expired hold), {@link #promote} runs in the
+ * same transaction and turns the oldest requests into subscriptions while seats are left: free
+ * tickets are issued at once, paid ones become a hold with the usual payment deadline. Notifications
+ * go through the email outbox, so they are sent after commit by its workers.
+ * <p>
+ * The first entries of each event are kept in an in-memory head, so a promotion reads only what it
+ * promotes and events without a waitlist cost no query at all. The head is only a cache: each entry
+ * is taken with a guarded update, so entries cancelled or promoted by another node are skipped, and
+ * it expires after {@code head-ttl-ms} to pick up requests made on other nodes. Promotion stops at the
+ * first request that does not fit, which keeps its rank rather than being overtaken by smaller parties.
+ */
+@Service
+public class WaitlistService {
+
+    private record Candidate(Long id, Long visitorProfileId, Long ticketId, int places) {
+    }
+
+    /** Oldest pending entries of an event; {@code complete} when they are the whole waitlist. */
+    private static final class Head {
+        private final ArrayDeque<Candidate> entries;
+        private final boolean complete;
+        private final long loadedAt;
+
+        Head(Collection<Candidate> entries, boolean complete) {
+            this.entries = new ArrayDeque<>(entries);
+            this.complete = complete;
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        synchronized Candidate peek() {
+            return entries.peekFirst();
+        }
+
+        synchronized void remove(Candidate candidate) {
+            entries.remove(candidate);
+        }
+
+        synchronized boolean isDrained() {
+            return entries.isEmpty();
+        }
+    }
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final EventRepository eventRepository;
+    private final TicketCategoryRepository ticketCategoryRepository;
+    private final VisitorProfileRepository visitorProfileRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final ProfileService profileService;
+    private final SeatInventoryService seatInventoryService;
+    private final TicketCodeSigner ticketCodeSigner;
+    private final ManifestService manifestService;
+    private final EmailOutboxService emailOutboxService;
+    private final VisitorCapService visitorCapService;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, Head> heads = new ConcurrentHashMap<>();
+
+    @Value("${app.waitlist.head-size:32}")
+    private int headSize;
+
+    @Value("${app.waitlist.head-ttl-ms:10000}")
+    private long headTtlMs;
+
+    @Value("${app.booking.hold-ttl-minutes:15}")
+    private long holdTtlMinutes;
+
+    public WaitlistService(WaitlistEntryRepository waitlistEntryRepository,
+                           EventRepository eventRepository,
+                           TicketCategoryRepository ticketCategoryRepository,
+                           VisitorProfileRepository visitorProfileRepository,
+                           SubscriptionRepository subscriptionRepository,
+                           ProfileService profileService,
+                           SeatInventoryService seatInventoryService,
+                           TicketCodeSigner ticketCodeSigner,
+                           ManifestService manifestService,
+                           EmailOutboxService emailOutboxService,
+                           VisitorCapService visitorCapService,
+                           PlatformTransactionManager transactionManager) {
+        this.waitlistEntryRepository = waitlistEntryRepository;
+        this.eventRepository = eventRepository;
+        this.ticketCategoryRepository = ticketCategoryRepository;
+        this.visitorProfileRepository = visitorProfileRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.profileService = profileService;
+        this.seatInventoryService = seatInventoryService;
+        this.ticketCodeSigner = ticketCodeSigner;
+        this.manifestService = manifestService;
+        this.emailOutboxService = emailOutboxService;
+        this.visitorCapService = visitorCapService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Promotions deferred to after commit run in their own transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Puts the authenticated visitor on the waitlist of a sold-out event (or sold-out category).
+     */
+    @Transactional
+    public WaitlistResponse join(SubscriptionRequest request) {
+        User user = profileService.getAuthenticatedUser();
+        VisitorProfile visitorProfile = user.getVisitorProfile();
+        if (visitorProfile == null) {
+            throw new ForbiddenException("Only visitors can join a waitlist.");
+        }
+        Event event = eventRepository.findById(request.getId_event())
+                .orElseThrow(() -> new EntityNotFoundException("Event not found"));
+        TicketCategory ticket = ticketCategoryRepository.findById(request.getId_ticket())
+                .orElseThrow(() -> new EntityNotFoundException("Ticket category not found"));
+        if (!Objects.equals(ticket.getEvent().getId(), event.getId())) {
+            throw new BadRequestException("This ticket category does not belong to the event.");
+        }
+        if (request.getPlaces() <= 0) {
+            throw new BadRequestException("The number of places must be positive.");
+        }
+        if (event.getStatut() == Statut_Event.TERMINE) {
+            throw new BadRequestException("This event is over.");
+        }
+        if (event.getStatut() == Statut_Event.ANNULE) {
+            throw new ForbiddenException("This event has been cancelled.");
+        }
+        if (hasRoom(event, ticket, request.getPlaces())) {
+            throw new BadRequestException("Places are still available, subscribe directly.");
+        }
+        visitorCapService.check(event, visitorProfile.getId(), request.getPlaces());
+        if (waitlistEntryRepository.existsByEventIdAndVisitorProfileIdAndStatut(
+                event.getId(), visitorProfile.getId(), Statut_Waitlist.EN_ATTENTE)) {
+            throw new EntityAlreadyExistException("You are already on the waitlist of this event.");
+        }
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setEvent(event);
+        entry.setTicket(ticket);
+        entry.setVisitorProfile(visitorProfile);
+        entry.setPlaces(request.getPlaces());
+        entry.setStatut(Statut_Waitlist.EN_ATTENTE);
+        entry.setCreatedAt(LocalDateTime.now());
+        WaitlistEntry saved = waitlistEntryRepository.save(entry);
+
+        // A head holding the whole waitlist no longer does; a partial one is unaffected (new entries come last)
+        Long eventId = event.getId();
+        TransactionHooks.afterCommit(() -> heads.computeIfPresent(eventId, (id, head) -> head.complete ? null : head));
+        return toResponse(saved);
+    }
+
+    /** Takes the authenticated visitor's request off the waitlist. */
+    @Transactional
+    public void leave(Long id) {
+        WaitlistEntry entry = waitlistEntryRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Waitlist request not found"));
+        User user = profileService.getAuthenticatedUser();
+        if (user.getVisitorProfile() == null
+                || !Objects.equals(entry.getVisitorProfile().getId(), user.getVisitorProfile().getId())) {
+            throw new ForbiddenException("You can only leave your own waitlist requests.");
+        }
+        // Guarded: a promotion running now either took the entry already or will skip it
+        if (waitlistEntryRepository.cancel(id) == 0) {
+            throw new ForbiddenException("This waitlist request is no longer pending.");
+        }
+    }
+
+    /** Drops the pending requests of a cancelled event, in the caller's transaction. */
+    public int cancelAll(Long eventId) {
+        int cancelled = waitlistEntryRepository.cancelAllForEvent(eventId);
+        TransactionHooks.afterCommit(() -> heads.remove(eventId));
+        return cancelled;
+    }
+
+    @Transactional(readOnly = true)
+    public List<WaitlistResponse> getMyRequests() {
+        User user = profileService.getAuthenticatedUser();
+        if (user.getVisitorProfile() == null) {
+            throw new ForbiddenException("User is not a visitor.");
+        }
+        return waitlistEntryRepository.findByVisitorProfileIdOrderByIdDesc(user.getVisitorProfile().getId()).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    /**
+     * Serves the waitlist of an event with the seats just given back. Runs in the caller's transaction,
+     * right after the release, so promotions commit or roll back with it.
+     *
+     * @return the number of requests promoted.
+     */
+    @Transactional
+    public int promote(Long eventId) {
+        Head cached = heads.get(eventId);
+        if (cached != null && cached.complete && cached.isDrained() && isFresh(cached)) {
+            return 0;
+        }
+        Event event = eventRepository.findById(eventId).orElse(null);
+        if (event == null || event.getStatut() == Statut_Event.ANNULE) {
+            return 0;
+        }
+        if (event.getInventoryMode() == InventoryMode.MEMORY_LEDGER) {
+            // Seats released to the ledger are only visible once the caller commits
+            TransactionHooks.afterCommit(() -> transactionTemplate.executeWithoutResult(status ->
+                    eventRepository.findById(eventId).ifPresent(this::promoteNow)));
+            return 0;
+        }
+        return promoteNow(event);
+    }
+
+    private int promoteNow(Event event) {
+        Long eventId = event.getId();
+        // Entries taken off the cached head come back if the promotion does not commit
+        TransactionHooks.afterRollback(() -> heads.remove(eventId));
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, TicketCategory> tickets = new HashMap<>();
+        Head head = headFor(eventId);
+        int promoted = 0;
+        while (true) {
+            Candidate next = head.peek();
+            if (next == null) {
+                if (head.complete) {
+                    break;
+                }
+                head = loadHead(eventId);
+                if (head.isDrained()) {
+                    break;
+                }
+                continue;
+            }
+            if (waitlistEntryRepository.claim(next.id(), now) == 0) {
+                // Cancelled, or promoted by a concurrent release
+                head.remove(next);
+                continue;
+            }
+            TicketCategory ticket = tickets.computeIfAbsent(next.ticketId(),
+                    id -> ticketCategoryRepository.findById(id).orElseThrow());
+            if (!issue(event, ticket, next, now)) {
+                // First come, first served: the request keeps its rank until enough seats are free
+                waitlistEntryRepository.unclaim(next.id());
+                break;
+            }
+            head.remove(next);
+            promoted++;
+        }
+        return promoted;
+    }
+
+    private boolean issue(Event event, TicketCategory ticket, Candidate candidate, LocalDateTime now) {
+        Subscription subscription = new Subscription();
+        subscription.setCreatedAt(now);
+        subscription.setPlaces(candidate.places());
+        subscription.setVisitorProfile(visitorProfileRepository.getReferenceById(candidate.visitorProfileId()));
+        subscription.setEvent(event);
+        subscription.setTicket(ticket);
+        subscription.setCodeticket(ticketCodeSigner.issue(event.getId()));
+        subscription.setMontant(candidate.places() * ticket.getPrix());
+        if (!seatInventoryService.tryReserve(subscription)) {
+            return false;
+        }
+        visitorCapService.add(event.getId(), candidate.visitorProfileId(), candidate.places());
+
+        boolean isPaidTicket = ticket.getPrix() > 0;
+        if (isPaidTicket) {
+            subscription.setStatut(Statut_Subscription.EN_ATTENTE);
+            subscription.setHoldExpiresAt(now.plusMinutes(holdTtlMinutes));
+        } else {
+            subscription.setStatut(Statut_Subscription.REUSSI);
+        }
+        Subscription saved = subscriptionRepository.save(subscription);
+        waitlistEntryRepository.linkSubscription(candidate.id(), saved.getId());
+
+        if (isPaidTicket) {
+            emailOutboxService.enqueueWaitlistOffer(saved);
+        } else {
+            manifestService.record(event.getId(), saved.getCodeticket(), TicketChangeKind.ADDED);
+            emailOutboxService.enqueueTicketEmail(saved);
+        }
+        return true;
+    }
+
+    private Head headFor(Long eventId) {
+        Head head = heads.get(eventId);
+        return head != null && isFresh(head) ? head : loadHead(eventId);
+    }
+
+    private Head loadHead(Long eventId) {
+        List<Candidate> candidates = waitlistEntryRepository.findHead(eventId, PageRequest.of(0, headSize)).stream()
+                .map(row -> new Candidate(row.getId(), row.getVisitorProfileId(), row.getTicketId(), row.getPlaces()))
+                .toList();
+        Head head = new Head(candidates, candidates.size() < headSize);
+        heads.put(eventId, head);
+        return head;
+    }
+
+    private boolean isFresh(Head head) {
+        return System.currentTimeMillis() - head.loadedAt < headTtlMs;
+    }
+
+    private boolean hasRoom(Event event, TicketCategory ticket, int places) {
+        boolean categoryHasRoom = ticket.getCapacity() == null || ticket.getCapacity() - ticket.getSold() >= places;
+        return categoryHasRoom && seatInventoryService.remainingPlaces(event) >= places;
+    }
+
+    private WaitlistResponse toResponse(WaitlistEntry entry) {
+        Long position = entry.getStatut() == Statut_Waitlist.EN_ATTENTE
+                ? waitlistEntryRepository.countAhead(entry.getEvent().getId(), entry.getId())
+                : null;
+        return new WaitlistResponse(
+                entry.getId(),
+                entry.getEvent().getId(),
+                entry.getTicket() != null ? entry.getTicket().getId() : null,
+                entry.getPlaces(),
+                entry.getStatut(),
+                position,
+                entry.getSubscriptionId(),
+                entry.getCreatedAt(),
+                entry.getPromotedAt()
+        );
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.event.utils;
+
+/**
+ * FIFO waiting room of one event. Buyers get increasing sequence numbers and are admitted in
+ * order through a token bucket ({@code ratePerSecond}, bursts up to {@code burst}). Only a few
+ * counters are kept, whatever the number of waiting clients.
+ */
+public class AdmissionQueue {
+
+    private volatile double ratePerSecond;
+    private long burst;
+
+    private long issued;
+    private long admitted;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public AdmissionQueue(int ratePerSecond, int burst) {
+        this.ratePerSecond = Math.max(1, ratePerSecond);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Changes the rate in place: the positions already issued and admitted are kept, and the time
+     * elapsed so far is credited at the former rate.
+     */
+    public synchronized void reconfigure(int ratePerSecond, int burst) {
+        refill();
+        this.ratePerSecond = Math.max(1, ratePerSecond);
+        this.burst = Math.max(1, burst);
+        this.tokens = Math.min(this.tokens, this.burst);
+    }
+
+    /** Issues the next place in the queue. */
+    public synchronized long join() {
+        long sequence = ++issued;
+        refill();
+        return sequence;
+    }
+
+    /** Every sequence number up to this value has been admitted. */
+    public synchronized long admittedUpTo() {
+        refill();
+        return admitted;
+    }
+
+    public synchronized long issued() {
+        return issued;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * ratePerSecond);
+        lastRefillNanos = now;
+        long grant = Math.min(issued - admitted, (long) tokens);
+        if (grant > 0) {
+            admitted += grant;
+            tokens -= grant;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.event.utils;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the circuit
+ * opens for {@code openMillis}. Then a single trial call is let through (half-open): it closes the
+ * circuit on success or reopens it on failure.
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (consecutiveFailures < failureThreshold) {
+            return true;
+        }
+        if (System.currentTimeMillis() < openUntil || trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (consecutiveFailures >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    /** Lets another trial through after a call that ended without telling whether the server works. */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized boolean isOpen() {
+        return consecutiveFailures >= failureThreshold;
+    }
+
+    /** Earliest time a call may be let through again, in epoch milliseconds. */
+    public synchronized long getRetryAt() {
+        return isOpen() ? openUntil : System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.event.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Open-addressing hash index of the ticket codes of one event, keyed by a 64-bit hash of the code
+ * and stored in primitive arrays (no entity, no boxing). Check-in state changes are single CAS
+ * operations, so two scans of the same ticket can never both succeed.
+ * <p>
+ * Two codes hashing to the same key are both marked {@link #AMBIGUOUS} at load time and left to
+ * the database path.
+ */
+public class GateIndex {
+
+    public static final int MISSING = 0;
+    public static final int VALID = 1;
+    public static final int USED = 2;
+    public static final int REVOKED = 3;
+    public static final int AMBIGUOUS = 4;
+
+    private final long[] keys;
+    private final long[] subscriptionIds;
+    private final int[] places;
+    private final short[] categories;
+    private final AtomicIntegerArray states;
+    private final int mask;
+    private int size;
+
+    public GateIndex(int expectedTickets) {
+        // Load factor of at most 0.5 keeps probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(4, expectedTickets) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.subscriptionIds = new long[capacity];
+        this.places = new int[capacity];
+        this.categories = new short[capacity];
+        this.states = new AtomicIntegerArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /** Adds a ticket while the index is being built, before it is published to other threads. */
+    public void put(String code, long subscriptionId, int ticketPlaces, int category, boolean used) {
+        long key = keyOf(code);
+        int slot = slotOf(key);
+        while (states.get(slot) != MISSING) {
+            if (keys[slot] == key) {
+                states.set(slot, AMBIGUOUS);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        subscriptionIds[slot] = subscriptionId;
+        places[slot] = ticketPlaces;
+        categories[slot] = (short) category;
+        states.set(slot, used ? USED : VALID);
+        size++;
+    }
+
+    /** @return the slot of the code, or -1 if the event has no such ticket. */
+    public int find(String code) {
+        return find(keyOf(code));
+    }
+
+    public int find(long key) {
+        int slot = slotOf(key);
+        while (states.get(slot) != MISSING) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** VALID to USED, exactly once. */
+    public boolean checkIn(int slot) {
+        return states.compareAndSet(slot, VALID, USED);
+    }
+
+    public void revoke(int slot) {
+        states.set(slot, REVOKED);
+    }
+
+    public int state(int slot) {
+        return states.get(slot);
+    }
+
+    public long subscriptionId(int slot) {
+        return subscriptionIds[slot];
+    }
+
+    public int places(int slot) {
+        return places[slot];
+    }
+
+    public int category(int slot) {
+        return categories[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slotOf(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer
+    public static long keyOf(String code) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : code.getBytes(StandardCharsets.US_ASCII)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.event.utils;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Remembers the outcome of requests sent with an {@code Idempotency-Key}.
+ * The in-memory implementation is the default; a table-backed one can replace it as another bean.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Registers {@code pending} under {@code key} unless the key is already known.
+     *
+     * @return null when the caller now owns the key and must run the request, otherwise the
+     * future of the first request (already completed for a replay, still running for a duplicate).
+     */
+    CompletableFuture<ResponseEntity<?>> claim(String key, CompletableFuture<ResponseEntity<?>> pending);
+
+    /**
+     * Keeps the response of a completed request for replays and hands it to the duplicates waiting
+     * on {@code pending}, the future the caller claimed the key with.
+     */
+    void complete(String key, CompletableFuture<ResponseEntity<?>> pending, ResponseEntity<?> response);
+
+    /**
+     * Forgets a request that failed, so that a retry with the same key runs again. Does nothing if
+     * the key is now held by another claim.
+     */
+    void abandon(String key, CompletableFuture<ResponseEntity<?>> pending);
+}
@@ -0,0 +1,81 @@
+package com.example.event.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded idempotency store kept in the JVM. Entries share one TTL, so a FIFO of keys in claim order
+ * is enough to evict completed entries on each claim, once expired or oldest first when the store is full.
+ * The FIFO is bounded by its own size: claims of abandoned keys stay in it until they reach the head.
+ */
+@Component
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private record Entry(CompletableFuture<ResponseEntity<?>> future, long expiresAt) {
+    }
+
+    private record Claim(String key, Entry entry) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Claim> claimOrder = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() walks the whole queue
+    private final AtomicInteger queued = new AtomicInteger();
+
+    @Value("${app.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${app.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Override
+    public CompletableFuture<ResponseEntity<?>> claim(String key, CompletableFuture<ResponseEntity<?>> pending) {
+        long now = System.currentTimeMillis();
+        evict(now);
+        Entry entry = new Entry(pending, now + ttlMinutes * 60_000);
+        Entry existing = entries.putIfAbsent(key, entry);
+        if (existing == null) {
+            claimOrder.add(new Claim(key, entry));
+            queued.incrementAndGet();
+            return null;
+        }
+        return existing.future();
+    }
+
+    @Override
+    public void complete(String key, CompletableFuture<ResponseEntity<?>> pending, ResponseEntity<?> response) {
+        // The future is the stored response: the key may have been claimed again since
+        pending.complete(response);
+    }
+
+    @Override
+    public void abandon(String key, CompletableFuture<ResponseEntity<?>> pending) {
+        entries.computeIfPresent(key, (k, entry) -> entry.future() == pending ? null : entry);
+    }
+
+    private void evict(long now) {
+        Claim oldest;
+        while ((oldest = claimOrder.peek()) != null) {
+            boolean abandoned = entries.get(oldest.key()) != oldest.entry();
+            // In-flight requests are never dropped: their duplicates are waiting on them
+            boolean done = oldest.entry().future().isDone();
+            boolean expired = oldest.entry().expiresAt() <= now && done;
+            boolean overflow = queued.get() >= maxEntries && done;
+            if (!abandoned && !expired && !overflow) {
+                break;
+            }
+            if (claimOrder.remove(oldest)) {
+                queued.decrementAndGet();
+                entries.remove(oldest.key(), oldest.entry());
+            }
+        }
+    }
+}
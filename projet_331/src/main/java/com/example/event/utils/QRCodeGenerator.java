@@ -1,16 +1,52 @@
 package com.example.event.utils;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
+/**
+ * QR codes of the tickets, as 1-bit grayscale PNG or as SVG.
+ * <p>
+ * The PNG is written straight from the module matrix: each distinct pixel row is built once and
+ * repeated for the height of a module, the rows are deflated in a single pass by a per-thread
+ * {@link Deflater}, and every buffer is sized up front. No {@code BufferedImage} nor ImageIO is
+ * involved. The layout (quiet zone, scale, centring) is the one of zxing's {@code QRCodeWriter}.
+ */
 public class QRCodeGenerator {
 
+    // Même marge et même niveau de correction que QRCodeWriter
+    private static final int QUIET_ZONE = 4;
+    private static final ErrorCorrectionLevel ERROR_CORRECTION = ErrorCorrectionLevel.L;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int CACHE_SIZE = 2048;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    // Renvois d'un même billet (relances, rappels) : ~1 Ko par entrée
+    private static final Map<String, byte[]> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
     /**
      * Generates a QR code image from a given text.
      *
@@ -22,11 +58,142 @@ public class QRCodeGenerator {
      * @throws IOException If an error occurs while writing the image to the byte array.
      */
     public static byte[] generateQRCodeImage(String text, int width, int height) throws WriterException, IOException {
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, width, height);
+        ByteMatrix modules = encode(text);
+        int inputWidth = modules.getWidth();
+        int inputHeight = modules.getHeight();
+        int outputWidth = Math.max(width, inputWidth + QUIET_ZONE * 2);
+        int outputHeight = Math.max(height, inputHeight + QUIET_ZONE * 2);
+        int multiple = Math.min(outputWidth / (inputWidth + QUIET_ZONE * 2), outputHeight / (inputHeight + QUIET_ZONE * 2));
+        int leftPadding = (outputWidth - inputWidth * multiple) / 2;
+        int topPadding = (outputHeight - inputHeight * multiple) / 2;
+
+        // Ligne PNG : octet de filtre (0) puis 1 bit par pixel, 1 = blanc
+        int stride = 1 + (outputWidth + 7) / 8;
+        byte[] raw = new byte[stride * outputHeight];
+        byte[] blank = new byte[stride];
+        Arrays.fill(blank, 1, stride, (byte) 0xFF);
+        byte[] line = new byte[stride];
+        int y = 0;
+        for (; y < topPadding; y++) {
+            System.arraycopy(blank, 0, raw, y * stride, stride);
+        }
+        for (int row = 0; row < inputHeight; row++) {
+            System.arraycopy(blank, 0, line, 0, stride);
+            for (int x = 0; x < inputWidth; x++) {
+                if (modules.get(x, row) == 1) {
+                    int from = leftPadding + x * multiple;
+                    for (int pixel = from; pixel < from + multiple; pixel++) {
+                        line[1 + (pixel >> 3)] &= (byte) ~(0x80 >>> (pixel & 7));
+                    }
+                }
+            }
+            for (int repeat = 0; repeat < multiple; repeat++, y++) {
+                System.arraycopy(line, 0, raw, y * stride, stride);
+            }
+        }
+        for (; y < outputHeight; y++) {
+            System.arraycopy(blank, 0, raw, y * stride, stride);
+        }
+        return png(outputWidth, outputHeight, raw);
+    }
+
+    /**
+     * Same as {@link #generateQRCodeImage}, from a bounded cache keyed by text and size.
+     * The returned array is shared: callers must not modify it.
+     */
+    public static byte[] cachedQRCodeImage(String text, int width, int height) throws WriterException, IOException {
+        String key = width + "x" + height + ":" + text;
+        byte[] png = CACHE.get(key);
+        if (png == null) {
+            png = generateQRCodeImage(text, width, height);
+            CACHE.put(key, png);
+        }
+        return png;
+    }
+
+    /**
+     * Generates the QR code as an SVG document: one path of horizontal runs, drawn in module units
+     * and scaled by the viewer to {@code size} pixels.
+     */
+    public static String generateQRCodeSvg(String text, int size) throws WriterException {
+        ByteMatrix modules = encode(text);
+        int width = modules.getWidth();
+        int height = modules.getHeight();
+        int extent = Math.max(width, height) + QUIET_ZONE * 2;
+        StringBuilder svg = new StringBuilder(256 + width * height);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ").append(extent).append(' ').append(extent)
+                .append("\" width=\"").append(size).append("\" height=\"").append(size)
+                .append("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (modules.get(x, y) != 1) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && modules.get(x, y) == 1) {
+                    x++;
+                }
+                svg.append('M').append(start + QUIET_ZONE).append(' ').append(y + QUIET_ZONE)
+                        .append('h').append(x - start).append("v1h-").append(x - start).append('z');
+            }
+        }
+        return svg.append("\"/></svg>").toString();
+    }
+
+    private static ByteMatrix encode(String text) throws WriterException {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        QRCode code = Encoder.encode(text, ERROR_CORRECTION);
+        return code.getMatrix();
+    }
+
+    private static byte[] png(int width, int height, byte[] raw) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        // Borne zlib : le flux compressé ne dépasse jamais cette taille
+        byte[] compressed = new byte[raw.length + raw.length / 1000 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        byte[] png = new byte[PNG_SIGNATURE.length + (12 + 13) + (12 + length) + 12];
+        System.arraycopy(PNG_SIGNATURE, 0, png, 0, PNG_SIGNATURE.length);
+        int offset = PNG_SIGNATURE.length;
+
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 1;  // 1 bit par pixel
+        header[9] = 0;  // niveaux de gris
+        offset = chunk(png, offset, IHDR, header, header.length);
+        offset = chunk(png, offset, IDAT, compressed, length);
+        chunk(png, offset, IEND, new byte[0], 0);
+        return png;
+    }
+
+    private static int chunk(byte[] png, int offset, byte[] type, byte[] data, int length) {
+        writeInt(png, offset, length);
+        System.arraycopy(type, 0, png, offset + 4, 4);
+        System.arraycopy(data, 0, png, offset + 8, length);
+        CRC32 crc = new CRC32();
+        crc.update(png, offset + 4, 4 + length);
+        writeInt(png, offset + 8 + length, (int) crc.getValue());
+        return offset + 12 + length;
+    }
 
-        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
-        return pngOutputStream.toByteArray();
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
     }
 }
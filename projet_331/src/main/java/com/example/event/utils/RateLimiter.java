@@ -0,0 +1,33 @@
+package com.example.event.utils;
+
+/**
+ * Blocking token bucket: at most {@code permitsPerSecond} acquisitions per second on average,
+ * with bursts up to one second's worth.
+ */
+public class RateLimiter {
+
+    private final double permitsPerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public RateLimiter(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.tokens = Math.max(1, permitsPerSecond);
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, permitsPerSecond), tokens + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+            lastRefillNanos = now;
+            // The token is taken now, possibly going negative: later callers queue behind this one
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / permitsPerSecond * 1e9);
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.event.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free seat counter for one event, split into stripes (pre-split token buckets)
+ * so that concurrent buyers decrement different cells instead of a single hot counter.
+ */
+public class SeatLedger {
+
+    // Cells are spread 64 bytes apart to avoid false sharing between stripes
+    private static final int PAD = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+    // Réservations prises mais pas encore validées ou annulées, attendues à la fermeture
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean closed;
+
+    public SeatLedger(int available, int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicIntegerArray(this.stripes * PAD);
+        int share = Math.max(0, available) / this.stripes;
+        int rest = Math.max(0, available) % this.stripes;
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * PAD, share + (i < rest ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes {@code places} seats, all or nothing.
+     *
+     * @return false if the ledger does not hold enough seats.
+     */
+    public boolean tryAcquire(int places) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PAD;
+            int current;
+            while ((current = cells.get(index)) >= places) {
+                if (cells.compareAndSet(index, current, current - places)) {
+                    return true;
+                }
+            }
+        }
+        // No single stripe can serve the request: gather the seats from several stripes
+        return gather(places);
+    }
+
+    /**
+     * Same as {@link #tryAcquire} for a booking that stays in flight until {@link #complete()};
+     * refused once the ledger is closed.
+     */
+    public boolean tryAcquireOpen(int places) {
+        inFlight.incrementAndGet();
+        if (closed || !tryAcquire(places)) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /** Ends a booking started with {@link #tryAcquireOpen}, committed or not. */
+    public void complete() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Refuses new bookings and waits for those in flight to end.
+     *
+     * @return false if some were still in flight after {@code timeoutMs}.
+     */
+    public boolean close(long timeoutMs) throws InterruptedException {
+        closed = true;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (inFlight.get() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    public void reopen() {
+        closed = false;
+    }
+
+    public void release(int places) {
+        int index = ThreadLocalRandom.current().nextInt(stripes) * PAD;
+        cells.addAndGet(index, places);
+    }
+
+    public int available() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PAD);
+        }
+        return total;
+    }
+
+    private synchronized boolean gather(int places) {
+        int[] taken = new int[stripes];
+        int total = 0;
+        for (int i = 0; i < stripes && total < places; i++) {
+            int index = i * PAD;
+            int current;
+            while ((current = cells.get(index)) > 0) {
+                int take = Math.min(current, places - total);
+                if (cells.compareAndSet(index, current, current - take)) {
+                    taken[i] = take;
+                    total += take;
+                    break;
+                }
+            }
+        }
+        if (total < places) {
+            for (int i = 0; i < stripes; i++) {
+                if (taken[i] > 0) {
+                    cells.addAndGet(i * PAD, taken[i]);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.event.utils;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps a few authenticated SMTP connections open and sends batches of messages over them. This
+ * avoids a connect, STARTTLS and AUTH for every email. Sends go through a per-provider rate limit
+ * and a circuit breaker. While the breaker is open, {@link #send} fails fast with
+ * {@link CircuitOpenException}, and callers keep their messages queued.
+ */
+@Component
+public class SmtpConnectionPool {
+
+    /** Thrown without touching the network while the SMTP provider is considered down. */
+    public static class CircuitOpenException extends MailSendException {
+        private final long retryAt;
+
+        public CircuitOpenException(long retryAt) {
+            super("SMTP delivery paused after repeated failures");
+            this.retryAt = retryAt;
+        }
+
+        public long getRetryAt() {
+            return retryAt;
+        }
+    }
+
+    private static final class Connection {
+        final Transport transport;
+        int sent;
+        long lastUsed = System.currentTimeMillis();
+
+        Connection(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final RateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+
+    @Value("${app.mail.pool.messages-per-connection:100}")
+    private int messagesPerConnection = 100;
+
+    @Value("${app.mail.pool.idle-timeout-ms:60000}")
+    private long idleTimeoutMs = 60_000;
+
+    public SmtpConnectionPool(JavaMailSender mailSender,
+                              @Value("${app.mail.pool.size:3}") int size,
+                              @Value("${app.mail.rate-per-second:5}") double ratePerSecond,
+                              @Value("${app.mail.breaker.failure-threshold:5}") int failureThreshold,
+                              @Value("${app.mail.breaker.open-ms:30000}") long openMs) {
+        this.mailSender = (JavaMailSenderImpl) mailSender;
+        this.permits = new Semaphore(Math.max(1, size));
+        this.rateLimiter = new RateLimiter(ratePerSecond);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMs);
+    }
+
+    /**
+     * Sends the messages over one pooled connection.
+     *
+     * @return one entry per message: null when it was accepted, otherwise the failure.
+     * @throws CircuitOpenException while the breaker is open; nothing was sent.
+     */
+    public List<Exception> send(List<MimeMessage> messages) {
+        if (messages.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!circuitBreaker.allowRequest()) {
+            throw new CircuitOpenException(circuitBreaker.getRetryAt());
+        }
+        List<Exception> results = new ArrayList<>(messages.size());
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            circuitBreaker.release();
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP connection", e);
+        }
+        Connection connection = null;
+        boolean settled = false;
+        try {
+            for (MimeMessage message : messages) {
+                try {
+                    if (connection == null || connection.sent >= messagesPerConnection) {
+                        close(connection);
+                        connection = borrow();
+                    }
+                    rateLimiter.acquire();
+                    message.saveChanges();
+                    connection.transport.sendMessage(message, message.getAllRecipients());
+                    connection.sent++;
+                    circuitBreaker.onSuccess();
+                    settled = true;
+                    results.add(null);
+                } catch (SendFailedException e) {
+                    // Rejected recipients: the connection itself is fine
+                    circuitBreaker.onSuccess();
+                    settled = true;
+                    results.add(e);
+                } catch (MessagingException e) {
+                    circuitBreaker.onFailure();
+                    settled = true;
+                    close(connection);
+                    connection = null;
+                    results.add(e);
+                    if (results.size() < messages.size()) {
+                        if (!circuitBreaker.allowRequest()) {
+                            while (results.size() < messages.size()) {
+                                results.add(new CircuitOpenException(circuitBreaker.getRetryAt()));
+                            }
+                            break;
+                        }
+                        // The next message may be the half-open trial: its outcome is still owed
+                        settled = false;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    while (results.size() < messages.size()) {
+                        results.add(e);
+                    }
+                    break;
+                }
+            }
+        } finally {
+            // A half-open trial that ended without an answer (interrupt, unexpected error) must not block the next one
+            if (!settled) {
+                circuitBreaker.release();
+            }
+            if (connection != null) {
+                connection.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(connection);
+            }
+            permits.release();
+        }
+        return results;
+    }
+
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.pool.idle-timeout-ms:60000}")
+    public void closeIdleConnections() {
+        long limit = System.currentTimeMillis() - idleTimeoutMs;
+        for (Iterator<Connection> it = idle.iterator(); it.hasNext(); ) {
+            Connection connection = it.next();
+            if (connection.lastUsed < limit && idle.remove(connection)) {
+                close(connection);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            close(connection);
+        }
+    }
+
+    private Connection borrow() throws MessagingException {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (connection.transport.isConnected()) {
+                return connection;
+            }
+            close(connection);
+        }
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        String username = mailSender.getUsername();
+        boolean anonymous = username == null || username.isBlank();
+        transport.connect(mailSender.getHost(), mailSender.getPort(),
+                anonymous ? null : username, anonymous ? null : mailSender.getPassword());
+        return new Connection(transport);
+    }
+
+    private static void close(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.transport.close();
+            } catch (MessagingException e) {
+                // Already broken
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.event.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Ticket codes that are unique by construction, so booking never has to probe the table.
+ * <p>
+ * A code packs 41 bits of milliseconds since 2024-01-01, a 10-bit node id and a 12-bit sequence
+ * (Snowflake layout) into 13 Crockford base32 characters, followed by a mod-37 check symbol that
+ * catches mistyped or transposed characters. Each node needs its own {@code app.ticket-code.node-id}.
+ */
+@Component
+public class TicketCodeGenerator {
+
+    public static final String PREFIX = "TICKET-";
+
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int BODY_LENGTH = 13;
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final String CHECK_SYMBOLS = ALPHABET + "*~$=U";
+    // Former random format: 8 uppercase hex characters of a UUID
+    private static final Pattern LEGACY_BODY = Pattern.compile("[0-9A-F]{8}");
+
+    private final long node;
+    // (milliseconds << SEQUENCE_BITS) | sequence of the last issued code
+    private final AtomicLong last = new AtomicLong();
+
+    public TicketCodeGenerator(@Value("${app.ticket-code.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("app.ticket-code.node-id must be between 0 and " + ((1 << NODE_BITS) - 1));
+        }
+        this.node = nodeId;
+    }
+
+    public String next() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        // Strictly increasing: a full millisecond or a clock going back borrows the next slot
+        long slot = last.updateAndGet(previous -> Math.max(previous + 1, now));
+        long millis = slot >>> SEQUENCE_BITS;
+        long id = (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (slot & ((1 << SEQUENCE_BITS) - 1));
+        return PREFIX + encode(id);
+    }
+
+    /**
+     * Cheap format check before a database lookup. Codes from the former random format
+     * ({@code TICKET-} and 8 uppercase hex characters) are let through; anything else must carry a valid check symbol.
+     */
+    public static boolean isWellFormed(String code) {
+        if (code == null || !code.startsWith(PREFIX)) {
+            return false;
+        }
+        String body = code.substring(PREFIX.length());
+        if (body.length() != BODY_LENGTH + 1) {
+            return LEGACY_BODY.matcher(body).matches();
+        }
+        int remainder = 0;
+        for (int i = 0; i < BODY_LENGTH; i++) {
+            int value = ALPHABET.indexOf(body.charAt(i));
+            if (value < 0) {
+                return false;
+            }
+            remainder = (remainder * 32 + value) % 37;
+        }
+        return body.charAt(BODY_LENGTH) == CHECK_SYMBOLS.charAt(remainder);
+    }
+
+    private static String encode(long id) {
+        char[] chars = new char[BODY_LENGTH + 1];
+        for (int i = BODY_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (id & 31));
+            id >>>= 5;
+        }
+        int remainder = 0;
+        for (int i = 0; i < BODY_LENGTH; i++) {
+            remainder = (remainder * 32 + ALPHABET.indexOf(chars[i])) % 37;
+        }
+        chars[BODY_LENGTH] = CHECK_SYMBOLS.charAt(remainder);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.event.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Self-verifying ticket codes: {@code TICKET-<serial>-<event id>-<key version><signature>}.
+ * <p>
+ * The signature is an HMAC-SHA256 of the serial and the event id, truncated to 80 bits, under a key
+ * derived for each event from the master key of the given version. A forged or mistyped code is
+ * rejected in memory, before any database access. Rotation adds a new version to
+ * {@code app.ticket-code.keys} and makes it active; older versions stay there to verify tickets
+ * already issued. Without configured keys, a random key is generated for the active version at
+ * each start, like the waiting room secret.
+ */
+@Slf4j
+@Component
+public class TicketCodeSigner {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final int SIGNATURE_CHARS = 16;
+    private static final int MAX_CACHED_EVENT_KEYS = 10_000;
+
+    private final TicketCodeGenerator ticketCodeGenerator;
+    private final Map<Integer, byte[]> masterKeys = new HashMap<>();
+    private final int activeVersion;
+    private final boolean acceptUnsigned;
+    private final Map<String, SecretKeySpec> eventKeys = new ConcurrentHashMap<>();
+
+    public TicketCodeSigner(TicketCodeGenerator ticketCodeGenerator,
+                            @Value("${app.ticket-code.keys:}") String keys,
+                            @Value("${app.ticket-code.active-key}") int activeVersion,
+                            @Value("${app.ticket-code.accept-unsigned:true}") boolean acceptUnsigned) {
+        this.ticketCodeGenerator = ticketCodeGenerator;
+        if (keys == null || keys.isBlank()) {
+            log.warn("app.ticket-code.keys is not set: ticket codes are signed with a random key and stop verifying after a restart");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            keys = activeVersion + ":" + HexFormat.of().formatHex(random);
+        }
+        for (String entry : keys.split(",")) {
+            int colon = entry.indexOf(':');
+            int version = Integer.parseInt(entry.substring(0, colon).trim());
+            if (version < 0 || version >= ALPHABET.length()) {
+                throw new IllegalArgumentException("Ticket key versions must be between 0 and " + (ALPHABET.length() - 1));
+            }
+            masterKeys.put(version, entry.substring(colon + 1).trim().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!masterKeys.containsKey(activeVersion)) {
+            throw new IllegalArgumentException("app.ticket-code.active-key " + activeVersion + " is not in app.ticket-code.keys");
+        }
+        this.activeVersion = activeVersion;
+        this.acceptUnsigned = acceptUnsigned;
+    }
+
+    /** New signed code for a ticket of the given event. */
+    public String issue(Long eventId) {
+        String serial = ticketCodeGenerator.next();
+        String event = Long.toString(eventId, 32).toUpperCase();
+        return serial + "-" + event + "-" + ALPHABET.charAt(activeVersion) + signature(activeVersion, eventId, serial);
+    }
+
+    /**
+     * Checks a scanned code without touching the database.
+     *
+     * @return the event id carried by a valid signed code, -1 for an accepted unsigned legacy code,
+     * null for a code that must be rejected.
+     */
+    public Long verify(String code) {
+        if (code == null) {
+            return null;
+        }
+        int eventDash = code.indexOf('-', TicketCodeGenerator.PREFIX.length());
+        int signatureDash = eventDash < 0 ? -1 : code.indexOf('-', eventDash + 1);
+        if (signatureDash < 0) {
+            return acceptUnsigned && TicketCodeGenerator.isWellFormed(code) ? -1L : null;
+        }
+        String serial = code.substring(0, eventDash);
+        String tail = code.substring(signatureDash + 1);
+        if (!TicketCodeGenerator.isWellFormed(serial) || tail.length() != SIGNATURE_CHARS + 1) {
+            return null;
+        }
+        int version = ALPHABET.indexOf(tail.charAt(0));
+        long eventId;
+        try {
+            eventId = Long.parseLong(code.substring(eventDash + 1, signatureDash), 32);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!masterKeys.containsKey(version)) {
+            return null;
+        }
+        byte[] expected = signature(version, eventId, serial).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = tail.substring(1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? eventId : null;
+    }
+
+    private String signature(int version, long eventId, String serial) {
+        byte[] digest = hmac(eventKey(version, eventId), (serial + ":" + eventId).getBytes(StandardCharsets.UTF_8));
+        // 80 bits = 16 base32 characters
+        char[] chars = new char[SIGNATURE_CHARS];
+        for (int i = 0; i < SIGNATURE_CHARS; i++) {
+            int bit = i * 5;
+            int word = ((digest[bit / 8] & 0xFF) << 8) | (digest[bit / 8 + 1] & 0xFF);
+            chars[i] = ALPHABET.charAt((word >>> (11 - bit % 8)) & 31);
+        }
+        return new String(chars);
+    }
+
+    private SecretKeySpec eventKey(int version, long eventId) {
+        String cacheKey = version + ":" + eventId;
+        SecretKeySpec key = eventKeys.get(cacheKey);
+        if (key == null) {
+            if (eventKeys.size() >= MAX_CACHED_EVENT_KEYS) {
+                eventKeys.clear();
+            }
+            byte[] derived = hmac(new SecretKeySpec(masterKeys.get(version), "HmacSHA256"),
+                    ("event:" + eventId).getBytes(StandardCharsets.UTF_8));
+            key = new SecretKeySpec(derived, "HmacSHA256");
+            eventKeys.put(cacheKey, key);
+        }
+        return key;
+    }
+
+    private static byte[] hmac(SecretKeySpec key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.event.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a transactional call when the database reports a transient failure
+ * (lock timeout, deadlock victim...). Business rejections such as "not enough places"
+ * are never retried. Must be called from outside the transaction, e.g. from a controller,
+ * so that every attempt runs in a fresh transaction.
+ */
+@Component
+public class TransientRetry {
+
+    @Value("${app.booking.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.booking.retry.initial-backoff-ms:20}")
+    private long initialBackoffMs;
+
+    @Value("${app.booking.retry.max-backoff-ms:200}")
+    private long maxBackoffMs;
+
+    public <T> T execute(Supplier<T> action) {
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (TransientDataAccessException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private void sleep(long backoff) {
+        // Full jitter so that retrying requests do not hit the row again at the same instant
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
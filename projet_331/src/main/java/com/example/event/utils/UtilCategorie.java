@@ -7,11 +7,17 @@ import org.springframework.stereotype.Component;
 @Component
 public class UtilCategorie {
     public static TicketCategoryResponse convertToCategorieResponse(TicketCategory cat) {
+        // Disponibilité lue sur les compteurs de la catégorie, sans compter les inscriptions
+        Integer available = cat.getCapacity() == null ? null : Math.max(0, cat.getCapacity() - cat.getSold());
         return new TicketCategoryResponse(
                 cat.getId(),
                 cat.getIntitule(),
                 cat.getPrix(),
-                cat.getEvent().getTitle()
+                cat.getEvent().getTitle(),
+                cat.getCapacity(),
+                cat.getSold(),
+                available,
+                available != null && available == 0
         );
     }
 }
@@ -20,6 +20,7 @@ public class UtilEvent {
         response.setOrganizer_name(event.getOrganizerProfile().getName());
         response.setStatutEvent(event.getStatut());
         response.setProfil_url(event.getProfil_url());
+        response.setMaxPlacesPerVisitor(event.getMaxPlacesPerVisitor());
 
         if (event.getTicketCategoryList() != null) {
             response.setTicketCategoryList(
@@ -13,12 +13,15 @@ public class UtilSubscription {
                 subscription.getMontant(),
                 subscription.getPlaces(),
                 subscription.getCreatedAt(),
-                new VisitorDto(
-                        subscription.getVisitorProfile().getId(),
-                        subscription.getVisitorProfile().getName(),
-                        subscription.getVisitorProfile().getSurname(),
-                        subscription.getVisitorProfile().getUser().getEmail()
-                ),
+                subscription.getVisitorProfile() == null
+                        // Billet offert sans compte visiteur
+                        ? new VisitorDto(null, null, null, subscription.getHolderEmail())
+                        : new VisitorDto(
+                                subscription.getVisitorProfile().getId(),
+                                subscription.getVisitorProfile().getName(),
+                                subscription.getVisitorProfile().getSurname(),
+                                subscription.getVisitorProfile().getUser().getEmail()
+                        ),
                 subscription.getEvent().getId(),
                 subscription.getEvent().getTitle(),
                 subscription.getEvent().getDebut(),
@@ -0,0 +1,81 @@
+package com.example.event.repository;
+
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.utils.TransientRetry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class EventRepositoryConcurrencyTests {
+
+    private static final int PLACES = 500;
+    private static final int BOOKINGS = 3000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransientRetry transientRetry;
+
+    @Test
+    void parallelBookingsNeverOversell() throws Exception {
+        Event event = new Event();
+        event.setTitle("Flash sale");
+        event.setPlaces(PLACES);
+        event.setDebut(LocalDate.now().plusDays(10));
+        event.setFin(LocalDate.now().plusDays(11));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        Long eventId = eventRepository.save(event).getId();
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                Integer updated = transientRetry.execute(() -> tx.execute(status -> eventRepository.decrementPlaces(eventId, 1)));
+                if (updated != null && updated == 1) {
+                    reserved.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        int remaining = eventRepository.findById(eventId).orElseThrow().getPlaces();
+        assertEquals(PLACES, reserved.get());
+        assertEquals(0, remaining);
+
+        // Restoring the seats must also be exact
+        tx.execute(status -> eventRepository.incrementPlaces(eventId, PLACES));
+        assertEquals(PLACES, eventRepository.findById(eventId).orElseThrow().getPlaces());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.QueueTicketResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class AdmissionQueueServiceTests {
+
+    @Autowired
+    private AdmissionQueueService admissionQueueService;
+
+    @Autowired
+    private AdminEventService adminEventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void waitingRoomAdmitsInOrderAndSurvivesARateChange() {
+        Event event = new Event();
+        event.setTitle("Stadium tour");
+        event.setPlaces(100);
+        event.setDebut(LocalDate.now().plusDays(40));
+        event.setFin(LocalDate.now().plusDays(40));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+
+        // 1 admission per second, bursts of 2: the first two are in, the others wait their turn
+        adminEventService.updateEventAdmissionRate(eventId, 1);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            login("visitor" + i + "@eventapp.com");
+            QueueTicketResponse ticket = admissionQueueService.join(eventId);
+            tokens.add(ticket.getToken());
+        }
+        login("visitor5@eventapp.com");
+        QueueTicketResponse last = admissionQueueService.status(eventId, tokens.get(4));
+        assertTrue(last.getPosition() >= 2);
+        assertThrows(ForbiddenException.class, () -> admissionQueueService.checkAdmitted(eventId, tokens.get(4)));
+        assertThrows(ForbiddenException.class, () -> admissionQueueService.checkAdmitted(eventId, null));
+
+        login("visitor1@eventapp.com");
+        assertDoesNotThrow(() -> admissionQueueService.checkAdmitted(eventId, tokens.get(0)));
+        // A token is bound to the user it was issued to
+        login("visitor2@eventapp.com");
+        assertThrows(ForbiddenException.class, () -> admissionQueueService.checkAdmitted(eventId, tokens.get(0)));
+
+        // Changing the rate keeps the queue: admitted tokens stay valid and nobody loses their place
+        adminEventService.updateEventAdmissionRate(eventId, 2);
+        login("visitor1@eventapp.com");
+        assertDoesNotThrow(() -> admissionQueueService.checkAdmitted(eventId, tokens.get(0)));
+        login("visitor5@eventapp.com");
+        QueueTicketResponse afterChange = admissionQueueService.status(eventId, tokens.get(4));
+        assertTrue(afterChange.getPosition() <= last.getPosition());
+
+        // Without a rate, booking no longer goes through the waiting room
+        adminEventService.updateEventAdmissionRate(eventId, null);
+        assertDoesNotThrow(() -> admissionQueueService.checkAdmitted(eventId, null));
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.event.service;
+
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+// Pushes are triggered by hand: the scheduled push only runs once, at startup
+@SpringBootTest(properties = "app.attendance.push-interval-ms=3600000")
+@AutoConfigureMockMvc(addFilters = false)
+class AttendanceServiceTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void streamSendsTheSeedThenOneCoalescedUpdatePerPush() throws Exception {
+        Event event = new Event();
+        event.setTitle("Doors open");
+        event.setPlaces(50);
+        event.setDebut(LocalDate.now().plusDays(2));
+        event.setFin(LocalDate.now().plusDays(2));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory floor = new TicketCategory();
+        floor.setIntitule("Floor");
+        floor.setPrix(0);
+        floor.setCapacity(50);
+        floor.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(floor).getId();
+
+        String early = book("visitor16@eventapp.com", eventId, ticketId, 1);
+        String second = book("visitor17@eventapp.com", eventId, ticketId, 2);
+        String third = book("visitor18@eventapp.com", eventId, ticketId, 3);
+
+        // Scanned before anyone follows the event: part of the seed
+        login("organizer1@eventapp.com");
+        subscriptionService.validateTicket(early);
+
+        MockHttpServletResponse stream = mockMvc.perform(get("/subscription/event/{id}/attendance", eventId))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        assertEquals(1, count(stream.getContentAsString(), "event:attendance"));
+        assertTrue(stream.getContentAsString().contains("\"tickets\":1,\"places\":1"));
+
+        // A burst of check-ins goes out as a single snapshot
+        subscriptionService.validateTicket(second);
+        subscriptionService.validateTickets(List.of(third));
+        attendanceService.pushChanges();
+        attendanceService.pushChanges();
+        String content = stream.getContentAsString();
+        assertEquals(2, count(content, "event:attendance"));
+        assertTrue(content.contains("\"tickets\":3,\"places\":6"));
+        assertTrue(content.contains("\"nom_ticket\":\"Floor\""));
+    }
+
+    private String book(String visitor, Long eventId, Long ticketId, int places) {
+        login(visitor);
+        Long id = subscriptionService.createSubscription(new SubscriptionRequest(places, eventId, ticketId)).getBody().getId();
+        return subscriptionRepository.findById(id).orElseThrow().getCodeticket();
+    }
+
+    private static int count(String content, String token) {
+        int count = 0;
+        for (int i = content.indexOf(token); i >= 0; i = content.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
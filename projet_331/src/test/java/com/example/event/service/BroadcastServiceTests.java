@@ -0,0 +1,151 @@
+package com.example.event.service;
+
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.EmailOutbox;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Job;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.Subscription;
+import com.example.event.model.VisitorProfile;
+import com.example.event.repository.BackgroundJobRepository;
+import com.example.event.repository.EmailOutboxRepository;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.VisitorProfileRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.mail.host=127.0.0.1",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.starttls.required=false",
+        "app.mail.rate-per-second=1000",
+        "app.broadcast.chunk-size=2",
+        "app.mail.outbox.bulk-rate-per-second=1000"
+})
+class BroadcastServiceTests {
+
+    private static final SmtpStandIn smtp;
+
+    static {
+        try {
+            smtp = new SmtpStandIn();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void mailPort(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", smtp::getPort);
+    }
+
+    @AfterAll
+    static void stopSmtp() throws IOException {
+        smtp.close();
+    }
+
+    @Autowired
+    private BroadcastService broadcastService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private VisitorProfileRepository visitorProfileRepository;
+
+    @Autowired
+    private BackgroundJobRepository backgroundJobRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Test
+    void dateChangeIsSentOncePerRecipientInChunks() throws Exception {
+        Event event = new Event();
+        event.setTitle("Moved concert");
+        event.setLieu("Douala");
+        event.setPlaces(100);
+        event.setDebut(LocalDate.now().plusDays(20));
+        event.setFin(LocalDate.now().plusDays(20));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event = eventRepository.save(event);
+
+        List<VisitorProfile> visitors = visitorProfileRepository.findAll();
+        subscribe(event, visitors.get(0), Statut_Subscription.REUSSI);
+        subscribe(event, visitors.get(0), Statut_Subscription.REUSSI);
+        subscribe(event, visitors.get(1), Statut_Subscription.REUSSI);
+        subscribe(event, visitors.get(2), Statut_Subscription.EN_ATTENTE);
+        subscribe(event, visitors.get(3), Statut_Subscription.ECHOUE);
+        // Complimentary tickets: one sent to an address, one from a ZIP without any
+        holderTicket(event, "guest@example.com");
+        holderTicket(event, null);
+
+        BackgroundJob job = broadcastService.announceEventChange(event,
+                event.getDebut().minusDays(7), event.getFin().minusDays(7), event.getLieu(), null);
+        assertNotNull(job);
+
+        BackgroundJob done = awaitJob(job.getId());
+        assertEquals(Statut_Job.TERMINE, done.getStatut());
+        assertEquals(4, done.getTotal());
+        assertEquals(4, done.getProcessed());
+
+        List<String> recipients = emailOutboxRepository.findAll().stream()
+                .filter(email -> "Update for Event: Moved concert".equals(email.getSubject()))
+                .map(EmailOutbox::getRecipient)
+                .toList();
+        // The visitor with two tickets gets a single email, the failed subscription none
+        assertEquals(4, recipients.size());
+        assertEquals(4, recipients.stream().distinct().count());
+        assertTrue(recipients.contains("guest@example.com"));
+    }
+
+    private void holderTicket(Event event, String holderEmail) {
+        Subscription subscription = new Subscription();
+        subscription.setEvent(event);
+        subscription.setHolderEmail(holderEmail);
+        subscription.setPlaces(1);
+        subscription.setStatut(Statut_Subscription.REUSSI);
+        subscriptionRepository.save(subscription);
+    }
+
+    private void subscribe(Event event, VisitorProfile visitor, Statut_Subscription statut) {
+        Subscription subscription = new Subscription();
+        subscription.setEvent(event);
+        subscription.setVisitorProfile(visitor);
+        subscription.setPlaces(1);
+        subscription.setStatut(statut);
+        subscriptionRepository.save(subscription);
+    }
+
+    private BackgroundJob awaitJob(Long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            BackgroundJob job = backgroundJobRepository.findById(id).orElseThrow();
+            if (job.getStatut() == Statut_Job.TERMINE || job.getStatut() == Statut_Job.ECHOUE
+                    || System.currentTimeMillis() > deadline) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.CartLine;
+import com.example.event.dto.Subscription.CartRequest;
+import com.example.event.dto.Subscription.CartResponse;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.model.EmailKind;
+import com.example.event.model.EmailOutbox;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EmailOutboxRepository;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class CartServiceTests {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cartIsBookedWholeOrNotAtAll() {
+        Event event = new Event();
+        event.setTitle("Family day");
+        event.setPlaces(10);
+        event.setDebut(LocalDate.now().plusDays(15));
+        event.setFin(LocalDate.now().plusDays(15));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory vip = category(event, "VIP", 5000, 2);
+        TicketCategory standard = category(event, "Standard", 0, null);
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("visitor1@eventapp.com", null, List.of()));
+        CartResponse cart = cartService.checkout(new CartRequest(eventId, List.of(
+                new CartLine(vip.getId(), 1), new CartLine(standard.getId(), 3), new CartLine(vip.getId(), 1))));
+
+        assertEquals(2, cart.getSubscriptions().size());
+        assertEquals(2 * 5000, cart.getMontant());
+        assertEquals(5, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        assertEquals(2, ticketCategoryRepository.findById(vip.getId()).orElseThrow().getSold());
+        SubscriptionResponse vipLine = cart.getSubscriptions().get(0);
+        assertEquals(Statut_Subscription.EN_ATTENTE, subscriptionRepository.findById(vipLine.getId()).orElseThrow().getStatut());
+        assertEquals(Statut_Subscription.REUSSI,
+                subscriptionRepository.findById(cart.getSubscriptions().get(1).getId()).orElseThrow().getStatut());
+
+        // One confirmation for the whole order
+        String ids = cart.getSubscriptions().stream().map(line -> String.valueOf(line.getId())).collect(Collectors.joining(","));
+        List<EmailOutbox> emails = emailOutboxRepository.findAll().stream()
+                .filter(email -> email.getKind() == EmailKind.ORDER && ids.equals(email.getBody()))
+                .toList();
+        assertEquals(1, emails.size());
+        assertEquals("visitor1@eventapp.com", emails.get(0).getRecipient());
+
+        // The VIP quota is used up: the Standard line of this cart is not kept either
+        long before = subscriptionRepository.count();
+        assertThrows(ForbiddenException.class, () -> cartService.checkout(new CartRequest(eventId, List.of(
+                new CartLine(standard.getId(), 1), new CartLine(vip.getId(), 1)))));
+        assertEquals(before, subscriptionRepository.count());
+        assertEquals(5, eventRepository.findById(eventId).orElseThrow().getPlaces());
+    }
+
+    private TicketCategory category(Event event, String intitule, int prix, Integer capacity) {
+        TicketCategory category = new TicketCategory();
+        category.setIntitule(intitule);
+        category.setPrix(prix);
+        category.setCapacity(capacity);
+        category.setEvent(event);
+        return ticketCategoryRepository.save(category);
+    }
+}
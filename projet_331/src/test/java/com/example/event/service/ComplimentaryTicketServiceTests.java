@@ -0,0 +1,99 @@
+package com.example.event.service;
+
+import com.example.event.dto.Subscription.ComplimentaryRequest;
+import com.example.event.dto.Subscription.ComplimentaryResponse;
+import com.example.event.model.Event;
+import com.example.event.model.OrganizerProfile;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ComplimentaryTicketServiceTests {
+
+    @Autowired
+    private ComplimentaryTicketService complimentaryTicketService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void bulkTicketsTakeSeatsAndStreamAsZip() throws Exception {
+        String email = "organizer1@eventapp.com";
+        OrganizerProfile organizer = userRepository.findByEmail(email).orElseThrow().getOrganizerProfile();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+
+        Event event = new Event();
+        event.setTitle("Press night");
+        event.setPlaces(1000);
+        event.setDebut(LocalDate.now().plusDays(30));
+        event.setFin(LocalDate.now().plusDays(30));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(organizer);
+        event = eventRepository.save(event);
+        TicketCategory press = new TicketCategory();
+        press.setIntitule("Press");
+        press.setCapacity(800);
+        press.setEvent(event);
+        press = ticketCategoryRepository.save(press);
+
+        ComplimentaryResponse zipped = complimentaryTicketService.issue(
+                new ComplimentaryRequest(press.getId(), 600, 1, null), false);
+        ComplimentaryResponse emailed = complimentaryTicketService.issue(
+                new ComplimentaryRequest(press.getId(), null, 2, List.of("press1@media.cm", "press2@media.cm")), true);
+
+        assertEquals(600, zipped.getIssued());
+        assertEquals(2, emailed.getEmailed());
+        assertEquals(1000 - 600 - 4, eventRepository.findById(event.getId()).orElseThrow().getPlaces());
+        assertEquals(604, ticketCategoryRepository.findById(press.getId()).orElseThrow().getSold());
+        assertEquals(Statut_Subscription.REUSSI,
+                subscriptionRepository.findByCodeticket(zipped.getCodes().get(599)).orElseThrow().getStatut());
+        assertEquals("press2@media.cm",
+                subscriptionRepository.findByCodeticket(emailed.getCodes().get(1)).orElseThrow().getHolderEmail());
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        complimentaryTicketService.writeZip(zipped.getCodes(), zip);
+        int entries = 0;
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+            for (ZipEntry entry = input.getNextEntry(); entry != null; entry = input.getNextEntry()) {
+                assertTrue(entry.getName().endsWith(".png"));
+                entries++;
+            }
+        }
+        assertEquals(600, entries);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.event.service;
+
+import com.example.event.model.EmailOutbox;
+import com.example.event.model.Statut_Email;
+import com.example.event.model.Subscription;
+import com.example.event.repository.EmailOutboxRepository;
+import com.example.event.repository.SubscriptionRepository;
+import jakarta.mail.internet.MimeUtility;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.mail.host=127.0.0.1",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.starttls.required=false",
+        "app.mail.outbox.max-attempts=2",
+        "app.mail.outbox.initial-backoff-ms=10",
+        "app.mail.outbox.max-backoff-ms=20",
+        "app.mail.outbox.poll-interval-ms=50",
+        "app.mail.rate-per-second=1000"
+})
+class EmailOutboxServiceTests {
+
+    private static final SmtpStandIn smtp;
+
+    static {
+        try {
+            smtp = new SmtpStandIn();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void mailPort(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", smtp::getPort);
+    }
+
+    @AfterAll
+    static void stopSmtp() throws IOException {
+        smtp.close();
+    }
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void ticketEmailIsDeliveredAfterCommitAndRetriedUntilDeadLetter() throws Exception {
+        Subscription subscription = subscriptionRepository.findAll().get(0);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        smtp.setRejecting(false);
+        tx.executeWithoutResult(status -> emailOutboxService.enqueueTicketEmail(
+                subscriptionRepository.findById(subscription.getId()).orElseThrow()));
+        String message = smtp.awaitMessage(10, TimeUnit.SECONDS);
+        assertNotNull(message);
+        // The HTML part is quoted-printable: long codes may be wrapped or escaped
+        String decoded = new String(MimeUtility.decode(new ByteArrayInputStream(message.getBytes(StandardCharsets.US_ASCII)),
+                "quoted-printable").readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(decoded.contains(subscription.getCodeticket()));
+        assertEquals(Statut_Email.ENVOYE, awaitFinalState().getStatut());
+
+        smtp.setRejecting(true);
+        tx.executeWithoutResult(status -> emailOutboxService.enqueueTicketEmail(
+                subscriptionRepository.findById(subscription.getId()).orElseThrow()));
+        EmailOutbox deadLetter = awaitFinalState();
+        assertEquals(Statut_Email.ECHOUE, deadLetter.getStatut());
+        assertEquals(2, deadLetter.getAttempts());
+        assertNotNull(deadLetter.getLastError());
+    }
+
+    private EmailOutbox awaitFinalState() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            EmailOutbox latest = emailOutboxRepository.findAll().stream()
+                    .max(Comparator.comparing(EmailOutbox::getId)).orElseThrow();
+            if (latest.getStatut() != Statut_Email.EN_ATTENTE || System.currentTimeMillis() > deadline) {
+                return latest;
+            }
+            Thread.sleep(50);
+        }
+    }
+}
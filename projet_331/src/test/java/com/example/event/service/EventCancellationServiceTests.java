@@ -0,0 +1,236 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Job.BackgroundJobResponse;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.EmailOutbox;
+import com.example.event.model.Event;
+import com.example.event.model.InventoryMode;
+import com.example.event.model.JobKind;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Job;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.BackgroundJobRepository;
+import com.example.event.repository.EmailOutboxRepository;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.cancellation.chunk-size=2")
+class EventCancellationServiceTests {
+
+    @Autowired
+    private EventCancellationService eventCancellationService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private BackgroundJobRepository backgroundJobRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private AdminEventService adminEventService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cancellationReleasesSeatsAndSetsPaidTicketsToRefund() throws Exception {
+        Event event = new Event();
+        event.setTitle("Rained out festival");
+        event.setPlaces(10);
+        event.setDebut(LocalDate.now().plusDays(12));
+        event.setFin(LocalDate.now().plusDays(12));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        Long freeId = category(event, "Free", 0).getId();
+        Long paidId = category(event, "Pass", 3000).getId();
+
+        login("visitor1@eventapp.com");
+        SubscriptionResponse free = subscriptionService.createSubscription(new SubscriptionRequest(2, eventId, freeId)).getBody();
+        SubscriptionResponse paid = subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, paidId)).getBody();
+        subscriptionService.confirmPayment(paid.getId());
+        login("visitor2@eventapp.com");
+        SubscriptionResponse paidToo = subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, paidId)).getBody();
+        subscriptionService.confirmPayment(paidToo.getId());
+        login("visitor3@eventapp.com");
+        SubscriptionResponse unpaid = subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, paidId)).getBody();
+        assertEquals(5, eventRepository.findById(eventId).orElseThrow().getPlaces());
+
+        login("organizer2@eventapp.com");
+        assertThrows(ForbiddenException.class, () -> eventCancellationService.cancel(eventId, null));
+        login("organizer1@eventapp.com");
+        BackgroundJobResponse response = eventCancellationService.cancel(eventId, "Storm warning");
+        assertThrows(ForbiddenException.class, () -> eventCancellationService.cancel(eventId, null));
+
+        // 4 subscriptions, 2 per chunk
+        BackgroundJob job = awaitJob(response.getId());
+        assertEquals(Statut_Job.TERMINE, job.getStatut());
+        assertEquals(4, job.getTotal());
+        assertEquals(4, job.getProcessed());
+
+        Event cancelled = eventRepository.findById(eventId).orElseThrow();
+        assertEquals(Statut_Event.ANNULE, cancelled.getStatut());
+        assertEquals(10, cancelled.getPlaces());
+        assertEquals(Statut_Subscription.ANNULE, statutOf(free.getId()));
+        assertEquals(Statut_Subscription.A_REMBOURSER, statutOf(paid.getId()));
+        assertEquals(Statut_Subscription.A_REMBOURSER, statutOf(paidToo.getId()));
+        assertEquals(Statut_Subscription.ANNULE, statutOf(unpaid.getId()));
+
+        // One email per visitor, with the reason
+        List<EmailOutbox> emails = emailOutboxRepository.findAll().stream()
+                .filter(email -> "Event cancelled: Rained out festival".equals(email.getSubject()))
+                .toList();
+        assertEquals(3, emails.stream().map(EmailOutbox::getRecipient).distinct().count());
+        assertEquals(3, emails.size());
+        emails.forEach(email -> assertTrue(email.getBody().contains("Storm warning")));
+
+        login("visitor4@eventapp.com");
+        assertThrows(ForbiddenException.class,
+                () -> subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, freeId)));
+
+        // A refund still owed cannot be deleted; a cancelled ticket can, without giving seats back twice
+        login("visitor1@eventapp.com");
+        assertThrows(ForbiddenException.class, () -> subscriptionService.deleteSubscription(paid.getId()));
+        subscriptionService.deleteSubscription(free.getId());
+        assertEquals(10, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        assertEquals(Statut_Subscription.A_REMBOURSER, statutOf(paid.getId()));
+    }
+
+    @Test
+    void cancellingAgainRestartsAFailedJob() throws Exception {
+        Event event = new Event();
+        event.setTitle("Half cancelled show");
+        event.setPlaces(10);
+        event.setDebut(LocalDate.now().plusDays(14));
+        event.setFin(LocalDate.now().plusDays(14));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        Long freeId = category(event, "Free", 0).getId();
+
+        login("visitor5@eventapp.com");
+        SubscriptionResponse left = subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, freeId)).getBody();
+
+        // The event was cancelled but its job failed before reaching this ticket
+        Event cancelled = eventRepository.findById(eventId).orElseThrow();
+        cancelled.setStatut(Statut_Event.ANNULE);
+        eventRepository.save(cancelled);
+        BackgroundJob failed = new BackgroundJob();
+        failed.setKind(JobKind.EVENT_CANCELLATION);
+        failed.setStatut(Statut_Job.ECHOUE);
+        failed.setEventId(eventId);
+        failed.setSubject("Event cancelled: Half cancelled show");
+        failed.setPayload("The show is cancelled.");
+        backgroundJobRepository.save(failed);
+
+        login("organizer1@eventapp.com");
+        BackgroundJob job = awaitJob(eventCancellationService.cancel(eventId, null).getId());
+        assertEquals(Statut_Job.TERMINE, job.getStatut());
+        assertEquals(1, job.getProcessed());
+        assertEquals(Statut_Subscription.ANNULE, statutOf(left.getId()));
+        assertEquals(10, eventRepository.findById(eventId).orElseThrow().getPlaces());
+
+        // Nothing left to cancel
+        assertThrows(ForbiddenException.class, () -> eventCancellationService.cancel(eventId, null));
+    }
+
+    @Test
+    void bookingThatReadTheEventBeforeCancellationIsRefused() {
+        for (InventoryMode mode : List.of(InventoryMode.DATABASE, InventoryMode.SEAT_BUCKETS)) {
+            Event event = new Event();
+            event.setTitle("Late booking " + mode);
+            event.setPlaces(10);
+            event.setDebut(LocalDate.now().plusDays(16));
+            event.setFin(LocalDate.now().plusDays(16));
+            event.setStatut(Statut_Event.PROCHAINEMENT);
+            event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+            Long eventId = eventRepository.save(event).getId();
+            if (mode == InventoryMode.SEAT_BUCKETS) {
+                adminEventService.updateEventInventoryMode(eventId, mode, 4);
+            }
+            // Read before the cancellation commits
+            Event stale = eventRepository.findById(eventId).orElseThrow();
+
+            login("organizer1@eventapp.com");
+            eventCancellationService.cancel(eventId, null);
+
+            Subscription late = new Subscription();
+            late.setEvent(stale);
+            late.setPlaces(1);
+            assertThrows(ForbiddenException.class, () -> transactionTemplate.executeWithoutResult(
+                    status -> seatInventoryService.reserve(late)));
+        }
+    }
+
+    private TicketCategory category(Event event, String intitule, int prix) {
+        TicketCategory category = new TicketCategory();
+        category.setIntitule(intitule);
+        category.setPrix(prix);
+        category.setEvent(event);
+        return ticketCategoryRepository.save(category);
+    }
+
+    private Statut_Subscription statutOf(Long id) {
+        return subscriptionRepository.findById(id).orElseThrow().getStatut();
+    }
+
+    private BackgroundJob awaitJob(Long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            BackgroundJob job = backgroundJobRepository.findById(id).orElseThrow();
+            if (job.getStatut() == Statut_Job.TERMINE || job.getStatut() == Statut_Job.ECHOUE
+                    || System.currentTimeMillis() > deadline) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
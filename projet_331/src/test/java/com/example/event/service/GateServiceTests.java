@@ -0,0 +1,102 @@
+package com.example.event.service;
+
+import com.example.event.dto.Subscription.BatchValidationResult;
+import com.example.event.dto.Subscription.GateStatusResponse;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.example.event.dto.Subscription.TicketScanResult.ALREADY_USED;
+import static com.example.event.dto.Subscription.TicketScanResult.OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Check-ins are flushed by hand: the scheduled flush only runs once, at startup
+@SpringBootTest(properties = "app.gate.flush-interval-ms=3600000")
+class GateServiceTests {
+
+    @Autowired
+    private GateService gateService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void openingTheGateAgainKeepsCheckInsNotFlushedYet() {
+        Event event = new Event();
+        event.setTitle("Main hall");
+        event.setPlaces(20);
+        event.setDebut(LocalDate.now().plusDays(1));
+        event.setFin(LocalDate.now().plusDays(1));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory floor = new TicketCategory();
+        floor.setIntitule("Floor");
+        floor.setPrix(0);
+        floor.setCapacity(20);
+        floor.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(floor).getId();
+
+        login("visitor19@eventapp.com");
+        Long id = subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, ticketId)).getBody().getId();
+        String code = subscriptionRepository.findById(id).orElseThrow().getCodeticket();
+
+        login("organizer1@eventapp.com");
+        gateService.open(eventId);
+        assertEquals(List.of(OK), results(subscriptionService.validateTickets(List.of(code))));
+
+        // Still in memory only: opening again must not reload the ticket as valid
+        GateStatusResponse reopened = gateService.open(eventId);
+        assertTrue(reopened.getPendingFlush() >= 1);
+        assertEquals(1, reopened.getCheckedIn());
+        assertEquals(List.of(ALREADY_USED), results(subscriptionService.validateTickets(List.of(code))));
+
+        // Closed then opened again: pending check-ins are written first and the ticket is loaded as used
+        gateService.close(eventId);
+        assertEquals(Statut_Subscription.UTILISE, subscriptionRepository.findById(id).orElseThrow().getStatut());
+        gateService.open(eventId);
+        assertEquals(List.of(ALREADY_USED), results(subscriptionService.validateTickets(List.of(code))));
+        gateService.close(eventId);
+    }
+
+    private static List<?> results(List<BatchValidationResult> results) {
+        return results.stream().map(BatchValidationResult::getResult).toList();
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
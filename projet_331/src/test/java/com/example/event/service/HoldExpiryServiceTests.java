@@ -0,0 +1,94 @@
+package com.example.event.service;
+
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class HoldExpiryServiceTests {
+
+    @Autowired
+    private HoldExpiryService holdExpiryService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void expiredHoldReturnsItsSeatsExactlyOnce() {
+        Event event = new Event();
+        event.setTitle("Unpaid gala");
+        event.setPlaces(10);
+        event.setDebut(LocalDate.now().plusDays(25));
+        event.setFin(LocalDate.now().plusDays(25));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory gala = new TicketCategory();
+        gala.setIntitule("Gala");
+        gala.setPrix(2500);
+        gala.setCapacity(5);
+        gala.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(gala).getId();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("visitor6@eventapp.com", null, List.of()));
+        SubscriptionResponse hold = subscriptionService.createSubscription(new SubscriptionRequest(2, eventId, ticketId)).getBody();
+        assertEquals(8, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        assertEquals(2, ticketCategoryRepository.findById(ticketId).orElseThrow().getSold());
+
+        // The payment deadline passes
+        Subscription subscription = subscriptionRepository.findById(hold.getId()).orElseThrow();
+        subscription.setHoldExpiresAt(LocalDateTime.now().minusMinutes(1));
+        subscriptionRepository.save(subscription);
+
+        holdExpiryService.sweepExpiredHolds();
+        assertEquals(Statut_Subscription.ECHOUE, subscriptionRepository.findById(hold.getId()).orElseThrow().getStatut());
+        assertEquals(10, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        assertEquals(0, ticketCategoryRepository.findById(ticketId).orElseThrow().getSold());
+        assertTrue(holdExpiryService.getMetrics().getSeatsReleasedTotal() >= 2);
+
+        // Neither a second sweep nor deleting the expired hold gives the seats back again
+        holdExpiryService.sweepExpiredHolds();
+        subscriptionService.deleteSubscription(hold.getId());
+        assertEquals(10, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        assertEquals(0, ticketCategoryRepository.findById(ticketId).orElseThrow().getSold());
+    }
+}
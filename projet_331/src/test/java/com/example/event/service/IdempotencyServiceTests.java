@@ -0,0 +1,109 @@
+package com.example.event.service;
+
+import com.example.event.Exception.BadRequestException;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class IdempotencyServiceTests {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replayedBookingReturnsTheFirstResponse() {
+        Event event = new Event();
+        event.setTitle("Retry storm");
+        event.setPlaces(10);
+        event.setDebut(LocalDate.now().plusDays(18));
+        event.setFin(LocalDate.now().plusDays(18));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory free = new TicketCategory();
+        free.setIntitule("Free");
+        free.setPrix(0);
+        free.setCapacity(10);
+        free.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(free).getId();
+
+        login("visitor8@eventapp.com");
+        AtomicInteger runs = new AtomicInteger();
+        SubscriptionRequest request = new SubscriptionRequest(2, eventId, ticketId);
+        ResponseEntity<SubscriptionResponse> first = idempotencyService.execute("key-1", "create-subscription", () -> {
+            runs.incrementAndGet();
+            return subscriptionService.createSubscription(request);
+        });
+        ResponseEntity<SubscriptionResponse> replay = idempotencyService.execute("key-1", "create-subscription", () -> {
+            runs.incrementAndGet();
+            return subscriptionService.createSubscription(request);
+        });
+        assertEquals(1, runs.get());
+        assertEquals(first.getBody().getId(), replay.getBody().getId());
+        assertEquals(8, eventRepository.findById(eventId).orElseThrow().getPlaces());
+
+        // The same key from another user is another request
+        login("visitor9@eventapp.com");
+        ResponseEntity<SubscriptionResponse> other = idempotencyService.execute("key-1", "create-subscription",
+                () -> subscriptionService.createSubscription(request));
+        assertEquals(6, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        assertEquals(2, other.getBody().getPlaces());
+    }
+
+    @Test
+    void failedRequestIsNotRemembered() {
+        login("visitor8@eventapp.com");
+        AtomicInteger runs = new AtomicInteger();
+        assertThrows(BadRequestException.class, () -> idempotencyService.execute("key-2", "fails-once", () -> {
+            runs.incrementAndGet();
+            throw new BadRequestException("first attempt fails");
+        }));
+        ResponseEntity<String> retried = idempotencyService.execute("key-2", "fails-once", () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.ok("second attempt");
+        });
+        assertEquals("second attempt", retried.getBody());
+        assertEquals(2, runs.get());
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
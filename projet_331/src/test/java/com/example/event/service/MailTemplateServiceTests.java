@@ -0,0 +1,24 @@
+package com.example.event.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailTemplateServiceTests {
+
+    private final MailTemplateService mailTemplateService = new MailTemplateService();
+
+    @Test
+    void ticketTemplateEscapesEventDataAndReferencesTheQrCode() {
+        String html = mailTemplateService.renderTicket(new MailTemplateService.TicketMail(
+                "Jazz <script>alert(1)</script>", LocalDate.of(2025, 6, 1), "Yaoundé", "Awa Ngono", 2, 10000, "TICKET-ABC"));
+
+        assertTrue(html.contains("TICKET-ABC"));
+        assertTrue(html.contains("cid:qrCodeImage"));
+        assertTrue(html.contains("&lt;script&gt;"));
+        assertFalse(html.contains("<script>"));
+    }
+}
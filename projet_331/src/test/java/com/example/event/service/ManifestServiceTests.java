@@ -0,0 +1,187 @@
+package com.example.event.service;
+
+import com.example.event.dto.Subscription.CheckInMergeResponse;
+import com.example.event.dto.Subscription.ManifestDeltaResponse;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.model.TicketChange;
+import com.example.event.model.TicketChangeKind;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.TicketChangeRepository;
+import com.example.event.repository.UserRepository;
+import com.example.event.utils.GateIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ManifestServiceTests {
+
+    @Autowired
+    private ManifestService manifestService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private TicketChangeRepository ticketChangeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cursorStaysBehindChangesThatMayStillCommit() throws Exception {
+        Long eventId = newEvent("Offline gates").getId();
+        login("organizer1@eventapp.com");
+
+        // No change for this event: the cursor does not move, whatever other events logged
+        ManifestDeltaResponse empty = manifestService.changesSince(eventId, 0);
+        assertEquals(0, empty.getCursor());
+        assertTrue(empty.getAdded().isEmpty());
+
+        TicketChange settled = change(eventId, 1, LocalDateTime.now().minusHours(1));
+        ManifestDeltaResponse first = manifestService.changesSince(eventId, 0);
+        assertEquals(List.of(hex(1)), first.getAdded());
+        assertEquals(settled.getId(), first.getCursor());
+
+        // A transaction takes an id, then commits after a higher id is already visible
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        TransactionTemplate late = new TransactionTemplate(transactionManager);
+        late.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Thread writer = new Thread(() -> late.executeWithoutResult(status -> {
+            change(eventId, 2, LocalDateTime.now());
+            inserted.countDown();
+            try {
+                commit.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        writer.start();
+        assertTrue(inserted.await(10, TimeUnit.SECONDS));
+        change(eventId, 3, LocalDateTime.now());
+
+        ManifestDeltaResponse second = manifestService.changesSince(eventId, first.getCursor());
+        assertEquals(List.of(hex(3)), second.getAdded());
+        assertEquals(first.getCursor(), second.getCursor());
+
+        commit.countDown();
+        writer.join(10_000);
+        ManifestDeltaResponse third = manifestService.changesSince(eventId, second.getCursor());
+        assertEquals(List.of(hex(2), hex(3)), third.getAdded());
+        assertEquals(first.getCursor(), third.getCursor());
+
+        // Once settled, the cursor moves past both
+        List<TicketChange> recent = ticketChangeRepository.findByEventIdAndIdGreaterThanOrderByIdAsc(
+                eventId, first.getCursor(), PageRequest.of(0, 10));
+        recent.forEach(c -> c.setCreatedAt(LocalDateTime.now().minusHours(1)));
+        ticketChangeRepository.saveAll(recent);
+        ManifestDeltaResponse fourth = manifestService.changesSince(eventId, third.getCursor());
+        assertEquals(recent.get(recent.size() - 1).getId(), fourth.getCursor());
+        assertFalse(fourth.isMore());
+    }
+
+    @Test
+    void offlineCheckInsMergeOnceAndShowUpInTheDelta() {
+        Event event = newEvent("Offline merge");
+        TicketCategory free = new TicketCategory();
+        free.setIntitule("Free");
+        free.setPrix(0);
+        free.setCapacity(10);
+        free.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(free).getId();
+
+        login("visitor7@eventapp.com");
+        SubscriptionResponse booked = subscriptionService.createSubscription(new SubscriptionRequest(1, event.getId(), ticketId)).getBody();
+        String code = subscriptionRepository.findById(booked.getId()).orElseThrow().getCodeticket();
+
+        login("organizer1@eventapp.com");
+        // The booking is too recent for the export cursor to move past it
+        ByteBuffer header = ByteBuffer.wrap(manifestService.exportManifest(event.getId()));
+        header.position(12);
+        assertEquals(0, header.getLong());
+
+        // Two gates upload the same scan, plus a code that is not for this event
+        CheckInMergeResponse merged = manifestService.mergeCheckIns(event.getId(), List.of(code, code, "TICKET-00000000"));
+        assertEquals(1, merged.getMerged());
+        assertEquals(0, merged.getAlreadyUsed());
+        assertEquals(1, merged.getUnknown());
+        assertEquals(Statut_Subscription.UTILISE, subscriptionRepository.findById(booked.getId()).orElseThrow().getStatut());
+
+        CheckInMergeResponse replay = manifestService.mergeCheckIns(event.getId(), List.of(code));
+        assertEquals(0, replay.getMerged());
+        assertEquals(1, replay.getAlreadyUsed());
+
+        ManifestDeltaResponse delta = manifestService.changesSince(event.getId(), 0);
+        String key = hex(GateIndex.keyOf(code));
+        assertEquals(List.of(key), delta.getAdded());
+        assertEquals(List.of(key), delta.getCheckedIn());
+    }
+
+    private Event newEvent(String title) {
+        Event event = new Event();
+        event.setTitle(title);
+        event.setPlaces(10);
+        event.setDebut(LocalDate.now().plusDays(12));
+        event.setFin(LocalDate.now().plusDays(12));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        return eventRepository.save(event);
+    }
+
+    private TicketChange change(Long eventId, long key, LocalDateTime createdAt) {
+        TicketChange change = new TicketChange(eventId, key, TicketChangeKind.ADDED);
+        change.setCreatedAt(createdAt);
+        return ticketChangeRepository.save(change);
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+
+    private static String hex(long key) {
+        return String.format("%016x", key);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Promo.PromoCodeRequest;
+import com.example.event.dto.Promo.PromoCodeResponse;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.PromoCodeRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class PromoCodeServiceTests {
+
+    @Autowired
+    private PromoCodeService promoCodeService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void presaleBurstNeverOverRedeemsTheCode() throws Exception {
+        Event event = new Event();
+        event.setTitle("Presale night");
+        event.setPlaces(100);
+        event.setDebut(LocalDate.now().plusDays(30));
+        event.setFin(LocalDate.now().plusDays(30));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory standard = new TicketCategory();
+        standard.setIntitule("Standard");
+        standard.setPrix(5000);
+        standard.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(standard).getId();
+
+        login("organizer1@eventapp.com");
+        PromoCodeResponse code = promoCodeService.create(new PromoCodeRequest(
+                "presale20", eventId, ticketId, 20, null, 3, 1, null, null));
+        assertEquals("PRESALE20", code.getCode());
+
+        // 10 visitors try the code at the same time: only 3 get the discount
+        int threads = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, SubscriptionResponse> booked = new ConcurrentHashMap<>();
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 1; i <= threads; i++) {
+            String visitor = "visitor" + i + "@eventapp.com";
+            calls.add(pool.submit(() -> {
+                login(visitor);
+                start.await();
+                try {
+                    booked.put(visitor, subscriptionService.createSubscription(
+                            new SubscriptionRequest(2, eventId, ticketId, "Presale20")).getBody());
+                } catch (ForbiddenException e) {
+                    // code épuisé
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> call : calls) {
+            call.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(3, booked.size());
+        booked.values().forEach(response -> assertEquals(2 * 4000, response.getMontant()));
+        assertEquals(3, promoCodeRepository.findById(code.getId()).orElseThrow().getRedeemed());
+        assertEquals(94, eventRepository.findById(eventId).orElseThrow().getPlaces());
+
+        // A cancellation gives the redemption back, but each visitor may only hold one
+        Map.Entry<String, SubscriptionResponse> first = booked.entrySet().iterator().next();
+        login(first.getKey());
+        assertThrows(ForbiddenException.class, () -> subscriptionService.createSubscription(
+                new SubscriptionRequest(1, eventId, ticketId, "PRESALE20")));
+        subscriptionService.deleteSubscription(first.getValue().getId());
+        assertEquals(2, promoCodeRepository.findById(code.getId()).orElseThrow().getRedeemed());
+        subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, ticketId, "PRESALE20"));
+        assertEquals(3, promoCodeRepository.findById(code.getId()).orElseThrow().getRedeemed());
+    }
+
+    @Test
+    void concurrentBookingsOfOneVisitorRespectThePerVisitorLimit() throws Exception {
+        Event event = new Event();
+        event.setTitle("Members night");
+        event.setPlaces(100);
+        event.setDebut(LocalDate.now().plusDays(31));
+        event.setFin(LocalDate.now().plusDays(31));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory standard = new TicketCategory();
+        standard.setIntitule("Standard");
+        standard.setPrix(5000);
+        standard.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(standard).getId();
+
+        login("organizer1@eventapp.com");
+        PromoCodeResponse code = promoCodeService.create(new PromoCodeRequest(
+                "member10", eventId, ticketId, 10, null, 100, 1, null, null));
+
+        // The same visitor sends 8 bookings with the code at once: only one may use it
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<SubscriptionResponse> booked = new ArrayList<>();
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            calls.add(pool.submit(() -> {
+                login("visitor3@eventapp.com");
+                start.await();
+                try {
+                    SubscriptionResponse response = subscriptionService.createSubscription(
+                            new SubscriptionRequest(1, eventId, ticketId, "MEMBER10")).getBody();
+                    synchronized (booked) {
+                        booked.add(response);
+                    }
+                } catch (ForbiddenException e) {
+                    // limite par visiteur atteinte
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> call : calls) {
+            call.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(1, booked.size());
+        assertEquals(1, promoCodeRepository.findById(code.getId()).orElseThrow().getRedeemed());
+        assertEquals(99, eventRepository.findById(eventId).orElseThrow().getPlaces());
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.event.service;
+
+import com.example.event.model.BackgroundJob;
+import com.example.event.model.EmailKind;
+import com.example.event.model.EmailOutbox;
+import com.example.event.model.Event;
+import com.example.event.model.JobKind;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Job;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.Subscription;
+import com.example.event.model.VisitorProfile;
+import com.example.event.repository.BackgroundJobRepository;
+import com.example.event.repository.EmailOutboxRepository;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.VisitorProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {
+        "app.reminder.page-size=2",
+        "app.reminder.initial-delay-ms=3600000",
+        "app.mail.outbox.bulk-rate-per-second=1000"
+})
+class ReminderServiceTests {
+
+    @Autowired
+    private ReminderService reminderService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private VisitorProfileRepository visitorProfileRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private BackgroundJobRepository backgroundJobRepository;
+
+    @Autowired
+    private BackgroundJobService backgroundJobService;
+
+    @Test
+    void eachPaidTicketIsRemindedOnceAcrossReruns() throws Exception {
+        Event event = new Event();
+        event.setTitle("Tomorrow's show");
+        event.setPlaces(100);
+        event.setDebut(LocalDate.now().plusDays(1));
+        event.setFin(LocalDate.now().plusDays(1));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event = eventRepository.save(event);
+
+        List<VisitorProfile> visitors = visitorProfileRepository.findAll();
+        List<Long> paid = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            paid.add(subscribe(event, visitors.get(i), Statut_Subscription.REUSSI));
+        }
+        Long pending = subscribe(event, visitors.get(3), Statut_Subscription.EN_ATTENTE);
+        // Complimentary ticket from a ZIP: nobody to remind
+        Subscription handedOut = new Subscription();
+        handedOut.setEvent(event);
+        handedOut.setPlaces(1);
+        handedOut.setStatut(Statut_Subscription.REUSSI);
+        subscriptionRepository.save(handedOut);
+
+        reminderService.scheduleReminders();
+        BackgroundJob first = backgroundJobRepository.findByEventIdOrderByIdDesc(event.getId()).get(0);
+        assertEquals(Statut_Job.TERMINE, awaitJob(first.getId()).getStatut());
+        assertEquals(paid.size(), reminders(event.getId()).size());
+
+        // A second job, e.g. started by another node before the first one finished, finds nothing left to send
+        BackgroundJob second = backgroundJobService.start(JobKind.EVENT_REMINDER, event.getId(), null, null, null);
+        assertEquals(Statut_Job.TERMINE, awaitJob(second.getId()).getStatut());
+
+        List<EmailOutbox> reminders = reminders(event.getId());
+        assertEquals(paid, reminders.stream().map(EmailOutbox::getSubscriptionId).sorted().toList());
+        for (Long id : paid) {
+            assertNotNull(subscriptionRepository.findById(id).orElseThrow().getReminderSentAt());
+        }
+        assertEquals(null, subscriptionRepository.findById(pending).orElseThrow().getReminderSentAt());
+    }
+
+    private Long subscribe(Event event, VisitorProfile visitor, Statut_Subscription statut) {
+        Subscription subscription = new Subscription();
+        subscription.setEvent(event);
+        subscription.setVisitorProfile(visitor);
+        subscription.setPlaces(1);
+        subscription.setStatut(statut);
+        return subscriptionRepository.save(subscription).getId();
+    }
+
+    // Seeded events starting tomorrow get their own reminders: only look at this event's tickets
+    private List<EmailOutbox> reminders(Long eventId) {
+        return emailOutboxRepository.findAll().stream()
+                .filter(email -> email.getKind() == EmailKind.REMINDER)
+                .filter(email -> subscriptionRepository.findById(email.getSubscriptionId())
+                        .map(subscription -> subscription.getEvent().getId().equals(eventId)).orElse(false))
+                .toList();
+    }
+
+    private BackgroundJob awaitJob(Long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            BackgroundJob job = backgroundJobRepository.findById(id).orElseThrow();
+            if (job.getStatut() == Statut_Job.TERMINE || job.getStatut() == Statut_Job.ECHOUE
+                    || System.currentTimeMillis() > deadline) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+    }
+}
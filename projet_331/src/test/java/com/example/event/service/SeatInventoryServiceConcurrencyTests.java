@@ -0,0 +1,204 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.model.Event;
+import com.example.event.model.InventoryMode;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import com.example.event.utils.TransientRetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SeatInventoryServiceConcurrencyTests {
+
+    private static final int PLACES = 300;
+    private static final int BOOKINGS = 600;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransientRetry transientRetry;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 16, 64})
+    void bucketedEventNeverOversells(int buckets) throws Exception {
+        Event event = new Event();
+        event.setTitle("Bucketed sale " + buckets);
+        event.setPlaces(PLACES);
+        event.setDebut(LocalDate.now().plusDays(10));
+        event.setFin(LocalDate.now().plusDays(11));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        Long eventId = eventRepository.save(event).getId();
+        Event bucketed = seatInventoryService.switchMode(eventId, InventoryMode.SEAT_BUCKETS, buckets);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                Subscription subscription = new Subscription();
+                subscription.setEvent(bucketed);
+                subscription.setPlaces(1);
+                try {
+                    transientRetry.execute(() -> tx.execute(status -> {
+                        seatInventoryService.reserve(subscription);
+                        return null;
+                    }));
+                    reserved.incrementAndGet();
+                } catch (ForbiddenException soldOut) {
+                    // expected once the stock is gone
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(PLACES, reserved.get());
+        assertEquals(0, seatInventoryService.remainingPlaces(bucketed));
+
+        // Folding the buckets back leaves the event row consistent
+        Event folded = seatInventoryService.switchMode(eventId, InventoryMode.DATABASE, null);
+        assertEquals(0, folded.getPlaces());
+    }
+
+    @Test
+    void ledgerEventNeverOversellsAndReconcilesAfterARestart() throws Exception {
+        int places = 40;
+        Event event = new Event();
+        event.setTitle("Ledger sale");
+        event.setPlaces(places);
+        event.setDebut(LocalDate.now().plusDays(10));
+        event.setFin(LocalDate.now().plusDays(11));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        Event ledgerEvent = seatInventoryService.switchMode(eventId, InventoryMode.MEMORY_LEDGER, null);
+        TicketCategory free = new TicketCategory();
+        free.setIntitule("Free");
+        free.setPrix(0);
+        free.setEvent(ledgerEvent);
+        Long ticketId = ticketCategoryRepository.save(free).getId();
+
+        // Twice as many buyers as seats, spread over the seeded visitors
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        Map<Long, String> booked = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 2 * places; i++) {
+            String visitor = "visitor" + (i % 20 + 1) + "@eventapp.com";
+            futures.add(pool.submit(() -> {
+                login(visitor);
+                start.await();
+                try {
+                    Long id = transientRetry.execute(() -> subscriptionService.createSubscription(
+                            new SubscriptionRequest(1, eventId, ticketId))).getBody().getId();
+                    booked.put(id, visitor);
+                } catch (ForbiddenException soldOut) {
+                    // expected once the ledger is empty
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(places, booked.size());
+        assertEquals(0, seatInventoryService.remainingPlaces(eventRepository.findById(eventId).orElseThrow()));
+
+        // Write-behind: the event row catches up with the ledger
+        seatInventoryService.flushPendingInventory();
+        assertEquals(0, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        assertFalse(subscriptionRepository.findEventIdsWithPendingInventory().contains(eventId));
+
+        // A restart loses the ledger: it is rebuilt from the reconciled row, so the event stays sold out
+        seatInventoryService.invalidate(eventId);
+        seatInventoryService.reconcileOnStartup();
+        login("visitor1@eventapp.com");
+        assertThrows(ForbiddenException.class, () -> subscriptionService.createSubscription(
+                new SubscriptionRequest(1, eventId, ticketId)));
+
+        // A cancellation gives its seat back, once
+        Map.Entry<Long, String> cancelled = booked.entrySet().iterator().next();
+        login(cancelled.getValue());
+        subscriptionService.deleteSubscription(cancelled.getKey());
+        assertEquals(1, eventRepository.findById(eventId).orElseThrow().getPlaces());
+        subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, ticketId));
+        assertThrows(ForbiddenException.class, () -> subscriptionService.createSubscription(
+                new SubscriptionRequest(1, eventId, ticketId)));
+        seatInventoryService.flushPendingInventory();
+        assertEquals(0, eventRepository.findById(eventId).orElseThrow().getPlaces());
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.event.service;
+
+import com.example.event.Exception.EntityAlreadyExistException;
+import com.example.event.dto.Subscription.BatchValidationResult;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.event.dto.Subscription.TicketScanResult.ALREADY_USED;
+import static com.example.event.dto.Subscription.TicketScanResult.INVALID;
+import static com.example.event.dto.Subscription.TicketScanResult.OK;
+import static com.example.event.dto.Subscription.TicketScanResult.WRONG_ORGANIZER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class SubscriptionServiceTests {
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void batchValidationAnswersEachCodeAndAdmitsItOnce() {
+        TicketCategory free = newCategory(newEvent("Lane A", "organizer1@eventapp.com"), 0);
+        TicketCategory paid = newCategory(free.getEvent(), 3000);
+        TicketCategory elsewhere = newCategory(newEvent("Lane B", "organizer2@eventapp.com"), 0);
+
+        String first = book("visitor11@eventapp.com", free, 2);
+        String second = book("visitor12@eventapp.com", free, 1);
+        String third = book("visitor13@eventapp.com", free, 1);
+        // Not paid yet: EN_ATTENTE
+        String unpaid = book("visitor14@eventapp.com", paid, 1);
+        String otherOrganizer = book("visitor15@eventapp.com", elsewhere, 1);
+
+        login("organizer1@eventapp.com");
+        List<BatchValidationResult> results = subscriptionService.validateTickets(
+                List.of(first, second, first, "TICKET-ZZZ", unpaid, otherOrganizer));
+        assertEquals(List.of(OK, OK, ALREADY_USED, INVALID, INVALID, WRONG_ORGANIZER),
+                results.stream().map(BatchValidationResult::getResult).toList());
+        assertEquals(2, results.get(0).getPlaces());
+        assertEquals("Ticket 0", results.get(0).getNom_ticket());
+        // Nothing is disclosed about another organizer's ticket
+        assertNull(results.get(5).getSubscription_id());
+
+        assertEquals(Statut_Subscription.UTILISE, subscriptionRepository.findByCodeticket(first).orElseThrow().getStatut());
+        assertEquals(Statut_Subscription.EN_ATTENTE, subscriptionRepository.findByCodeticket(unpaid).orElseThrow().getStatut());
+        assertEquals(Statut_Subscription.REUSSI, subscriptionRepository.findByCodeticket(otherOrganizer).orElseThrow().getStatut());
+
+        // A second lane scanning again only admits the code it has not seen
+        List<BatchValidationResult> again = subscriptionService.validateTickets(List.of(second, third));
+        assertEquals(List.of(ALREADY_USED, OK), again.stream().map(BatchValidationResult::getResult).toList());
+        assertEquals(Statut_Subscription.UTILISE, subscriptionRepository.findByCodeticket(third).orElseThrow().getStatut());
+    }
+
+    @Test
+    void concurrentScansOfOneCodeAdmitItOnce() throws Exception {
+        TicketCategory free = newCategory(newEvent("Lane C", "organizer1@eventapp.com"), 0);
+        String code = book("visitor16@eventapp.com", free, 1);
+
+        int scanners = 6;
+        ExecutorService pool = Executors.newFixedThreadPool(scanners);
+        CyclicBarrier start = new CyclicBarrier(scanners);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        try {
+            List<Future<?>> scans = new ArrayList<>();
+            for (int i = 0; i < scanners; i++) {
+                scans.add(pool.submit(() -> {
+                    login("organizer1@eventapp.com");
+                    start.await();
+                    try {
+                        subscriptionService.validateTicket(code);
+                        admitted.incrementAndGet();
+                    } catch (EntityAlreadyExistException e) {
+                        refused.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> scan : scans) {
+                scan.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, admitted.get());
+        assertEquals(scanners - 1, refused.get());
+        assertEquals(Statut_Subscription.UTILISE, subscriptionRepository.findByCodeticket(code).orElseThrow().getStatut());
+    }
+
+    private Event newEvent(String title, String organizer) {
+        Event event = new Event();
+        event.setTitle(title);
+        event.setPlaces(50);
+        event.setDebut(LocalDate.now().plusDays(3));
+        event.setFin(LocalDate.now().plusDays(3));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail(organizer).orElseThrow().getOrganizerProfile());
+        return eventRepository.save(event);
+    }
+
+    private TicketCategory newCategory(Event event, int prix) {
+        TicketCategory category = new TicketCategory();
+        category.setIntitule("Ticket " + prix);
+        category.setPrix(prix);
+        category.setCapacity(20);
+        category.setEvent(event);
+        return ticketCategoryRepository.save(category);
+    }
+
+    private String book(String visitor, TicketCategory category, int places) {
+        login(visitor);
+        Long id = subscriptionService.createSubscription(
+                new SubscriptionRequest(places, category.getEvent().getId(), category.getId())).getBody().getId();
+        return subscriptionRepository.findById(id).orElseThrow().getCodeticket();
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.TicketCategory;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class VisitorCapServiceTests {
+
+    private static final String VISITOR = "visitor5@eventapp.com";
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentBookingsStopAtTheCapAndCancellationsFreeIt() throws Exception {
+        Event event = new Event();
+        event.setTitle("Hot release");
+        event.setPlaces(100);
+        event.setMaxPlacesPerVisitor(4);
+        event.setDebut(LocalDate.now().plusDays(10));
+        event.setFin(LocalDate.now().plusDays(10));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        Long eventId = eventRepository.save(event).getId();
+        TicketCategory free = new TicketCategory();
+        free.setIntitule("Free");
+        free.setEvent(event);
+        Long ticketId = ticketCategoryRepository.save(free).getId();
+
+        // The same visitor hammers the endpoint from 10 threads: only 4 single seats get through
+        int threads = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SubscriptionResponse>> calls = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            calls.add(pool.submit(() -> {
+                login();
+                start.await();
+                try {
+                    return subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, ticketId)).getBody();
+                } catch (ForbiddenException e) {
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        List<SubscriptionResponse> booked = new ArrayList<>();
+        for (Future<SubscriptionResponse> call : calls) {
+            SubscriptionResponse response = call.get();
+            if (response != null) {
+                booked.add(response);
+            }
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(4, booked.size());
+        assertEquals(96, eventRepository.findById(eventId).orElseThrow().getPlaces());
+
+        login();
+        assertThrows(ForbiddenException.class,
+                () -> subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, ticketId)));
+        subscriptionService.deleteSubscription(booked.get(0).getId());
+        subscriptionService.createSubscription(new SubscriptionRequest(1, eventId, ticketId));
+        assertEquals(96, eventRepository.findById(eventId).orElseThrow().getPlaces());
+    }
+
+    private static void login() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(VISITOR, null, List.of()));
+    }
+}
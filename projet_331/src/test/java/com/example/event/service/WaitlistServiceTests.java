@@ -0,0 +1,111 @@
+package com.example.event.service;
+
+import com.example.event.Exception.ForbiddenException;
+import com.example.event.dto.Subscription.SubscriptionRequest;
+import com.example.event.dto.Subscription.SubscriptionResponse;
+import com.example.event.dto.Waitlist.WaitlistResponse;
+import com.example.event.model.Event;
+import com.example.event.model.Statut_Event;
+import com.example.event.model.Statut_Subscription;
+import com.example.event.model.Statut_Waitlist;
+import com.example.event.model.TicketCategory;
+import com.example.event.model.WaitlistEntry;
+import com.example.event.repository.EventRepository;
+import com.example.event.repository.SubscriptionRepository;
+import com.example.event.repository.TicketCategoryRepository;
+import com.example.event.repository.UserRepository;
+import com.example.event.repository.WaitlistEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class WaitlistServiceTests {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void releasedSeatsGoToTheWaitlistInArrivalOrder() {
+        Event event = new Event();
+        event.setTitle("Sold out concert");
+        event.setPlaces(2);
+        event.setDebut(LocalDate.now().plusDays(20));
+        event.setFin(LocalDate.now().plusDays(20));
+        event.setStatut(Statut_Event.PROCHAINEMENT);
+        event.setOrganizerProfile(userRepository.findByEmail("organizer1@eventapp.com").orElseThrow().getOrganizerProfile());
+        event = eventRepository.save(event);
+        TicketCategory free = new TicketCategory();
+        free.setIntitule("Free");
+        free.setEvent(event);
+        free = ticketCategoryRepository.save(free);
+
+        login("visitor1@eventapp.com");
+        SubscriptionResponse booked = subscriptionService.createSubscription(
+                new SubscriptionRequest(2, event.getId(), free.getId())).getBody();
+
+        login("visitor2@eventapp.com");
+        SubscriptionRequest one = new SubscriptionRequest(1, event.getId(), free.getId());
+        assertThrows(ForbiddenException.class, () -> subscriptionService.createSubscription(one));
+        WaitlistResponse first = waitlistService.join(one);
+        login("visitor3@eventapp.com");
+        WaitlistResponse second = waitlistService.join(new SubscriptionRequest(2, event.getId(), free.getId()));
+        login("visitor4@eventapp.com");
+        WaitlistResponse third = waitlistService.join(one);
+        assertEquals(2, third.getPosition());
+
+        login("visitor1@eventapp.com");
+        subscriptionService.deleteSubscription(booked.getId());
+
+        // 2 seats back: the first request is served, the second (2 places) does not fit and keeps
+        // its rank, so the third is not served before it
+        WaitlistEntry promoted = waitlistEntryRepository.findById(first.getId()).orElseThrow();
+        assertEquals(Statut_Waitlist.PROMU, promoted.getStatut());
+        assertEquals(Statut_Subscription.REUSSI,
+                subscriptionRepository.findById(promoted.getSubscriptionId()).orElseThrow().getStatut());
+        assertEquals(Statut_Waitlist.EN_ATTENTE, waitlistEntryRepository.findById(second.getId()).orElseThrow().getStatut());
+        assertEquals(Statut_Waitlist.EN_ATTENTE, waitlistEntryRepository.findById(third.getId()).orElseThrow().getStatut());
+        assertEquals(1, eventRepository.findById(event.getId()).orElseThrow().getPlaces());
+
+        login("visitor4@eventapp.com");
+        assertEquals(1, waitlistService.getMyRequests().stream()
+                .filter(request -> request.getId().equals(third.getId()))
+                .findFirst().orElseThrow().getPosition());
+    }
+
+    private static void login(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
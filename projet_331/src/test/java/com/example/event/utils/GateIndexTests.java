@@ -0,0 +1,56 @@
+package com.example.event.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GateIndexTests {
+
+    private static final int TICKETS = 20_000;
+    private static final int THREADS = 8;
+
+    @Test
+    void everyTicketIsAdmittedExactlyOnce() throws Exception {
+        TicketCodeSigner signer = new TicketCodeSigner(new TicketCodeGenerator(0), "1:gate-key", 1, false);
+        String[] codes = new String[TICKETS];
+        GateIndex index = new GateIndex(TICKETS);
+        for (int i = 0; i < TICKETS; i++) {
+            codes[i] = signer.issue(1L);
+            index.put(codes[i], i + 1, 1, 0, false);
+        }
+        assertEquals(TICKETS, index.size());
+        assertEquals(-1, index.find(signer.issue(1L)));
+
+        // Every thread scans every ticket: only one scan per ticket may succeed
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                int admitted = 0;
+                for (String code : codes) {
+                    int slot = index.find(code);
+                    if (slot >= 0 && index.checkIn(slot)) {
+                        admitted++;
+                    }
+                }
+                return admitted;
+            }));
+        }
+        int admitted = 0;
+        for (Future<Integer> result : results) {
+            admitted += result.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(TICKETS, admitted);
+    }
+}
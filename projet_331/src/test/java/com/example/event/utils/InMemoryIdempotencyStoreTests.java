@@ -0,0 +1,39 @@
+package com.example.event.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class InMemoryIdempotencyStoreTests {
+
+    @Test
+    void inFlightClaimOutlivesItsTtlAndOnlyCompletesItsOwnFuture() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore();
+        // Every entry is expired as soon as it is claimed
+        ReflectionTestUtils.setField(store, "ttlMinutes", 0L);
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+
+        CompletableFuture<ResponseEntity<?>> first = new CompletableFuture<>();
+        assertNull(store.claim("key", first));
+        // Still running: a duplicate waits on it instead of running again
+        assertSame(first, store.claim("key", new CompletableFuture<>()));
+
+        store.complete("key", first, ResponseEntity.ok("first"));
+        CompletableFuture<ResponseEntity<?>> second = new CompletableFuture<>();
+        assertNull(store.claim("key", second));
+
+        // A late completion or failure of the first request leaves the new claim alone
+        store.complete("key", first, ResponseEntity.ok("late"));
+        store.abandon("key", first);
+        assertFalse(second.isDone());
+        assertSame(second, store.claim("key", new CompletableFuture<>()));
+        assertEquals("first", first.join().getBody());
+    }
+}
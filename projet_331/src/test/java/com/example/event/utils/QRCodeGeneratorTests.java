@@ -0,0 +1,41 @@
+package com.example.event.utils;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QRCodeGeneratorTests {
+
+    private static final String CODE = "serial-1C-1A8F3K2M9QWERTYZ";
+
+    @Test
+    void pngDecodesBackToTheTicketCode() throws Exception {
+        byte[] png = QRCodeGenerator.generateQRCodeImage(CODE, 250, 250);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(250, image.getWidth());
+        assertEquals(250, image.getHeight());
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        assertEquals(CODE, new QRCodeReader().decode(bitmap).getText());
+    }
+
+    @Test
+    void svgAndCache() throws Exception {
+        String svg = QRCodeGenerator.generateQRCodeSvg(CODE, 250);
+        assertTrue(svg.startsWith("<svg"));
+        assertTrue(svg.contains("<path fill=\"#000\" d=\"M"));
+
+        byte[] first = QRCodeGenerator.cachedQRCodeImage(CODE, 250, 250);
+        assertSame(first, QRCodeGenerator.cachedQRCodeImage(CODE, 250, 250));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.event.utils;
+
+import com.example.event.service.SmtpStandIn;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpConnectionPoolTests {
+
+    private static final int MESSAGES = 100;
+    private static final int BATCH = 20;
+
+    @Test
+    void pooledDeliveryReusesConnections() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            JavaMailSenderImpl mailSender = mailSender(smtp.getPort());
+            SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, 3, 1_000_000, 5, 30_000);
+            for (int from = 0; from < MESSAGES; from += BATCH) {
+                List<MimeMessage> batch = new ArrayList<>();
+                for (int i = from; i < from + BATCH; i++) {
+                    batch.add(message(mailSender, i));
+                }
+                for (Exception result : pool.send(batch)) {
+                    assertNull(result);
+                }
+            }
+            pool.closeAll();
+
+            for (int i = 0; i < MESSAGES; i++) {
+                assertTrue(smtp.awaitMessage(5, TimeUnit.SECONDS) != null);
+            }
+            // Every message went over one of the pooled connections
+            assertTrue(smtp.connections() <= 3);
+        }
+    }
+
+    @Test
+    void breakerOpensWhenTheServerIsDown() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        JavaMailSenderImpl mailSender = mailSender(closedPort);
+        SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, 1, 1_000_000, 3, 60_000);
+
+        List<Exception> results = pool.send(List.of(message(mailSender, 1), message(mailSender, 2),
+                message(mailSender, 3), message(mailSender, 4)));
+        assertEquals(4, results.size());
+        assertTrue(results.get(3) instanceof SmtpConnectionPool.CircuitOpenException);
+        assertTrue(pool.isCircuitOpen());
+        assertThrows(SmtpConnectionPool.CircuitOpenException.class, () -> pool.send(List.of(message(mailSender, 5))));
+    }
+
+    @Test
+    void halfOpenTrialIsSettledOnEveryPath() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            JavaMailSenderImpl mailSender = mailSender(closedPort);
+            // Opens on the first failure and lets a trial through right away
+            SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, 1, 1_000_000, 1, 0);
+            pool.send(List.of(message(mailSender, 1)));
+            assertTrue(pool.isCircuitOpen());
+
+            // Interrupted before reaching the server: the trial is given back
+            Thread.currentThread().interrupt();
+            assertThrows(MailSendException.class, () -> pool.send(List.of(message(mailSender, 2))));
+            assertTrue(Thread.interrupted());
+
+            // Rejected by the server: the connection works, the circuit closes
+            mailSender.setPort(smtp.getPort());
+            smtp.setRejecting(true);
+            List<Exception> rejected = pool.send(List.of(message(mailSender, 3)));
+            assertTrue(rejected.get(0) instanceof SendFailedException);
+            assertFalse(pool.isCircuitOpen());
+
+            smtp.setRejecting(false);
+            assertNull(pool.send(List.of(message(mailSender, 4))).get(0));
+            pool.closeAll();
+        }
+    }
+
+    private static JavaMailSenderImpl mailSender(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        return mailSender;
+    }
+
+    private static MimeMessage message(JavaMailSenderImpl mailSender, int i) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+        helper.setFrom("events@example.com");
+        helper.setTo("visitor" + i + "@example.com");
+        helper.setSubject("Ticket " + i);
+        helper.setText("Body " + i);
+        return message;
+    }
+}
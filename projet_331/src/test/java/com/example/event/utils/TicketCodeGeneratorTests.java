@@ -0,0 +1,63 @@
+package com.example.event.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketCodeGeneratorTests {
+
+    private static final int THREADS = 8;
+    private static final int CODES_PER_THREAD = 20_000;
+
+    @Test
+    void codesAreUniqueAcrossThreads() throws Exception {
+        TicketCodeGenerator generator = new TicketCodeGenerator(7);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < CODES_PER_THREAD; i++) {
+                    codes.add(generator.next());
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(THREADS * CODES_PER_THREAD, codes.size());
+    }
+
+    @Test
+    void checkSymbolRejectsTypos() {
+        String code = new TicketCodeGenerator(0).next();
+        assertTrue(TicketCodeGenerator.isWellFormed(code));
+
+        char[] swapped = code.toCharArray();
+        int i = TicketCodeGenerator.PREFIX.length() + 5;
+        char c = swapped[i];
+        swapped[i] = swapped[i + 1];
+        swapped[i + 1] = c;
+        if (swapped[i] != swapped[i + 1]) {
+            assertFalse(TicketCodeGenerator.isWellFormed(new String(swapped)));
+        }
+
+        char[] mistyped = code.toCharArray();
+        mistyped[i] = mistyped[i] == 'A' ? 'B' : 'A';
+        assertFalse(TicketCodeGenerator.isWellFormed(new String(mistyped)));
+
+        // Codes of the former random format are still accepted
+        assertTrue(TicketCodeGenerator.isWellFormed("TICKET-1A2B3C4D"));
+        // Other lengths and characters are not
+        assertFalse(TicketCodeGenerator.isWellFormed("TICKET-ZZZ"));
+        assertFalse(TicketCodeGenerator.isWellFormed("TICKET-1a2b3c4d"));
+        assertFalse(TicketCodeGenerator.isWellFormed("TICKET-1A2B3C4D5"));
+    }
+}
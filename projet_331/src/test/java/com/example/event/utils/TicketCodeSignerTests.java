@@ -0,0 +1,45 @@
+package com.example.event.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TicketCodeSignerTests {
+
+    private final TicketCodeGenerator generator = new TicketCodeGenerator(0);
+
+    @Test
+    void signedCodeCarriesItsEvent() {
+        TicketCodeSigner signer = new TicketCodeSigner(generator, "1:first-key", 1, false);
+        String code = signer.issue(4242L);
+        assertEquals(4242L, signer.verify(code));
+
+        assertNull(signer.verify(code.replace("-" + Long.toString(4242L, 32).toUpperCase() + "-",
+                "-" + Long.toString(4243L, 32).toUpperCase() + "-")));
+        char last = code.charAt(code.length() - 1);
+        assertNull(signer.verify(code.substring(0, code.length() - 1) + (last == 'A' ? 'B' : 'A')));
+        assertNull(signer.verify("TICKET-1A2B3C4D"));
+    }
+
+    @Test
+    void rotationKeepsIssuedTicketsValid() {
+        TicketCodeSigner before = new TicketCodeSigner(generator, "1:first-key", 1, true);
+        String oldCode = before.issue(7L);
+
+        TicketCodeSigner after = new TicketCodeSigner(generator, "1:first-key,2:second-key", 2, true);
+        String newCode = after.issue(7L);
+        assertEquals(7L, after.verify(oldCode));
+        assertEquals(7L, after.verify(newCode));
+        assertNull(before.verify(newCode));
+        assertEquals(-1L, after.verify("TICKET-1A2B3C4D"));
+    }
+
+    @Test
+    void unsignedGarbageIsRejectedEvenWhenLegacyCodesAreAccepted() {
+        TicketCodeSigner signer = new TicketCodeSigner(generator, "1:first-key", 1, true);
+        assertEquals(-1L, signer.verify("TICKET-1A2B3C4D"));
+        assertNull(signer.verify("TICKET-ZZZ"));
+        assertNull(signer.verify("TICKET-" + "Q".repeat(40)));
+    }
+}